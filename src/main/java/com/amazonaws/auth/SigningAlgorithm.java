@@ -14,9 +14,40 @@
  */
 package com.amazonaws.auth;
 
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+
+import com.amazonaws.exception.AmazonClientException;
+
 public enum SigningAlgorithm {
-    
+
     HmacSHA1,
     HmacSHA256;
 
+    /**
+     * Mac instances are not thread safe and looking them up through the JCE
+     * provider is expensive, so each thread keeps its own instance per
+     * algorithm.
+     */
+    private final ThreadLocal<Mac> threadLocalMac = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                return Mac.getInstance(name());
+            } catch (NoSuchAlgorithmException e) {
+                throw new AmazonClientException("Unable to fetch Mac instance for Algorithm "
+                        + name() + ": " + e.getMessage(), e);
+            }
+        }
+    };
+
+    /**
+     * Returns the Mac owned by the current thread for this algorithm. Callers
+     * must (re)initialize it with their key before use, and must not hold on
+     * to it beyond a single signing operation.
+     */
+    public Mac getMac() {
+        return threadLocalMac.get();
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.authprovider;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Refreshes the credentials of a provider ahead of their expiration from a
+ * background thread, so that the threads asking the provider for credentials
+ * never wait on the remote call while valid credentials are available.
+ * <p>
+ * The refreshes of all the providers are run by a single daemon thread. Each
+ * refresh is scheduled at a random time within the last quarter of the
+ * prefetch period before the expiration of the current credentials, so that
+ * many hosts started together don't all call the credentials service at the
+ * same time. A failed refresh is retried with exponential backoff while the
+ * provider keeps serving its current, still valid, credentials.
+ */
+public final class BackgroundCredentialsRefresher {
+    private static final Log LOG = LogFactory.getLog(BackgroundCredentialsRefresher.class);
+
+    private static final String THREAD_NAME = "java-sdk-credentials-refresher";
+
+    /**
+     * Minimum delay between two successful refreshes, in case the service
+     * keeps returning credentials that are already within the prefetch period;
+     * unless the credentials expire sooner.
+     */
+    private static final long MIN_REFRESH_DELAY_MILLIS = 1000 * 60;
+    /** Delay before the first retry of a failed refresh. */
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    /** Maximum delay between the retries of a failed refresh. */
+    private static final long MAX_RETRY_DELAY_MILLIS = 1000 * 60 * 5;
+
+    private static volatile ScheduledExecutorService scheduler;
+
+    private final Callable<Date> refresh;
+    private final long prefetchMillis;
+    private final long maxIntervalMillis;
+    private final Random random = new Random();
+
+    private ScheduledFuture<?> scheduled;
+    private boolean stopped;
+    private int consecutiveFailures;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private volatile long lastRefreshLatencyMillis = -1;
+    private volatile Date lastRefreshTime;
+    private volatile Exception lastRefreshFailure;
+
+    /**
+     * @param refresh
+     *            Loads new credentials into the provider, and returns their
+     *            expiration, or null if they don't expire; throws an exception
+     *            if new credentials could not be loaded.
+     * @param prefetchMillis
+     *            How long before the expiration of the credentials to refresh
+     *            them.
+     * @param maxIntervalMillis
+     *            The maximum time between two refreshes, regardless of the
+     *            expiration of the credentials.
+     */
+    BackgroundCredentialsRefresher(Callable<Date> refresh, long prefetchMillis, long maxIntervalMillis) {
+        this.refresh = refresh;
+        this.prefetchMillis = prefetchMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+    }
+
+    /**
+     * Schedules the next refresh according to the expiration of the current
+     * credentials.
+     *
+     * @param expiration
+     *            The expiration of the current credentials; or null if they
+     *            don't expire, or if there are no credentials yet, in which
+     *            case they are refreshed right away.
+     * @param hasCredentials
+     *            True if the provider has credentials already.
+     */
+    synchronized void start(Date expiration, boolean hasCredentials) {
+        stopped = false;
+        if (scheduled == null)
+            schedule(hasCredentials ? nextRefreshDelay(expiration) : 0);
+    }
+
+    /** Cancels the scheduled refreshes. */
+    synchronized void stop() {
+        stopped = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    /** Returns the number of successful background refreshes. */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /** Returns the number of failed background refreshes. */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * Returns the time taken by the last background refresh, successful or
+     * not, in milliseconds; or -1 if no refresh has been attempted yet.
+     */
+    public long getLastRefreshLatencyMillis() {
+        return lastRefreshLatencyMillis;
+    }
+
+    /**
+     * Returns the time of the last successful background refresh, or null if
+     * there is none.
+     */
+    public Date getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * Returns the failure of the last background refresh, or null if the last
+     * refresh succeeded.
+     */
+    public Exception getLastRefreshFailure() {
+        return lastRefreshFailure;
+    }
+
+    private void runRefresh() {
+        synchronized (this) {
+            scheduled = null;
+        }
+        final long start = System.currentTimeMillis();
+        Date expiration = null;
+        Exception failure = null;
+        try {
+            expiration = refresh.call();
+        } catch (Exception e) {
+            failure = e;
+        }
+        final long end = System.currentTimeMillis();
+        lastRefreshLatencyMillis = end - start;
+        lastRefreshFailure = failure;
+        long delay;
+        synchronized (this) {
+            if (failure == null) {
+                refreshCount.incrementAndGet();
+                lastRefreshTime = new Date(end);
+                consecutiveFailures = 0;
+                delay = nextRefreshDelay(expiration);
+            } else {
+                refreshFailureCount.incrementAndGet();
+                LOG.warn("Unable to refresh credentials; the current credentials are used until they expire", failure);
+                delay = Math.min(MAX_RETRY_DELAY_MILLIS,
+                        MIN_RETRY_DELAY_MILLIS << Math.min(consecutiveFailures++, 20));
+            }
+            // Unless stopped, or restarted in the meantime
+            if (!stopped && scheduled == null)
+                schedule(delay);
+        }
+    }
+
+    /**
+     * Returns the delay until the refresh of credentials expiring at the given
+     * time, with jitter.
+     */
+    private long nextRefreshDelay(Date expiration) {
+        long delay = maxIntervalMillis;
+        long minDelay = MIN_REFRESH_DELAY_MILLIS;
+        if (expiration != null) {
+            long timeLeft = expiration.getTime() - System.currentTimeMillis();
+            long jitter = (long)(random.nextDouble() * prefetchMillis / 4);
+            delay = Math.min(delay, timeLeft - prefetchMillis + jitter);
+            // Don't wait past the expiration, but don't spin on credentials
+            // that are already expired either
+            minDelay = Math.max(MIN_RETRY_DELAY_MILLIS, Math.min(minDelay, timeLeft));
+        }
+        return Math.max(delay, minDelay);
+    }
+
+    private void schedule(long delayMillis) {
+        scheduled = getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                runRefresh();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService getScheduler() {
+        ScheduledExecutorService s = scheduler;
+        if (s == null) {
+            synchronized (BackgroundCredentialsRefresher.class) {
+                s = scheduler;
+                if (s == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, THREAD_NAME);
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+                    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+                    scheduler = s = executor;
+                }
+            }
+        }
+        return s;
+    }
+}
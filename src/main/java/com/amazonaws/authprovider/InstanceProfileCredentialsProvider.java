@@ -16,6 +16,7 @@ package com.amazonaws.authprovider;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,6 +35,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 /**
  * Credentials provider implementation that loads credentials from the Amazon
  * EC2 Instance Metadata Service.
+ * <p>
+ * By default, credentials are loaded on the thread asking for them when they
+ * are close to expiring. With asynchronous refresh turned on, credentials are
+ * instead refreshed ahead of their expiration from a background thread, and
+ * the callers only wait on the Instance Metadata Service if no valid
+ * credentials are available.
  */
 public class InstanceProfileCredentialsProvider implements AWSCredentialsProvider {
 
@@ -70,9 +77,60 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
     /** The time of the last attempt to check for new credentials */
     protected volatile Date lastInstanceProfileCheck;
 
+    /** The background refresher of the credentials, or null if none */
+    private volatile BackgroundCredentialsRefresher refresher;
+
+    public InstanceProfileCredentialsProvider() {}
+
+    /**
+     * @param refreshCredentialsAsync
+     *            True if the credentials should be refreshed from a background
+     *            thread.
+     *
+     * @see #setAsyncRefresh(boolean)
+     */
+    public InstanceProfileCredentialsProvider(boolean refreshCredentialsAsync) {
+        setAsyncRefresh(refreshCredentialsAsync);
+    }
+
+    /**
+     * Sets whether the credentials are refreshed ahead of their expiration
+     * from a background thread, rather than on the thread asking for them.
+     * A provider refreshed in the background stays referenced by the
+     * background thread, so the asynchronous refresh should be turned off
+     * once the provider is no longer used.
+     */
+    public synchronized void setAsyncRefresh(boolean asyncRefresh) {
+        if (asyncRefresh) {
+            if (refresher == null) {
+                refresher = new BackgroundCredentialsRefresher(new Callable<Date>() {
+                    @Override
+                    public Date call() throws IOException {
+                        return refreshCredentials();
+                    }
+                }, EXPIRATION_THRESHOLD, REFRESH_THRESHOLD);
+            }
+            refresher.start(credentialsExpiration, credentials != null);
+        } else if (refresher != null) {
+            refresher.stop();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Returns the background refresher of the credentials, which exposes the
+     * refresh latency and failure statistics; or null if the asynchronous
+     * refresh is turned off.
+     */
+    public BackgroundCredentialsRefresher getCredentialsRefresher() {
+        return refresher;
+    }
+
 
     public AWSCredentials getCredentials() {
-        if (needsToLoadCredentials())
+        // When refreshed in the background, only load credentials on the
+        // calling thread if there are no valid credentials to serve
+        if (refresher == null ? needsToLoadCredentials() : credentials == null || expired())
             loadCredentials();
         if (expired()) {
             throw new AmazonClientException(
@@ -130,52 +188,66 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
     private synchronized void loadCredentials() {
         if (!needsToLoadCredentials()) return;
 
+        try {
+            fetchCredentials();
+        } catch (JsonMappingException e) {
+            handleError("Unable to parse credentials from Amazon EC2 metadata service", e);
+        } catch (IOException e) {
+            handleError("Unable to load credentials from Amazon EC2 metadata service", e);
+        }
+    }
+
+    /**
+     * Loads new credentials from the background thread, and returns their
+     * expiration. The current credentials are kept if new ones can't be
+     * loaded.
+     */
+    private synchronized Date refreshCredentials() throws IOException {
+        fetchCredentials();
+        return credentialsExpiration;
+    }
+
+    private void fetchCredentials() throws IOException {
         JsonNode accessKey;
         JsonNode secretKey;
         JsonNode node;
         JsonNode token;
-        try {
-            lastInstanceProfileCheck = new Date();
-            String credentialsResponse = new EC2MetadataClient()
-                    .getDefaultCredentials();
+        lastInstanceProfileCheck = new Date();
+        String credentialsResponse = new EC2MetadataClient()
+                .getDefaultCredentials();
 
-            node = Jackson.jsonNodeOf(credentialsResponse);
-            accessKey = node.get(ACCESS_KEY_ID);
-            secretKey = node.get(SECRET_ACCESS_KEY);
-            token = node.get(TOKEN);
+        node = Jackson.jsonNodeOf(credentialsResponse);
+        accessKey = node.get(ACCESS_KEY_ID);
+        secretKey = node.get(SECRET_ACCESS_KEY);
+        token = node.get(TOKEN);
 
-            if (null == accessKey || null == secretKey) {
-                throw new AmazonClientException("Unable to load credentials.");
-            }
+        if (null == accessKey || null == secretKey) {
+            throw new AmazonClientException("Unable to load credentials.");
+        }
 
-            if (null != token) {
-                credentials = new BasicSessionCredentials(accessKey.asText(),
-                        secretKey.asText(), token.asText());
-            } else {
-                credentials = new BasicAWSCredentials(accessKey.asText(),
-                        secretKey.asText());
-            }
+        if (null != token) {
+            credentials = new BasicSessionCredentials(accessKey.asText(),
+                    secretKey.asText(), token.asText());
+        } else {
+            credentials = new BasicAWSCredentials(accessKey.asText(),
+                    secretKey.asText());
+        }
 
-            JsonNode expirationJsonNode = node.get("Expiration");
-            if (null != expirationJsonNode) {
-                /*
-                 * TODO: The expiration string comes in a different format
-                 * than what we deal with in other parts of the SDK, so we
-                 * have to convert it to the ISO8601 syntax we expect.
-                 */
-                String expiration = expirationJsonNode.asText();
-                expiration = expiration.replaceAll("\\+0000$", "Z");
-
-                try {
-                    credentialsExpiration = DateUtils.parseISO8601Date(expiration);
-                } catch(Exception ex) {
-                    handleError("Unable to parse credentials expiration date from Amazon EC2 metadata service", ex);
-                }
+        JsonNode expirationJsonNode = node.get("Expiration");
+        if (null != expirationJsonNode) {
+            /*
+             * TODO: The expiration string comes in a different format
+             * than what we deal with in other parts of the SDK, so we
+             * have to convert it to the ISO8601 syntax we expect.
+             */
+            String expiration = expirationJsonNode.asText();
+            expiration = expiration.replaceAll("\\+0000$", "Z");
+
+            try {
+                credentialsExpiration = DateUtils.parseISO8601Date(expiration);
+            } catch(Exception ex) {
+                handleError("Unable to parse credentials expiration date from Amazon EC2 metadata service", ex);
             }
-        } catch (JsonMappingException e) {
-            handleError("Unable to parse credentials from Amazon EC2 metadata service", e);
-        } catch (IOException e) {
-            handleError("Unable to load credentials from Amazon EC2 metadata service", e);
         }
     }
 
@@ -16,6 +16,7 @@
 package com.amazonaws.authprovider;
 
 import java.util.Date;
+import java.util.concurrent.Callable;
 
 import com.amazonaws.auth.AWSSessionCredentials;
 import com.amazonaws.auth.BasicSessionCredentials;
@@ -41,14 +42,23 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSCredentialsPr
     /** Time before expiry within which credentials will be renewed. */
     private static final int EXPIRY_TIME_MILLIS = 60 * 1000;
 
+    /**
+     * Time before expiry within which credentials are renewed when refreshing
+     * asynchronously.
+     */
+    private static final int ASYNC_REFRESH_THRESHOLD_MILLIS = 3 * 60 * 1000;
+
     /** The client for starting STS sessions. */
     private final AWSSecurityTokenService securityTokenService;
 
     /** The current session credentials. */
-    private AWSSessionCredentials sessionCredentials;
+    private volatile AWSSessionCredentials sessionCredentials;
 
     /** The expiration time for the current session credentials. */
-    private Date sessionCredentialsExpiration;
+    private volatile Date sessionCredentialsExpiration;
+
+    /** The background refresher of the session credentials, or null if none. */
+    private volatile BackgroundCredentialsRefresher refresher;
 
     /** The arn of the role to be assumed. */
     private String roleArn;
@@ -164,10 +174,44 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSCredentialsPr
         securityTokenService = new AWSSecurityTokenServiceClient(longLivedCredentialsProvider, clientConfiguration);
     }
 
+    /**
+     * Sets whether new sessions are started ahead of the expiration of the
+     * current session from a background thread, rather than on the thread
+     * asking for credentials. A provider refreshed in the background stays
+     * referenced by the background thread, so the asynchronous refresh should
+     * be turned off once the provider is no longer used.
+     */
+    public synchronized void setAsyncRefresh(boolean asyncRefresh) {
+        if (asyncRefresh) {
+            if (refresher == null) {
+                refresher = new BackgroundCredentialsRefresher(new Callable<Date>() {
+                    @Override
+                    public Date call() {
+                        startSession();
+                        return sessionCredentialsExpiration;
+                    }
+                }, ASYNC_REFRESH_THRESHOLD_MILLIS, DEFAULT_DURATION_SECONDS * 1000L);
+            }
+            refresher.start(sessionCredentialsExpiration, sessionCredentials != null);
+        } else if (refresher != null) {
+            refresher.stop();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Returns the background refresher of the session credentials, which
+     * exposes the refresh latency and failure statistics; or null if the
+     * asynchronous refresh is turned off.
+     */
+    public BackgroundCredentialsRefresher getCredentialsRefresher() {
+        return refresher;
+    }
+
     @Override
     public AWSCredentials getCredentials() {
-        if (needsNewSession()) {
-            startSession();
+        if (needsSessionOnCallingThread()) {
+            startSessionIfNeeded();
         }
         return sessionCredentials;
     }
@@ -183,7 +227,7 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSCredentialsPr
      * class then vends the short lived session credentials for the assumed Role
      * sent back from STS.
      */
-    private void startSession() {
+    private synchronized void startSession() {
         AssumeRoleResult assumeRoleResult = securityTokenService.assumeRole(new AssumeRoleRequest()
                 .withRoleArn(roleArn).withDurationSeconds(DEFAULT_DURATION_SECONDS)
                 .withRoleSessionName(roleSessionName));
@@ -194,6 +238,25 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSCredentialsPr
         sessionCredentialsExpiration = stsCredentials.getExpiration();
     }
 
+    /**
+     * Starts a new session unless a concurrent caller already started one
+     * while this thread was waiting for the lock.
+     */
+    private synchronized void startSessionIfNeeded() {
+        if (needsSessionOnCallingThread()) {
+            startSession();
+        }
+    }
+
+    /**
+     * Returns true if the thread asking for credentials has to start a new
+     * session. When refreshed in the background, a session is only started on
+     * the calling thread if there are no valid credentials to serve.
+     */
+    private boolean needsSessionOnCallingThread() {
+        return refresher == null ? needsNewSession() : isSessionExpired();
+    }
+
     /**
      * Returns true if a new STS session needs to be started. A new STS session
      * is needed when no session has been started yet, or if the last session is
@@ -209,4 +272,13 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSCredentialsPr
         return timeRemaining < EXPIRY_TIME_MILLIS;
     }
 
+    /**
+     * Returns true if there is no session, or if the current session has
+     * expired.
+     */
+    private boolean isSessionExpired() {
+        return sessionCredentials == null
+                || sessionCredentialsExpiration.getTime() < System.currentTimeMillis();
+    }
+
 }
\ No newline at end of file
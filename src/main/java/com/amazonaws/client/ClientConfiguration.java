@@ -19,8 +19,10 @@ import java.net.InetAddress;
 import org.apache.http.annotation.NotThreadSafe;
 
 import com.amazonaws.client.http.IdleConnectionReaper;
+import com.amazonaws.client.retry.AdaptiveRateLimiter;
 import com.amazonaws.client.retry.PredefinedRetryPolicies;
 import com.amazonaws.client.retry.RetryPolicy;
+import com.amazonaws.client.retry.RetryQuota;
 import com.amazonaws.client.service.AmazonWebServiceClient;
 import com.amazonaws.network.Protocol;
 import com.amazonaws.utility.VersionInfoUtils;
@@ -71,6 +73,69 @@ public class ClientConfiguration {
      */
     public static final long DEFAULT_CONNECTION_TTL = -1;
 
+    /**
+     * The default maximum number of open HTTP connections per route, i.e. per
+     * endpoint; zero means the same as the maximum number of connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 0;
+
+    /**
+     * The default maximum idle time (in milliseconds) of a connection in the
+     * connection pool.
+     */
+    public static final long DEFAULT_CONNECTION_MAX_IDLE_MILLIS = 60 * 1000;
+
+    /**
+     * The default on whether to unmarshall XML responses from an
+     * XMLStreamReader rather than an XMLEventReader.
+     */
+    public static final boolean DEFAULT_USE_XML_STREAM_READER = false;
+
+    /**
+     * The default on whether to cache response metadata for diagnostic
+     * purposes.
+     */
+    public static final boolean DEFAULT_CACHE_RESPONSE_METADATA = true;
+
+    /**
+     * The default maximum number of entries in the response metadata cache.
+     */
+    public static final int DEFAULT_RESPONSE_METADATA_CACHE_SIZE = 50;
+
+    /**
+     * The default capacity of the retry quota, or zero if retries are not
+     * limited by a retry quota.
+     *
+     * @see RetryQuota
+     */
+    public static final int DEFAULT_RETRY_QUOTA_CAPACITY = 0;
+
+    /**
+     * The default on whether to adapt the client send rate to throttling
+     * responses.
+     *
+     * @see AdaptiveRateLimiter
+     */
+    public static final boolean DEFAULT_USE_ADAPTIVE_RATE_LIMITING = false;
+
+    /**
+     * The default time to live (in milliseconds) of the DNS resolution results
+     * cached by the SDK; zero means no caching beyond that of the JVM.
+     */
+    public static final long DEFAULT_DNS_CACHE_TTL_MILLIS = 0;
+
+    /**
+     * The default maximum number of cached TLS sessions; zero means the JVM
+     * default.
+     */
+    public static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 0;
+
+    /**
+     * The default timeout (in seconds) of the cached TLS sessions; zero means
+     * the JVM default.
+     */
+    public static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 0;
+
     /** The HTTP user agent header passed with all HTTP requests. */
     private String userAgent = DEFAULT_USER_AGENT;
 
@@ -123,6 +188,20 @@ public class ClientConfiguration {
     /** The maximum number of open HTTP connections. */
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
 
+    /**
+     * The maximum number of open HTTP connections per route, so that a single
+     * busy endpoint cannot starve the others; zero means the same as
+     * {@link #maxConnections}.
+     */
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    /**
+     * The maximum amount of time (in milliseconds) that a connection can sit
+     * idle in the connection pool before being closed; shortened per
+     * connection to the keep-alive timeout advertised by the server, if any.
+     */
+    private long connectionMaxIdleMillis = DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+
     /**
      * The amount of time to wait (in milliseconds) for data to be transfered
      * over an established, open connection before the connection is timed out.
@@ -173,11 +252,61 @@ public class ClientConfiguration {
      */
     private long connectionTTL = DEFAULT_CONNECTION_TTL;
 
+    /**
+     * Optional whether XML responses are unmarshalled from the cursor of an
+     * XMLStreamReader, which avoids allocating an event object for every tag
+     * and text node of the response, rather than from an XMLEventReader.
+     */
+    private boolean useXmlStreamReader = DEFAULT_USE_XML_STREAM_READER;
+
+    /**
+     * Optional whether to cache the response metadata of recently executed
+     * requests, for retrieval through the clients' getCachedResponseMetadata
+     * method.
+     */
+    private boolean cacheResponseMetadata = DEFAULT_CACHE_RESPONSE_METADATA;
+
+    /** The maximum number of entries in the response metadata cache. */
+    private int responseMetadataCacheSize = DEFAULT_RESPONSE_METADATA_CACHE_SIZE;
+
+    /**
+     * The capacity of the retry quota shared by the requests of a client, or
+     * zero if retries are only limited by the retry policy.
+     */
+    private int retryQuotaCapacity = DEFAULT_RETRY_QUOTA_CAPACITY;
+
+    /**
+     * Optional whether to rate limit the requests of a client once throttling
+     * responses are received.
+     */
+    private boolean useAdaptiveRateLimiting = DEFAULT_USE_ADAPTIVE_RATE_LIMITING;
+
+    /**
+     * The time to live (in milliseconds) of the DNS resolution results cached
+     * process-wide for the clients, or zero if host names are resolved by the
+     * JVM on each connection.
+     */
+    private long dnsCacheTtlMillis = DEFAULT_DNS_CACHE_TTL_MILLIS;
+
+    /**
+     * The maximum number of TLS sessions cached for resumption, process-wide,
+     * or zero for the JVM default.
+     */
+    private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+
+    /**
+     * The timeout (in seconds) of the TLS sessions cached for resumption, or
+     * zero for the JVM default.
+     */
+    private int tlsSessionTimeoutSeconds = DEFAULT_TLS_SESSION_TIMEOUT_SECONDS;
+
     public ClientConfiguration() {}
 
     public ClientConfiguration(ClientConfiguration other) {
         this.connectionTimeout           = other.connectionTimeout;
         this.maxConnections              = other.maxConnections;
+        this.maxConnectionsPerRoute      = other.maxConnectionsPerRoute;
+        this.connectionMaxIdleMillis     = other.connectionMaxIdleMillis;
         this.maxErrorRetry               = other.maxErrorRetry;
         this.retryPolicy                 = other.retryPolicy;
         this.localAddress                = other.localAddress;
@@ -195,6 +324,14 @@ public class ClientConfiguration {
         this.socketReceiveBufferSizeHint = other.socketReceiveBufferSizeHint;
         this.socketSendBufferSizeHint    = other.socketSendBufferSizeHint;
         this.signerOverride              = other.signerOverride;
+        this.useXmlStreamReader          = other.useXmlStreamReader;
+        this.cacheResponseMetadata       = other.cacheResponseMetadata;
+        this.responseMetadataCacheSize   = other.responseMetadataCacheSize;
+        this.retryQuotaCapacity          = other.retryQuotaCapacity;
+        this.useAdaptiveRateLimiting     = other.useAdaptiveRateLimiting;
+        this.dnsCacheTtlMillis           = other.dnsCacheTtlMillis;
+        this.tlsSessionCacheSize         = other.tlsSessionCacheSize;
+        this.tlsSessionTimeoutSeconds    = other.tlsSessionTimeoutSeconds;
     }
 
     /**
@@ -288,6 +425,48 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the maximum number of allowed open HTTP connections per route,
+     * i.e. per endpoint; or zero if it is the same as the maximum number of
+     * allowed open HTTP connections.
+     *
+     * @return The maximum number of allowed open HTTP connections per route.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections per route, i.e.
+     * per endpoint, so that a client talking to many endpoints (e.g. many
+     * Amazon S3 buckets) doesn't let one busy endpoint take all the
+     * connections. Zero, the default, means the same as the maximum number of
+     * allowed open HTTP connections.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of allowed open HTTP connections per
+     *            route.
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 0)
+            throw new IllegalArgumentException("maxConnectionsPerRoute must not be negative");
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections per route and
+     * returns the updated ClientConfiguration object.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of allowed open HTTP connections per
+     *            route.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        return this;
+    }
+
     /**
      * Returns the HTTP user agent header to send with all requests.
      *
@@ -1051,4 +1230,308 @@ public class ClientConfiguration {
         setConnectionTTL(connectionTTL);
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the maximum amount of time (in milliseconds) that a connection
+     * can sit idle in the connection pool before being closed.
+     */
+    public long getConnectionMaxIdleMillis() {
+        return connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the maximum amount of time (in milliseconds) that a connection can
+     * sit idle in the connection pool before being closed. A connection to a
+     * server that advertises a shorter keep-alive timeout is closed when that
+     * timeout elapses instead. By default, it is set to 60 seconds.
+     */
+    public void setConnectionMaxIdleMillis(long connectionMaxIdleMillis) {
+        if (connectionMaxIdleMillis <= 0)
+            throw new IllegalArgumentException("connectionMaxIdleMillis must be positive");
+        this.connectionMaxIdleMillis = connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the maximum amount of time (in milliseconds) that a connection can
+     * sit idle in the connection pool before being closed.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withConnectionMaxIdleMillis(long connectionMaxIdleMillis) {
+        setConnectionMaxIdleMillis(connectionMaxIdleMillis);
+        return this;
+    }
+
+    /**
+     * Checks if XML responses are unmarshalled from the cursor of an
+     * XMLStreamReader rather than from an XMLEventReader.
+     *
+     * @return if XML responses are unmarshalled from an XMLStreamReader
+     */
+    public boolean useXmlStreamReader() {
+        return useXmlStreamReader;
+    }
+
+    /**
+     * Sets whether XML responses are unmarshalled from the cursor of an
+     * XMLStreamReader rather than from an XMLEventReader. The stream reader
+     * avoids allocating an event object for every tag and text node, which
+     * substantially reduces the allocation rate for large responses. By
+     * default, an XMLEventReader is used.
+     *
+     * @param use whether XML responses are unmarshalled from an XMLStreamReader
+     */
+    public void setUseXmlStreamReader(boolean use) {
+        this.useXmlStreamReader = use;
+    }
+
+    /**
+     * Sets whether XML responses are unmarshalled from the cursor of an
+     * XMLStreamReader rather than from an XMLEventReader.
+     *
+     * @param use whether XML responses are unmarshalled from an XMLStreamReader
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withXmlStreamReader(boolean use) {
+        setUseXmlStreamReader(use);
+        return this;
+    }
+
+    /**
+     * Checks if the response metadata of recently executed requests is cached
+     * for diagnostic purposes.
+     *
+     * @return if response metadata is cached
+     */
+    public boolean getCacheResponseMetadata() {
+        return cacheResponseMetadata;
+    }
+
+    /**
+     * Sets whether the response metadata of recently executed requests is
+     * cached for diagnostic purposes, i.e. for retrieval through the clients'
+     * getCachedResponseMetadata method. Latency sensitive clients that never
+     * look at the cached metadata can turn this off. Enabled by default.
+     *
+     * @param shouldCache whether response metadata is cached
+     */
+    public void setCacheResponseMetadata(boolean shouldCache) {
+        this.cacheResponseMetadata = shouldCache;
+    }
+
+    /**
+     * Sets whether the response metadata of recently executed requests is
+     * cached for diagnostic purposes.
+     *
+     * @param shouldCache whether response metadata is cached
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withCacheResponseMetadata(boolean shouldCache) {
+        setCacheResponseMetadata(shouldCache);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of entries in the response metadata cache.
+     */
+    public int getResponseMetadataCacheSize() {
+        return responseMetadataCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of entries in the response metadata cache. Once
+     * the cache is full, the oldest entry is aged out as new entries are
+     * added. A size of zero or less turns the cache off, just like
+     * {@link #setCacheResponseMetadata(boolean)}.
+     *
+     * @param responseMetadataCacheSize
+     *            The maximum number of entries in the response metadata cache.
+     */
+    public void setResponseMetadataCacheSize(int responseMetadataCacheSize) {
+        this.responseMetadataCacheSize = responseMetadataCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of entries in the response metadata cache.
+     *
+     * @param responseMetadataCacheSize
+     *            The maximum number of entries in the response metadata cache.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withResponseMetadataCacheSize(int responseMetadataCacheSize) {
+        setResponseMetadataCacheSize(responseMetadataCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns the capacity of the retry quota shared by the requests of a
+     * client, or zero if retries are only limited by the retry policy.
+     */
+    public int getRetryQuotaCapacity() {
+        return retryQuotaCapacity;
+    }
+
+    /**
+     * Sets the capacity of the retry quota shared by the requests of a client.
+     * Each retry draws from the quota, and successful requests refill it; once
+     * the quota is exhausted, failed requests are not retried until enough
+     * requests succeed, which keeps retries from piling up on a service that
+     * is already failing. A capacity of zero (the default) turns the quota
+     * off. {@link RetryQuota#DEFAULT_CAPACITY} is a reasonable capacity for
+     * most clients.
+     *
+     * @param retryQuotaCapacity
+     *            The capacity of the retry quota, in tokens.
+     *
+     * @see RetryQuota
+     */
+    public void setRetryQuotaCapacity(int retryQuotaCapacity) {
+        this.retryQuotaCapacity = retryQuotaCapacity;
+    }
+
+    /**
+     * Sets the capacity of the retry quota shared by the requests of a client.
+     *
+     * @param retryQuotaCapacity
+     *            The capacity of the retry quota, in tokens.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withRetryQuotaCapacity(int retryQuotaCapacity) {
+        setRetryQuotaCapacity(retryQuotaCapacity);
+        return this;
+    }
+
+    /**
+     * Checks if the client send rate adapts to throttling responses.
+     *
+     * @return if adaptive rate limiting is used
+     */
+    public boolean useAdaptiveRateLimiting() {
+        return useAdaptiveRateLimiting;
+    }
+
+    /**
+     * Sets whether the client send rate adapts to throttling responses. Once
+     * a throttling response is received, the requests of the client are
+     * delayed as needed to stay within a send rate that is lowered on every
+     * throttling response and raised back progressively otherwise. Disabled
+     * by default.
+     *
+     * @param use whether adaptive rate limiting is used
+     *
+     * @see AdaptiveRateLimiter
+     */
+    public void setUseAdaptiveRateLimiting(boolean use) {
+        this.useAdaptiveRateLimiting = use;
+    }
+
+    /**
+     * Sets whether the client send rate adapts to throttling responses.
+     *
+     * @param use whether adaptive rate limiting is used
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withAdaptiveRateLimiting(boolean use) {
+        setUseAdaptiveRateLimiting(use);
+        return this;
+    }
+
+    /**
+     * Returns the time to live (in milliseconds) of the DNS resolution results
+     * cached by the SDK, or zero if not cached beyond the JVM.
+     */
+    public long getDnsCacheTtlMillis() {
+        return dnsCacheTtlMillis;
+    }
+
+    /**
+     * Sets the time to live (in milliseconds) of the DNS resolution results
+     * cached by the SDK. The cache is shared by all the clients configured
+     * with the same time to live, and returns the addresses of a host in
+     * round-robin order so that connections are spread across all of them.
+     * Zero, the default, disables the cache, in which case host names are
+     * resolved by the JVM on each connection.
+     */
+    public void setDnsCacheTtlMillis(long dnsCacheTtlMillis) {
+        if (dnsCacheTtlMillis < 0)
+            throw new IllegalArgumentException("dnsCacheTtlMillis must not be negative");
+        this.dnsCacheTtlMillis = dnsCacheTtlMillis;
+    }
+
+    /**
+     * Sets the time to live (in milliseconds) of the DNS resolution results
+     * cached by the SDK, and returns the updated ClientConfiguration object.
+     *
+     * @see #setDnsCacheTtlMillis(long)
+     */
+    public ClientConfiguration withDnsCacheTtlMillis(long dnsCacheTtlMillis) {
+        setDnsCacheTtlMillis(dnsCacheTtlMillis);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of TLS sessions cached for resumption, or
+     * zero for the JVM default.
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions cached for resumption. The TLS
+     * sessions are cached process-wide, and can be resumed by the connections
+     * of any client with the same TLS session cache configuration. Zero, the
+     * default, means the JVM default SSL context and its session cache.
+     */
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        if (tlsSessionCacheSize < 0)
+            throw new IllegalArgumentException("tlsSessionCacheSize must not be negative");
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions cached for resumption, and
+     * returns the updated ClientConfiguration object.
+     *
+     * @see #setTlsSessionCacheSize(int)
+     */
+    public ClientConfiguration withTlsSessionCacheSize(int tlsSessionCacheSize) {
+        setTlsSessionCacheSize(tlsSessionCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns the timeout (in seconds) of the TLS sessions cached for
+     * resumption, or zero for the JVM default.
+     */
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+
+    /**
+     * Sets the timeout (in seconds) of the TLS sessions cached for resumption,
+     * after which a new connection performs a full handshake. Zero, the
+     * default, means the JVM default.
+     *
+     * @see #setTlsSessionCacheSize(int)
+     */
+    public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        if (tlsSessionTimeoutSeconds < 0)
+            throw new IllegalArgumentException("tlsSessionTimeoutSeconds must not be negative");
+        this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+    }
+
+    /**
+     * Sets the timeout (in seconds) of the TLS sessions cached for resumption,
+     * and returns the updated ClientConfiguration object.
+     */
+    public ClientConfiguration withTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        setTlsSessionTimeoutSeconds(tlsSessionTimeoutSeconds);
+        return this;
+    }
+}
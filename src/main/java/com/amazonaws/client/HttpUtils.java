@@ -23,8 +23,6 @@ import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
@@ -50,26 +48,6 @@ public class HttpUtils {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
 
-    /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
-     */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
-    static {
-        StringBuilder pattern = new StringBuilder();
-
-        pattern
-            .append(Pattern.quote("+"))
-            .append("|")
-            .append(Pattern.quote("*"))
-            .append("|")
-            .append(Pattern.quote("%7E"))
-            .append("|")
-            .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
-    }
-
     /**
      * Encode a string for use in the path of a URL; uses URLEncoder.encode,
      * (which encodes a string for use in the query portion of a URL), then
@@ -88,28 +66,43 @@ public class HttpUtils {
 
         try {
             String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
-
-                if ("+".equals(replacement)) {
+            final int length = encoded.length();
+
+            // Fix up the sequences URLEncoder gets wrong per the RFC in a
+            // single scan; the buffer is only allocated if anything changes.
+            StringBuilder buffer = null;
+            int copied = 0;
+            for (int i = 0; i < length; i++) {
+                char c = encoded.charAt(i);
+                String replacement = null;
+                int consumed = 1;
+
+                if (c == '+') {
                     replacement = "%20";
-                } else if ("*".equals(replacement)) {
+                } else if (c == '*') {
                     replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
+                } else if (c == '%' && encoded.startsWith("%7E", i)) {
                     replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
+                    consumed = 3;
+                } else if (c == '%' && path && encoded.startsWith("%2F", i)) {
                     replacement = "/";
+                    consumed = 3;
                 }
 
-                matcher.appendReplacement(buffer, replacement);
+                if (replacement != null) {
+                    if (buffer == null) {
+                        buffer = new StringBuilder(length + 16);
+                    }
+                    buffer.append(encoded, copied, i).append(replacement);
+                    copied = i + consumed;
+                    i += consumed - 1;
+                }
             }
 
-            matcher.appendTail(buffer);
-            return buffer.toString();
+            if (buffer == null) {
+                return encoded;
+            }
+            return buffer.append(encoded, copied, length).toString();
 
         } catch (UnsupportedEncodingException ex) {
             throw new RuntimeException(ex);
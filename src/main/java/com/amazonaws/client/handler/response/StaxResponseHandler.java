@@ -21,6 +21,7 @@ import java.util.Map;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -48,8 +49,23 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
-    /** Shared factory for creating XML event readers */
-    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    /**
+     * Per-thread factory for creating XML event and stream readers; factories
+     * aren't guaranteed to be thread safe, and a per-thread instance avoids
+     * serializing all response parsing on a single lock.
+     */
+    private static final ThreadLocal<XMLInputFactory> xmlInputFactory = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            return XMLInputFactory.newInstance();
+        }
+    };
+
+    /**
+     * Whether to unmarshall from the cursor of an {@link XMLStreamReader}
+     * rather than from the event objects of an {@link XMLEventReader}.
+     */
+    private final boolean useXmlStreamReader;
 
 
     /**
@@ -62,7 +78,27 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
      *            The StAX unmarshaller to use on the response.
      */
     public StaxResponseHandler(Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller) {
+        this(responseUnmarshaller, false);
+    }
+
+    /**
+     * Constructs a new response handler that will use the specified StAX
+     * unmarshaller to unmarshall the service response, optionally reading the
+     * response from the cursor of an {@link XMLStreamReader}, which avoids
+     * allocating an event object for every tag and text node.
+     *
+     * @param responseUnmarshaller
+     *            The StAX unmarshaller to use on the response.
+     * @param useXmlStreamReader
+     *            Whether to unmarshall from an XMLStreamReader rather than an
+     *            XMLEventReader.
+     *
+     * @see com.amazonaws.client.ClientConfiguration#useXmlStreamReader()
+     */
+    public StaxResponseHandler(Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller,
+            boolean useXmlStreamReader) {
         this.responseUnmarshaller = responseUnmarshaller;
+        this.useXmlStreamReader = useXmlStreamReader;
 
         /*
          * Even if the invoked operation just returns null, we still need an
@@ -85,14 +121,19 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         InputStream content = response.getContent();
         if (content == null) content = new ByteArrayInputStream("<eof/>".getBytes());
 
-        XMLEventReader eventReader;
-        synchronized (xmlInputFactory) {
-            eventReader = xmlInputFactory.createXMLEventReader(content);
+        XMLEventReader eventReader = null;
+        XMLStreamReader streamReader = null;
+        StaxUnmarshallerContext unmarshallerContext;
+        if (useXmlStreamReader) {
+            streamReader = xmlInputFactory.get().createXMLStreamReader(content);
+            unmarshallerContext = new StaxUnmarshallerContext(streamReader, response.getHeaders());
+        } else {
+            eventReader = xmlInputFactory.get().createXMLEventReader(content);
+            unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
         }
 
         try {
             AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
-            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
             unmarshallerContext.registerMetadataExpression("ResponseMetadata/RequestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             unmarshallerContext.registerMetadataExpression("requestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             registerAdditionalMetadataExpressions(unmarshallerContext);
@@ -114,7 +155,8 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             return awsResponse;
         } finally {
             try {
-                eventReader.close();
+                if (streamReader != null) streamReader.close();
+                if (eventReader != null) eventReader.close();
             } catch (XMLStreamException e) {
                 log.warn("Error closing xml parser", e);
             }
@@ -14,8 +14,8 @@
  */
 package com.amazonaws.client.http;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -39,17 +39,29 @@ import org.apache.http.conn.ClientConnectionManager;
  * cleaning up old/inactive HTTP connections, we'd see more IO exceptions when
  * stale connections (i.e. closed on the AWS side) are left in the connection
  * pool, and requests grab one of them to begin executing a request.
+ * <p>
+ * Each connection manager is registered with the maximum idle time of its
+ * connections, and the reaper wakes up at half of the shortest one (between
+ * one second and one minute). Every pass also closes the connections whose
+ * keep-alive has expired, i.e. whose server advertised a keep-alive timeout
+ * shorter than the maximum idle time.
  */
 public final class IdleConnectionReaper extends Thread {
 
-    /** The period between invocations of the idle connection reaper. */
+    /** The maximum period between invocations of the idle connection reaper. */
     private static final int PERIOD_MILLISECONDS = 1000 * 60 * 1;
+    /** The minimum period between invocations of the idle connection reaper. */
+    private static final int MIN_PERIOD_MILLISECONDS = 1000;
+    /** The default maximum idle time of the connections of a manager. */
+    private static final long DEFAULT_MAX_IDLE_MILLISECONDS = 1000 * 60 * 1;
 
     /**
-     * The list of registered connection managers, whose connections
-     * will be periodically checked and idle connections closed.
+     * The registered connection managers, whose connections will be
+     * periodically checked and idle connections closed, with the maximum idle
+     * time in milliseconds of their connections.
      */
-    private static final ArrayList<ClientConnectionManager> connectionManagers = new ArrayList<ClientConnectionManager>();
+    private static final LinkedHashMap<ClientConnectionManager, Long> connectionManagers =
+            new LinkedHashMap<ClientConnectionManager, Long>();
     /**
      * Set to true when shutting down the reaper;  Once set to true, this
      * flag is never set back to false.
@@ -74,12 +86,27 @@ public final class IdleConnectionReaper extends Thread {
      * @return true if the connection manager has been successfully registered;
      * false otherwise.
      */
-    public static synchronized boolean registerConnectionManager(ClientConnectionManager connectionManager) {
+    public static boolean registerConnectionManager(ClientConnectionManager connectionManager) {
+        return registerConnectionManager(connectionManager, DEFAULT_MAX_IDLE_MILLISECONDS);
+    }
+
+    /**
+     * Registers the given connection manager with this reaper, closing its
+     * connections that have been idle for longer than the given time.
+     *
+     * @return true if the connection manager has been successfully registered;
+     * false otherwise.
+     */
+    public static synchronized boolean registerConnectionManager(
+            ClientConnectionManager connectionManager, long maxIdleMillis) {
+        if (maxIdleMillis <= 0)
+            throw new IllegalArgumentException();
         if (instance == null) {
             instance = new IdleConnectionReaper();
             instance.start();
         }
-        return connectionManagers.add(connectionManager);
+        connectionManagers.put(connectionManager, maxIdleMillis);
+        return true;
     }
 
     /**
@@ -90,7 +117,7 @@ public final class IdleConnectionReaper extends Thread {
      * false otherwise.
      */
     public static synchronized boolean removeConnectionManager(ClientConnectionManager connectionManager) {
-        boolean b = connectionManagers.remove(connectionManager);
+        boolean b = connectionManagers.remove(connectionManager) != null;
         if (connectionManagers.isEmpty())
             shutdown();
         return b;
@@ -109,22 +136,24 @@ public final class IdleConnectionReaper extends Thread {
                 return;
             }
             try {
-                Thread.sleep(PERIOD_MILLISECONDS);
+                Thread.sleep(periodMillis());
 
-                // Copy the list of managed ConnectionManagers to avoid possible
+                // Copy the managed ConnectionManagers to avoid possible
                 // ConcurrentModificationExceptions if registerConnectionManager or
                 // removeConnectionManager are called while we're iterating (rather
                 // than block/lock while this loop executes).
-                List<ClientConnectionManager> connectionManagers = null;
+                Map<ClientConnectionManager, Long> connectionManagers = null;
                 synchronized (IdleConnectionReaper.class) {
-                    connectionManagers = (List<ClientConnectionManager>)IdleConnectionReaper.connectionManagers.clone();
+                    connectionManagers = (Map<ClientConnectionManager, Long>)IdleConnectionReaper.connectionManagers.clone();
                 }
-                for (ClientConnectionManager connectionManager : connectionManagers) {
+                for (Map.Entry<ClientConnectionManager, Long> entry : connectionManagers.entrySet()) {
                     // When we release connections, the connection manager leaves them
                     // open so they can be reused.  We want to close out any idle
                     // connections so that they don't sit around in CLOSE_WAIT.
+                    ClientConnectionManager connectionManager = entry.getKey();
                     try {
-                        connectionManager.closeIdleConnections(60, TimeUnit.SECONDS);
+                        connectionManager.closeExpiredConnections();
+                        connectionManager.closeIdleConnections(entry.getValue(), TimeUnit.MILLISECONDS);
                     } catch (Exception t) {
                         log.warn("Unable to close idle connections", t);
                     }
@@ -135,6 +164,17 @@ public final class IdleConnectionReaper extends Thread {
         }
     }
 
+    /**
+     * Returns the period until the next pass, i.e. half of the shortest
+     * maximum idle time of the registered connection managers.
+     */
+    private static synchronized long periodMillis() {
+        long period = PERIOD_MILLISECONDS;
+        for (Long maxIdleMillis : connectionManagers.values())
+            period = Math.min(period, maxIdleMillis / 2);
+        return Math.max(period, MIN_PERIOD_MILLISECONDS);
+    }
+
     /**
      * Shuts down the thread, allowing the class and instance to be collected.
      * <p>
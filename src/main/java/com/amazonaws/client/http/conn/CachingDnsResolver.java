@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.http.conn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+/**
+ * A DNS resolver that caches the addresses of each host name for a fixed time
+ * to live, and returns them rotated by one position on every call, so that the
+ * connections to a host with multiple addresses are spread across all of
+ * them. As the http client tries the addresses in order, the other addresses
+ * remain available as fallbacks if a connection attempt fails.
+ * <p>
+ * Failed resolutions are not cached. The number of cached host names is
+ * bounded; beyond it, the expired entries are evicted and, if still full, the
+ * new host names are resolved without caching.
+ * <p>
+ * The resolvers returned by {@link #getShared(long)} are shared by all the
+ * clients configured with the same time to live.
+ */
+@ThreadSafe
+public class CachingDnsResolver implements DnsResolver {
+    /** The maximum number of cached host names. */
+    static final int MAX_HOSTS = 1024;
+    private static final ConcurrentMap<Long, CachingDnsResolver> shared =
+            new ConcurrentHashMap<Long, CachingDnsResolver>();
+
+    private final DnsResolver resolver;
+    private final long ttlNanos;
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * @param resolver
+     *            the underlying resolver
+     * @param ttlMillis
+     *            the time to live in milliseconds of the cached addresses
+     */
+    public CachingDnsResolver(DnsResolver resolver, long ttlMillis) {
+        if (resolver == null || ttlMillis <= 0)
+            throw new IllegalArgumentException();
+        this.resolver = resolver;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Returns the process-wide resolver caching the addresses resolved by the
+     * system default resolver for the given time to live.
+     */
+    public static CachingDnsResolver getShared(long ttlMillis) {
+        Long key = Long.valueOf(ttlMillis);
+        CachingDnsResolver resolver = shared.get(key);
+        if (resolver == null) {
+            resolver = new CachingDnsResolver(new SystemDefaultDnsResolver(), ttlMillis);
+            CachingDnsResolver existing = shared.putIfAbsent(key, resolver);
+            if (existing != null)
+                resolver = existing;
+        }
+        return resolver;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        final long now = System.nanoTime();
+        Entry entry = cache.get(host);
+        if (entry == null || entry.isExpired(now, ttlNanos)) {
+            entry = new Entry(resolver.resolve(host), now);
+            if (cache.size() >= MAX_HOSTS)
+                evictExpired(now);
+            if (cache.size() < MAX_HOSTS)
+                cache.put(host, entry);
+        }
+        return entry.nextAddresses();
+    }
+
+    /** Clears all the cached addresses. */
+    public void clear() {
+        cache.clear();
+    }
+
+    private void evictExpired(long now) {
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext(); ) {
+            if (it.next().isExpired(now, ttlNanos))
+                it.remove();
+        }
+    }
+
+    /** The resolved addresses of a host name. */
+    private static final class Entry {
+        private final InetAddress[] addresses;
+        private final long resolvedNano;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Entry(InetAddress[] addresses, long resolvedNano) {
+            this.addresses = addresses;
+            this.resolvedNano = resolvedNano;
+        }
+
+        boolean isExpired(long now, long ttlNanos) {
+            return now - resolvedNano >= ttlNanos;
+        }
+
+        /** Returns a copy of the addresses, rotated by one more position. */
+        InetAddress[] nextAddresses() {
+            final int n = addresses.length;
+            InetAddress[] copy = new InetAddress[n];
+            if (n == 0)
+                return copy;
+            final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % n;
+            System.arraycopy(addresses, start, copy, 0, n - start);
+            System.arraycopy(addresses, 0, copy, n - start, start);
+            return copy;
+        }
+    }
+}
@@ -25,8 +25,16 @@ import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.ClientConnectionRequest;
 import org.apache.http.pool.ConnPoolControl;
 
+import com.amazonaws.utility.TimingInfo;
+
 public class ClientConnectionManagerFactory {
     private static final Log log = LogFactory.getLog(ClientConnectionManagerFactory.class);
+    /**
+     * The start and end times of the last connection lease of the current
+     * thread through a wrapped connection manager, and whether it is yet to
+     * be taken (non-zero).
+     */
+    private static final ThreadLocal<long[]> lastLease = new ThreadLocal<long[]>();
 
     /**
      * Returns a wrapped instance of {@link ClientConnectionManager}
@@ -56,6 +64,29 @@ public class ClientConnectionManagerFactory {
                 new Handler(orig));
     }
 
+    /** Records the times of a connection lease by the current thread. */
+    static void recordLease(long startNano, long endNano) {
+        long[] lease = lastLease.get();
+        if (lease == null)
+            lastLease.set(lease = new long[3]);
+        lease[0] = startNano;
+        lease[1] = endNano;
+        lease[2] = 1;
+    }
+
+    /**
+     * Returns the timing of the last connection lease by the current thread,
+     * i.e. the time spent waiting for a pooled connection, and clears it; or
+     * null if the thread hasn't leased a connection since the previous call.
+     */
+    public static TimingInfo takeLeaseTiming() {
+        long[] lease = lastLease.get();
+        if (lease == null || lease[2] == 0)
+            return null;
+        lease[2] = 0;
+        return TimingInfo.unmodifiableTimingInfo(lease[0], Long.valueOf(lease[1]));
+    }
+
     /**
      * The handler behind the dynamic proxy for {@link ClientConnectionManager}
      * so that the any returned instance of {@link ClientConnectionRequest} can
@@ -66,9 +66,11 @@ class ClientConnectionRequestFactory {
                 if ("getConnection".equals(method.getName())) {
                     ServiceLatencyProvider latencyProvider = new ServiceLatencyProvider(
                             AWSServiceMetrics.HttpClientGetConnectionTime);
+                    final long startNano = System.nanoTime();
                     try {
                         return method.invoke(orig, args);
                     } finally {
+                        ClientConnectionManagerFactory.recordLease(startNano, System.nanoTime());
                         AwsSdkMetrics.getServiceMetricCollector()
                                 .collectLatency(latencyProvider.endTiming());
                     }
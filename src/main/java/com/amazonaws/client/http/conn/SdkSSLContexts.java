@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.http.conn;
+
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * Provides the SSL contexts of the SDK clients. The TLS sessions negotiated
+ * through an SSL context are cached by its client session context, and can be
+ * resumed by any connection created from the same context to the same host;
+ * so the clients share a single context per configuration of the session
+ * cache, process-wide, rather than each client having its own.
+ */
+@ThreadSafe
+public class SdkSSLContexts {
+    /* The shared contexts by session cache size and timeout. */
+    private static final Map<String, SSLContext> contexts = new HashMap<String, SSLContext>();
+
+    private SdkSSLContexts() {}
+
+    /**
+     * Returns the process-wide SSL context with the given TLS session cache
+     * configuration. If neither is specified, this is the JVM default SSL
+     * context, whose session cache is already shared process-wide; otherwise
+     * it is an SDK specific TLS context with the default trust managers and
+     * no client certificate.
+     *
+     * @param sessionCacheSize
+     *            the maximum number of cached TLS sessions, or zero for the
+     *            JVM default
+     * @param sessionTimeoutSeconds
+     *            the time in seconds after which a cached TLS session can no
+     *            longer be resumed, or zero for the JVM default
+     */
+    public static synchronized SSLContext getSSLContext(int sessionCacheSize,
+            int sessionTimeoutSeconds) throws GeneralSecurityException {
+        if (sessionCacheSize <= 0 && sessionTimeoutSeconds <= 0)
+            return SSLContext.getDefault();
+        String key = sessionCacheSize + ":" + sessionTimeoutSeconds;
+        SSLContext context = contexts.get(key);
+        if (context == null) {
+            context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            SSLSessionContext sessions = context.getClientSessionContext();
+            if (sessionCacheSize > 0)
+                sessions.setSessionCacheSize(sessionCacheSize);
+            if (sessionTimeoutSeconds > 0)
+                sessions.setSessionTimeout(sessionTimeoutSeconds);
+            contexts.put(key, context);
+        }
+        return context;
+    }
+}
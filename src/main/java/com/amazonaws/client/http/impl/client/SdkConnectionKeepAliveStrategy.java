@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.http.impl.client;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Keeps a connection alive in the pool for the keep-alive timeout advertised
+ * by the server in the response, if any, less a safety margin so that the
+ * connection is evicted before the server closes it; and for at most the
+ * configured maximum idle time. The pooled connection expires accordingly,
+ * so that it is never leased once stale and is closed by the
+ * {@link com.amazonaws.client.http.IdleConnectionReaper}.
+ */
+@ThreadSafe
+public class SdkConnectionKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+    /** The maximum safety margin before the server keep-alive timeout. */
+    private static final long MAX_MARGIN_MILLIS = 1000;
+
+    private final ConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+    private final long maxIdleMillis;
+
+    public SdkConnectionKeepAliveStrategy(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    @Override
+    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long serverMillis = serverStrategy.getKeepAliveDuration(response, context);
+        if (serverMillis <= 0)
+            return maxIdleMillis;
+        long millis = serverMillis - Math.min(serverMillis / 4, MAX_MARGIN_MILLIS);
+        return Math.min(Math.max(millis, 1), maxIdleMillis);
+    }
+}
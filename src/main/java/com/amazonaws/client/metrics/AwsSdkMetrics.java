@@ -30,8 +30,10 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.SDKGlobalConfiguration;
 import com.amazonaws.auth.PropertiesCredentials;
 import com.amazonaws.authprovider.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.client.metrics.jmx.spi.LatencyHistogramMBeanRegistry;
 import com.amazonaws.client.metrics.jmx.spi.SdkMBeanRegistry;
 import com.amazonaws.client.regions.Regions;
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.credential.AWSCredentials;
 import com.amazonaws.credential.AWSCredentialsProvider;
 import com.amazonaws.network.metrics.util.AWSServiceMetrics;
@@ -77,6 +79,8 @@ public enum AwsSdkMetrics {
     public static final String DEFAULT_METRIC_NAMESPACE = "AWSSDK/Java";
     private static final String MBEAN_OBJECT_NAME =
         "com.amazonaws.management:type=" + AwsSdkMetrics.class.getSimpleName();
+    private static final String LATENCY_HISTOGRAM_MBEAN_OBJECT_NAME =
+        "com.amazonaws.management:type=LatencyHistograms";
     /**
      * Used to enable the use of a single metric namespace for all levels of SDK
      * generated CloudWatch metrics such as JVM level, host level, etc.
@@ -343,6 +347,33 @@ public enum AwsSdkMetrics {
         SdkMBeanRegistry registry = SdkMBeanRegistry.Factory.getMBeanRegistry();
         return registry.unregisterMBean(MBEAN_OBJECT_NAME);
     }
+
+    /**
+     * Registers the given latency histograms, typically a
+     * {@link com.amazonaws.client.metrics.support.LatencyHistogramCollector},
+     * for JMX access.
+     *
+     * @return true if the registeration succeeded; false otherwise, e.g. if
+     *         latency histograms are already registered, or the MBean
+     *         registry doesn't support latency histograms.
+     */
+    public static boolean registerLatencyHistogramMBean(LatencyHistogramMBean mbean) {
+        SdkMBeanRegistry registry = SdkMBeanRegistry.Factory.getMBeanRegistry();
+        if (!(registry instanceof LatencyHistogramMBeanRegistry))
+            return false;
+        return ((LatencyHistogramMBeanRegistry)registry)
+                .registerLatencyHistogramMBean(LATENCY_HISTOGRAM_MBEAN_OBJECT_NAME, mbean);
+    }
+
+    /**
+     * Unregisters the latency histograms MBean from JMX.
+     *
+     * @return true if the unregisteration succeeded; false otherwise.
+     */
+    public static boolean unregisterLatencyHistogramMBean() {
+        SdkMBeanRegistry registry = SdkMBeanRegistry.Factory.getMBeanRegistry();
+        return registry.unregisterMBean(LATENCY_HISTOGRAM_MBEAN_OBJECT_NAME);
+    }
     /**
      * Returns a non-null request metric collector for the SDK. If no custom
      * request metric collector has previously been specified via
@@ -585,6 +616,14 @@ public enum AwsSdkMetrics {
         return registry.predefinedMetrics();
     }
 
+    /**
+     * Returns the I/O buffer pool shared by the SDK streams, which provides
+     * the pool statistics and allows its size to be tuned.
+     */
+    public static BufferPool getBufferPool() {
+        return BufferPool.getDefault();
+    }
+
     /**
      * Returns the credential provider for the default AWS SDK metric implementation.
      * This method is restricted to calls from the default AWS SDK metric implementation.
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of
+ * HdrHistogram.
+ * <p>
+ * Latencies are recorded in microseconds. Values below 64 microseconds are
+ * recorded exactly; larger values are recorded in buckets of 32 linear
+ * sub-buckets per power of two, i.e. with a relative error of at most about
+ * 3%, up to about 38 hours. Recording a value is a couple of atomic
+ * increments, with no lock and no allocation, so the histogram can be updated
+ * from the request threads; snapshots are computed from the bucket counts by
+ * the reading thread only.
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int MAX_SHIFT = 31;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    /* The cumulative counts at the time of the last interval snapshot. */
+    private long[] lastIntervalCounts = new long[BUCKET_COUNT];
+    private long lastIntervalTotalMicros;
+
+    /** Records a latency given in nanoseconds. */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    /** Records a latency given in microseconds. */
+    public void recordMicros(long micros) {
+        if (micros < 0)
+            micros = 0;
+        counts.incrementAndGet(indexOf(micros));
+        totalMicros.addAndGet(micros);
+    }
+
+    /** Returns a snapshot of all the latencies recorded so far. */
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            c[i] = counts.get(i);
+        return new Snapshot(c, totalMicros.get());
+    }
+
+    /**
+     * Returns a snapshot of the latencies recorded since the previous call to
+     * this method, or since the creation of this histogram for the first call.
+     */
+    public synchronized Snapshot intervalSnapshot() {
+        long[] current = new long[BUCKET_COUNT];
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            current[i] = counts.get(i);
+            interval[i] = current[i] - lastIntervalCounts[i];
+        }
+        long currentTotal = totalMicros.get();
+        Snapshot snapshot = new Snapshot(interval, currentTotal - lastIntervalTotalMicros);
+        lastIntervalCounts = current;
+        lastIntervalTotalMicros = currentTotal;
+        return snapshot;
+    }
+
+    /** Returns the index of the bucket of the given value. */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int)value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        if (shift > MAX_SHIFT)
+            return BUCKET_COUNT - 1;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF
+                + (int)(value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    /** Returns the highest value recorded in the bucket of the given index. */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * An immutable view of the latencies recorded in a histogram. All the
+     * latencies are returned in milliseconds.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+
+        private Snapshot(long[] counts, long totalMicros) {
+            long n = 0;
+            for (long c : counts)
+                n += c;
+            this.counts = counts;
+            this.count = n;
+            this.totalMicros = totalMicros;
+        }
+
+        /** Returns the number of latencies recorded. */
+        public long getCount() {
+            return count;
+        }
+
+        /** Returns the mean latency, or zero if none is recorded. */
+        public double getMean() {
+            return count == 0 ? 0 : totalMicros / (double)count / 1000;
+        }
+
+        /** Returns the maximum latency, or zero if none is recorded. */
+        public double getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0)
+                    return highestValueOf(i) / 1000.0;
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the latency at or below which the given percentage of the
+         * recorded latencies fall, or zero if none is recorded.
+         *
+         * @param percentile
+         *            The percentile, between 0 and 100, e.g. 99.9
+         */
+        public double getValueAtPercentile(double percentile) {
+            if (count == 0)
+                return 0;
+            long target = (long)Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count);
+            if (target < 1)
+                target = 1;
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= target)
+                    return highestValueOf(i) / 1000.0;
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.3f, p50=%.3f, p99=%.3f, p999=%.3f, max=%.3f",
+                    count, getMean(), getValueAtPercentile(50), getValueAtPercentile(99),
+                    getValueAtPercentile(99.9), getMax());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.metrics;
+
+/**
+ * MBean interface for the latency histograms of the AWS SDK requests, by
+ * service operation and latency metric. All latencies are in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+    /**
+     * Returns the names of the operations for which latencies have been
+     * recorded, as "service.operation".
+     */
+    public String[] getOperations();
+
+    /** Returns the names of the latency metrics recorded per operation. */
+    public String[] getMetrics();
+
+    /**
+     * Returns the number of latencies recorded for the given operation and
+     * metric, or zero if there is none.
+     */
+    public long getCount(String operation, String metric);
+
+    /**
+     * Returns the latency at the given percentile (e.g. 99.9) of all the
+     * latencies recorded for the given operation and metric, or zero if there
+     * is none.
+     */
+    public double getLatencyAtPercentile(String operation, String metric, double percentile);
+
+    /**
+     * Returns a summary of all the latencies recorded so far, one line per
+     * operation and metric.
+     */
+    public String getSummary();
+
+    /**
+     * Returns a summary of the latencies recorded since the previous interval
+     * snapshot, one line per operation and metric, and starts a new interval.
+     */
+    public String takeIntervalSnapshot();
+}
@@ -147,4 +147,40 @@ public class MetricAdmin implements MetricAdminMBean {
     public void setSingleMetricNamespace(boolean singleMetricNamespace) {
         AwsSdkMetrics.setSingleMetricNamespace(singleMetricNamespace);
     }
+    @Override
+    public long getBufferPoolMaxPooledBytes() {
+        return AwsSdkMetrics.getBufferPool().getMaxPooledBytes();
+    }
+    @Override
+    public void setBufferPoolMaxPooledBytes(long maxPooledBytes) {
+        AwsSdkMetrics.getBufferPool().setMaxPooledBytes(maxPooledBytes);
+    }
+    @Override
+    public long getBufferPoolMaxPooledDirectBytes() {
+        return AwsSdkMetrics.getBufferPool().getMaxPooledDirectBytes();
+    }
+    @Override
+    public void setBufferPoolMaxPooledDirectBytes(long maxPooledDirectBytes) {
+        AwsSdkMetrics.getBufferPool().setMaxPooledDirectBytes(maxPooledDirectBytes);
+    }
+    @Override
+    public long getBufferPoolPooledBytes() {
+        return AwsSdkMetrics.getBufferPool().getPooledBytes();
+    }
+    @Override
+    public long getBufferPoolPooledDirectBytes() {
+        return AwsSdkMetrics.getBufferPool().getPooledDirectBytes();
+    }
+    @Override
+    public long getBufferPoolAcquireCount() {
+        return AwsSdkMetrics.getBufferPool().getAcquireCount();
+    }
+    @Override
+    public long getBufferPoolHitCount() {
+        return AwsSdkMetrics.getBufferPool().getHitCount();
+    }
+    @Override
+    public long getBufferPoolDiscardCount() {
+        return AwsSdkMetrics.getBufferPool().getDiscardCount();
+    }
 }
\ No newline at end of file
@@ -184,4 +184,57 @@ public interface MetricAdminMBean {
      * Used to set whether a single metric name space is to be used.
      */
     public void setSingleMetricNamespace(boolean singleMetricNamespace);
+
+    /**
+     * Returns the maximum total size in bytes of the heap buffers kept by the
+     * SDK I/O buffer pool.
+     */
+    public long getBufferPoolMaxPooledBytes();
+
+    /**
+     * Sets the maximum total size in bytes of the heap buffers kept by the
+     * SDK I/O buffer pool; zero disables the pooling.
+     */
+    public void setBufferPoolMaxPooledBytes(long maxPooledBytes);
+
+    /**
+     * Returns the maximum total size in bytes of the direct buffers kept by
+     * the SDK I/O buffer pool.
+     */
+    public long getBufferPoolMaxPooledDirectBytes();
+
+    /**
+     * Sets the maximum total size in bytes of the direct buffers kept by the
+     * SDK I/O buffer pool; zero disables the pooling.
+     */
+    public void setBufferPoolMaxPooledDirectBytes(long maxPooledDirectBytes);
+
+    /**
+     * Returns the current total size in bytes of the heap buffers kept by the
+     * SDK I/O buffer pool.
+     */
+    public long getBufferPoolPooledBytes();
+
+    /**
+     * Returns the current total size in bytes of the direct buffers kept by
+     * the SDK I/O buffer pool.
+     */
+    public long getBufferPoolPooledDirectBytes();
+
+    /**
+     * Returns the number of buffers acquired from the SDK I/O buffer pool.
+     */
+    public long getBufferPoolAcquireCount();
+
+    /**
+     * Returns the number of buffers acquired from the SDK I/O buffer pool
+     * that were recycled rather than allocated.
+     */
+    public long getBufferPoolHitCount();
+
+    /**
+     * Returns the number of buffers returned to the SDK I/O buffer pool that
+     * were dropped because they were not poolable or the pool was full.
+     */
+    public long getBufferPoolDiscardCount();
 }
\ No newline at end of file
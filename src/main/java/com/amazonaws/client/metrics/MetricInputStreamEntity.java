@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.network.metrics.util.type.ThroughputMetricType;
 import com.amazonaws.serviceinternal.MetricAware;
 
@@ -75,8 +76,8 @@ public class MetricInputStreamEntity extends InputStreamEntity {
         final InputStream content = getContent();
         final long length = getContentLength();
         InputStream instream = content;
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
         try {
-            byte[] buffer = new byte[BUFFER_SIZE];
             int l;
             if (length < 0) {
                 // consume until EOF
@@ -100,6 +101,7 @@ public class MetricInputStreamEntity extends InputStreamEntity {
                 }
             }
         } finally {
+            BufferPool.getDefault().release(buffer);
             helper.reportMetrics();
             instream.close();
         }
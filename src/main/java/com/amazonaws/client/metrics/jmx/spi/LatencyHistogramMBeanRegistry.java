@@ -0,0 +1,29 @@
+/*
+ * Copyright 2011-2014 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.client.metrics.jmx.spi;
+
+import com.amazonaws.client.metrics.LatencyHistogramMBean;
+
+/**
+ * Optional extension of the {@link SdkMBeanRegistry} SPI, implemented by the
+ * registries that can also register latency histogram MBeans.
+ */
+public interface LatencyHistogramMBeanRegistry {
+    /**
+     * Returns true if the registration of the given latency histogram MBean
+     * under the given object name succeeded; false otherwise.
+     */
+    public boolean registerLatencyHistogramMBean(String objectName, LatencyHistogramMBean mbean);
+}
@@ -43,7 +43,7 @@ public interface SdkMBeanRegistry {
         static {
             SdkMBeanRegistry rego;
             try {
-                Class<?> c = Class.forName("com.amazonaws.jmx.SdkMBeanRegistrySupport");
+                Class<?> c = Class.forName("com.amazonaws.client.metrics.support.SdkMBeanRegistrySupport");
                 rego = (SdkMBeanRegistry)c.newInstance();
             } catch (Exception e) {
                 LogFactory
@@ -16,6 +16,7 @@
 package com.amazonaws.client.metrics.support;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,14 +40,33 @@ import com.amazonaws.utility.TimingInfo;
  * This class is instantiated instead of {@link AWSRequestMetrics} when request
  * metric collection is required during a particular service request/response
  * cycle.
+ * <p>
+ * The events, counters and properties of the predefined
+ * {@link AWSRequestMetrics.Field}s are recorded in slots indexed by the field
+ * ordinal, with the times and counts held as primitive longs, so that
+ * collecting the metrics of a request costs a handful of array allocations
+ * rather than map entries, lists and boxed values for every event. The
+ * metrics of any other name are recorded in maps.
  */
 @NotThreadSafe
 public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
-    /* Stores some key value pairs. */
-    private final Map<String, List<Object>> properties = new HashMap<String, List<Object>>();
-    
-    /* A map to store events that are being profiled. */
-    private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
+    private static final Field[] FIELDS = Field.values();
+    private static final int FIELD_COUNT = FIELDS.length;
+    /* Marks a null property value in the property slots. */
+    private static final Object NULL_VALUE = new Object();
+
+    private final FieldIndexedTimingInfo indexedTimingInfo;
+
+    /* Property values of the fields by ordinal; see #addProperty(Field, Object) */
+    private final Object[] fieldProperties = new Object[FIELD_COUNT];
+    /* Stores the key value pairs of names other than the fields. */
+    private Map<String, List<Object>> properties;
+
+    /* Start times of the field events that are being profiled. */
+    private final long[] fieldEventStarts = new long[FIELD_COUNT];
+    private final boolean[] fieldEventsStarted = new boolean[FIELD_COUNT];
+    /* A map to store the other events that are being profiled. */
+    private Map<String, TimingInfo> eventsBeingProfiled;
     /* Latency Logger */
     private static final Log latencyLogger = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
@@ -55,13 +75,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
     /**
      * This constructor should be used in the case when AWS SDK metrics
      * collector is enabled.
-     * 
+     *
      * @see AWSRequestMetricsFullSupport
      */
     public AWSRequestMetricsFullSupport() {
-        super(TimingInfo.startTimingFullSupport());
+        super(new FieldIndexedTimingInfo(Long.valueOf(System.currentTimeMillis()), System.nanoTime()));
+        this.indexedTimingInfo = (FieldIndexedTimingInfo)timingInfo;
     }
-    
+
     /**
      * Start an event which will be timed. The startTime and endTime are added
      * to timingInfo only after endEvent is called. For every startEvent there
@@ -70,19 +91,26 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      * for recursive events yet. Having said that, if you start and end an event
      * in that sequence multiple times, all events are logged in timingInfo in
      * that order.
-     * 
+     *
      * This feature is enabled if the system property
      * "com.amazonaws.sdk.enableRuntimeProfiling" is set, or if a
      * {@link RequestMetricCollector} is in use either at the request, web service
      * client, or AWS SDK level.
-     * 
+     *
      * @param eventName
      *            - The name of the event to start
-     * 
+     *
      * @see AwsSdkMetrics
      */
     @Override
     public void startEvent(String eventName) {
+        Field f = FieldIndexedTimingInfo.fieldOf(eventName);
+        if (f != null) {
+            startEvent(f);
+            return;
+        }
+        if (eventsBeingProfiled == null)
+            eventsBeingProfiled = new HashMap<String, TimingInfo>();
         /* This will overwrite past events */
         eventsBeingProfiled.put // ignoring the wall clock time
             (eventName, TimingInfo.startTimingFullSupport(System.nanoTime()));
@@ -90,24 +118,35 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void startEvent(MetricType f) {
-        startEvent(f.name());
+        if (f instanceof Field) {
+            final int i = ((Field)f).ordinal();
+            /* This will overwrite past events */
+            fieldEventStarts[i] = System.nanoTime();
+            fieldEventsStarted[i] = true;
+        } else {
+            startEvent(f.name());
+        }
     }
 
     /**
      * End an event which was previously started. Once ended, log how much time
      * the event took. It is illegal to end an Event that was not started. It is
      * good practice to endEvent in a finally block. See Also startEvent.
-     * 
+     *
      * @param eventName
      *            - The name of the event to start
      */
     @Override
     public void endEvent(String eventName) {
-        TimingInfo event = eventsBeingProfiled.get(eventName);
+        Field f = FieldIndexedTimingInfo.fieldOf(eventName);
+        if (f != null) {
+            endEvent(f);
+            return;
+        }
+        TimingInfo event = eventsBeingProfiled == null ? null : eventsBeingProfiled.get(eventName);
         /* Somebody tried to end an event that was not started. */
         if (event == null) {
-            LogFactory.getLog(getClass()).warn
-                ("Trying to end an event which was never started: " + eventName);
+            warnEventNotStarted(eventName);
             return;
         }
         event.endTiming();
@@ -120,18 +159,33 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void endEvent(MetricType f) {
-        endEvent(f.name());
+        if (f instanceof Field) {
+            final int i = ((Field)f).ordinal();
+            /* Somebody tried to end an event that was not started. */
+            if (!fieldEventsStarted[i]) {
+                warnEventNotStarted(f.name());
+                return;
+            }
+            indexedTimingInfo.addSubMeasurement((Field)f, fieldEventStarts[i], System.nanoTime());
+        } else {
+            endEvent(f.name());
+        }
+    }
+
+    private void warnEventNotStarted(String eventName) {
+        LogFactory.getLog(getClass()).warn
+            ("Trying to end an event which was never started: " + eventName);
     }
 
     /**
      * Add 1 to an existing count for a given event. If the count for that event
      * does not exist, then it creates one and initializes it to 1.
-     * 
+     *
      * This feature is enabled if the system property
      * "com.amazonaws.sdk.enableRuntimeProfiling" is set, or if a
      * {@link RequestMetricCollector} is in use either at the request, web service
      * client, or AWS SDK level.
-     * 
+     *
      * @param event
      *            - The name of the event to count
      */
@@ -142,9 +196,12 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void incrementCounter(MetricType f) {
-        incrementCounter(f.name());
+        if (f instanceof Field)
+            indexedTimingInfo.incrementCounter((Field)f);
+        else
+            incrementCounter(f.name());
     }
-    
+
     @Override
     public void setCounter(String counterName, long count) {
         timingInfo.setCounter(counterName, count);
@@ -152,18 +209,21 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void setCounter(MetricType f, long count) {
-        setCounter(f.name(), count);
+        if (f instanceof Field)
+            indexedTimingInfo.setCounter((Field)f, count);
+        else
+            setCounter(f.name(), count);
     }
-    
+
     /**
      * Add a property. If you add the same property more than once, it stores
      * all values a list.
-     * 
+     *
      * This feature is enabled if the system property
      * "com.amazonaws.sdk.enableRuntimeProfiling" is set, or if a
      * {@link RequestMetricCollector} is in use either at the request, web service
      * client, or AWS SDK level.
-     * 
+     *
      * @param propertyName
      *            The name of the property
      * @param value
@@ -171,18 +231,45 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void addProperty(String propertyName, Object value) {
+        Field f = FieldIndexedTimingInfo.fieldOf(propertyName);
+        if (f != null) {
+            addProperty(f, value);
+            return;
+        }
+        if (properties == null)
+            properties = new HashMap<String, List<Object>>();
         List<Object> propertyList = properties.get(propertyName);
         if (propertyList == null) {
             propertyList = new ArrayList<Object>();
             properties.put(propertyName, propertyList);
         }
-        
+
         propertyList.add(value);
     }
 
+    /**
+     * Adds a property value. The slot of a field property holds its only value
+     * (or {@link #NULL_VALUE}), or a {@link PropertyList} once the property
+     * has more than one value.
+     */
     @Override
     public void addProperty(MetricType f, Object value) {
-        addProperty(f.name(), value);
+        if (!(f instanceof Field)) {
+            addProperty(f.name(), value);
+            return;
+        }
+        final int i = ((Field)f).ordinal();
+        final Object current = fieldProperties[i];
+        if (current == null) {
+            fieldProperties[i] = value == null ? NULL_VALUE : value;
+        } else if (current instanceof PropertyList) {
+            ((PropertyList)current).add(value);
+        } else {
+            PropertyList list = new PropertyList();
+            list.add(current == NULL_VALUE ? null : current);
+            list.add(value);
+            fieldProperties[i] = list;
+        }
     }
 
     @Override
@@ -190,8 +277,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
         if (latencyLogger.isInfoEnabled()) {
             StringBuilder builder = new StringBuilder();
 
-            for (Entry<String, List<Object>> entry : properties.entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                if (fieldProperties[i] != null)
+                    keyValueFormat(FIELDS[i], fieldProperty(i), builder);
+            }
+            if (properties != null) {
+                for (Entry<String, List<Object>> entry : properties.entrySet()) {
+                    keyValueFormat(entry.getKey(), entry.getValue(), builder);
+                }
             }
 
             for (Entry<String, Number> entry : timingInfo.getAllCounters()
@@ -212,17 +305,41 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public List<Object> getProperty(String propertyName){
-    	return properties.get(propertyName);
+        Field f = FieldIndexedTimingInfo.fieldOf(propertyName);
+        if (f != null)
+            return getProperty(f);
+        return properties == null ? null : properties.get(propertyName);
     }
 
     @Override
     public List<Object> getProperty(MetricType f){
+        if (f instanceof Field)
+            return fieldProperty(((Field)f).ordinal());
         return getProperty(f.name());
     }
 
+    /** Returns the values of the field property of the given ordinal. */
+    private List<Object> fieldProperty(int i) {
+        final Object value = fieldProperties[i];
+        if (value == null)
+            return null;
+        if (value instanceof PropertyList)
+            return (PropertyList)value;
+        return Collections.singletonList(value == NULL_VALUE ? null : value);
+    }
+
     /** Always returns true. */
     @Override
     public final boolean isEnabled() {
         return true;
     }
+
+    /** The values of a field property added more than once. */
+    private static final class PropertyList extends ArrayList<Object> {
+        private static final long serialVersionUID = 1L;
+
+        PropertyList() {
+            super(4);
+        }
+    }
 }
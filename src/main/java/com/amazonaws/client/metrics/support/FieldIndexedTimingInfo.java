@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.metrics.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.annotation.NotThreadSafe;
+
+import com.amazonaws.network.metrics.util.AWSRequestMetrics.Field;
+import com.amazonaws.utility.TimingInfo;
+
+/**
+ * Full support timing info that records the counters and sub-measurements of
+ * the predefined {@link Field}s in primitive slots indexed by the field
+ * ordinal, rather than in maps of boxed values keyed by name. Counters and
+ * sub-measurements of any other name are recorded in maps, as by the default
+ * full support timing info.
+ * <p>
+ * The {@link TimingInfo} accessors are views over this storage: the boxed
+ * counters and sub-measurement timing infos are only created when read, e.g.
+ * by a request metric collector, rather than when recorded.
+ */
+@NotThreadSafe
+class FieldIndexedTimingInfo extends TimingInfo {
+    private static final Field[] FIELDS = Field.values();
+    private static final Map<String, Field> FIELDS_BY_NAME;
+    static {
+        Map<String, Field> map = new HashMap<String, Field>(FIELDS.length * 2);
+        for (Field f : FIELDS)
+            map.put(f.name(), f);
+        FIELDS_BY_NAME = map;
+    }
+    private static final int INITIAL_SUB_MEASUREMENT_CAPACITY = 8;
+
+    /** Counter values by field ordinal. */
+    private final long[] counters = new long[FIELDS.length];
+    /** Whether each counter of {@link #counters} has been set. */
+    private final boolean[] countersSet = new boolean[FIELDS.length];
+
+    /** Field ordinal, start and end times of the recorded sub-measurements. */
+    private int[] subMeasurementFields;
+    private long[] subMeasurementStarts;
+    private long[] subMeasurementEnds;
+    private int subMeasurementCount;
+
+    /** Counters and sub-measurements of names other than the fields. */
+    private Map<String, List<TimingInfo>> otherSubMeasurements;
+    private Map<String, Number> otherCounters;
+
+    FieldIndexedTimingInfo(Long startEpochTimeMilli, long startTimeNano) {
+        super(startEpochTimeMilli, startTimeNano, null);
+    }
+
+    /** Returns the field of the given name, or null if there is none. */
+    static Field fieldOf(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
+
+    void incrementCounter(Field f) {
+        final int i = f.ordinal();
+        // As by the map based implementation, a counter is incremented as int
+        counters[i] = countersSet[i] ? (int)counters[i] + 1 : 1;
+        countersSet[i] = true;
+    }
+
+    void setCounter(Field f, long count) {
+        final int i = f.ordinal();
+        counters[i] = count;
+        countersSet[i] = true;
+    }
+
+    void addSubMeasurement(Field f, long startTimeNano, long endTimeNano) {
+        if (subMeasurementFields == null) {
+            subMeasurementFields = new int[INITIAL_SUB_MEASUREMENT_CAPACITY];
+            subMeasurementStarts = new long[INITIAL_SUB_MEASUREMENT_CAPACITY];
+            subMeasurementEnds = new long[INITIAL_SUB_MEASUREMENT_CAPACITY];
+        } else if (subMeasurementCount == subMeasurementFields.length) {
+            final int capacity = subMeasurementCount << 1;
+            subMeasurementFields = Arrays.copyOf(subMeasurementFields, capacity);
+            subMeasurementStarts = Arrays.copyOf(subMeasurementStarts, capacity);
+            subMeasurementEnds = Arrays.copyOf(subMeasurementEnds, capacity);
+        }
+        subMeasurementFields[subMeasurementCount] = f.ordinal();
+        subMeasurementStarts[subMeasurementCount] = startTimeNano;
+        subMeasurementEnds[subMeasurementCount] = endTimeNano;
+        subMeasurementCount++;
+    }
+
+    /** Returns the number of field sub-measurements recorded. */
+    int getFieldSubMeasurementCount() {
+        return subMeasurementCount;
+    }
+
+    /** Returns the field ordinal of the i-th field sub-measurement. */
+    int getFieldSubMeasurementOrdinal(int i) {
+        return subMeasurementFields[i];
+    }
+
+    /** Returns the duration in nanoseconds of the i-th field sub-measurement. */
+    long getFieldSubMeasurementNanos(int i) {
+        return subMeasurementEnds[i] - subMeasurementStarts[i];
+    }
+
+    @Override
+    public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
+        if (!ti.isEndTimeKnown())
+            return;     // as by the map based implementation
+        Field f = fieldOf(subMeasurementName);
+        if (f != null) {
+            addSubMeasurement(f, ti.getStartTimeNano(), ti.getEndTimeNano());
+            return;
+        }
+        if (otherSubMeasurements == null)
+            otherSubMeasurements = new HashMap<String, List<TimingInfo>>();
+        List<TimingInfo> timings = otherSubMeasurements.get(subMeasurementName);
+        if (timings == null) {
+            timings = new ArrayList<TimingInfo>();
+            otherSubMeasurements.put(subMeasurementName, timings);
+        }
+        timings.add(ti);
+    }
+
+    @Override
+    public TimingInfo getSubMeasurement(String subMeasurementName) {
+        return getSubMeasurement(subMeasurementName, 0);
+    }
+
+    @Override
+    public TimingInfo getSubMeasurement(String subMeasurementName, int index) {
+        if (index < 0)
+            return null;
+        Field f = fieldOf(subMeasurementName);
+        if (f == null) {
+            List<TimingInfo> timings = otherSubMeasurements == null ? null
+                    : otherSubMeasurements.get(subMeasurementName);
+            return timings == null || index >= timings.size() ? null : timings.get(index);
+        }
+        final int ordinal = f.ordinal();
+        for (int i = 0; i < subMeasurementCount; i++) {
+            if (subMeasurementFields[i] == ordinal && index-- == 0)
+                return subMeasurementAt(i);
+        }
+        return null;
+    }
+
+    @Override
+    public TimingInfo getLastSubMeasurement(String subMeasurementName) {
+        Field f = fieldOf(subMeasurementName);
+        if (f == null) {
+            List<TimingInfo> timings = otherSubMeasurements == null ? null
+                    : otherSubMeasurements.get(subMeasurementName);
+            return timings == null || timings.isEmpty() ? null : timings.get(timings.size() - 1);
+        }
+        final int ordinal = f.ordinal();
+        for (int i = subMeasurementCount - 1; i >= 0; i--) {
+            if (subMeasurementFields[i] == ordinal)
+                return subMeasurementAt(i);
+        }
+        return null;
+    }
+
+    @Override
+    public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
+        Field f = fieldOf(subMeasurementName);
+        if (f == null) {
+            return otherSubMeasurements == null ? null
+                    : otherSubMeasurements.get(subMeasurementName);
+        }
+        return fieldSubMeasurements(f.ordinal());
+    }
+
+    /**
+     * Returns a new map of all the sub-measurements by name.
+     */
+    @Override
+    public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
+        if (subMeasurementCount == 0 && otherSubMeasurements == null)
+            return Collections.emptyMap();
+        Map<String, List<TimingInfo>> map = new HashMap<String, List<TimingInfo>>();
+        if (otherSubMeasurements != null)
+            map.putAll(otherSubMeasurements);
+        for (int i = 0; i < subMeasurementCount; i++) {
+            String name = FIELDS[subMeasurementFields[i]].name();
+            List<TimingInfo> timings = map.get(name);
+            if (timings == null) {
+                timings = new ArrayList<TimingInfo>();
+                map.put(name, timings);
+            }
+            timings.add(subMeasurementAt(i));
+        }
+        return map;
+    }
+
+    @Override
+    public Number getCounter(String key) {
+        Field f = fieldOf(key);
+        if (f == null)
+            return otherCounters == null ? null : otherCounters.get(key);
+        final int i = f.ordinal();
+        return countersSet[i] ? Long.valueOf(counters[i]) : null;
+    }
+
+    /**
+     * Returns a new map of all the counters by name.
+     */
+    @Override
+    public Map<String, Number> getAllCounters() {
+        Map<String, Number> map = otherCounters == null
+                ? new HashMap<String, Number>()
+                : new HashMap<String, Number>(otherCounters);
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (countersSet[i])
+                map.put(FIELDS[i].name(), Long.valueOf(counters[i]));
+        }
+        return map;
+    }
+
+    @Override
+    public void setCounter(String key, long count) {
+        Field f = fieldOf(key);
+        if (f != null) {
+            setCounter(f, count);
+            return;
+        }
+        if (otherCounters == null)
+            otherCounters = new HashMap<String, Number>();
+        otherCounters.put(key, count);
+    }
+
+    @Override
+    public void incrementCounter(String key) {
+        Field f = fieldOf(key);
+        if (f != null) {
+            incrementCounter(f);
+            return;
+        }
+        Number counter = otherCounters == null ? null : otherCounters.get(key);
+        setCounter(key, counter == null ? 1 : counter.intValue() + 1);
+    }
+
+    private List<TimingInfo> fieldSubMeasurements(int ordinal) {
+        List<TimingInfo> timings = null;
+        for (int i = 0; i < subMeasurementCount; i++) {
+            if (subMeasurementFields[i] == ordinal) {
+                if (timings == null)
+                    timings = new ArrayList<TimingInfo>();
+                timings.add(subMeasurementAt(i));
+            }
+        }
+        return timings;
+    }
+
+    private TimingInfo subMeasurementAt(int i) {
+        return TimingInfo.unmodifiableTimingInfo(
+                subMeasurementStarts[i], Long.valueOf(subMeasurementEnds[i]));
+    }
+}
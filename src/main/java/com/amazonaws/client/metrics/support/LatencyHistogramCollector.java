@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.metrics.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.client.metrics.AwsSdkMetrics;
+import com.amazonaws.client.metrics.LatencyHistogram;
+import com.amazonaws.client.metrics.LatencyHistogramMBean;
+import com.amazonaws.network.metrics.util.AWSRequestMetrics;
+import com.amazonaws.network.metrics.util.AWSRequestMetrics.Field;
+import com.amazonaws.network.metricscollector.RequestMetricCollector;
+import com.amazonaws.network.response.Response;
+import com.amazonaws.network.type.Request;
+import com.amazonaws.utility.TimingInfo;
+
+/**
+ * A request metric collector that records the client side latencies of the
+ * requests in memory, in a {@link LatencyHistogram} per service operation and
+ * latency metric, for local inspection of the latency percentiles (e.g.
+ * through JMX via {@link AwsSdkMetrics#registerLatencyHistogramMBean}) rather
+ * than for upload to Amazon CloudWatch.
+ * <p>
+ * The recorded metrics are {@link Field#ClientExecuteTime},
+ * {@link Field#HttpRequestTime}, {@link Field#RequestSigningTime} and
+ * {@link Field#ResponseProcessingTime}; the latter three once per attempt.
+ * Collecting the metrics of a request only updates the histograms of its
+ * operation, without locking, and the snapshots are computed on the reading
+ * side.
+ */
+@ThreadSafe
+public class LatencyHistogramCollector extends RequestMetricCollector
+        implements LatencyHistogramMBean {
+    private static final Field[] RECORDED_FIELDS = {
+        Field.ClientExecuteTime,
+        Field.HttpRequestTime,
+        Field.RequestSigningTime,
+        Field.ResponseProcessingTime,
+    };
+    /* Index in RECORDED_FIELDS by field ordinal, or -1 if not recorded. */
+    private static final int[] RECORDED_INDEX = new int[Field.values().length];
+    static {
+        for (int i = 0; i < RECORDED_INDEX.length; i++)
+            RECORDED_INDEX[i] = -1;
+        for (int i = 0; i < RECORDED_FIELDS.length; i++)
+            RECORDED_INDEX[RECORDED_FIELDS[i].ordinal()] = i;
+    }
+
+    /* Histograms by service name and original request class. */
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, OperationHistograms>> histograms =
+            new ConcurrentHashMap<String, ConcurrentMap<Class<?>, OperationHistograms>>();
+    /* Histograms by operation name, as exposed through JMX. */
+    private final ConcurrentMap<String, OperationHistograms> histogramsByName =
+            new ConcurrentHashMap<String, OperationHistograms>();
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || !metrics.isEnabled())
+            return;
+        final LatencyHistogram[] h = histogramsOf(request).histograms;
+        final TimingInfo root = metrics.getTimingInfo();
+        if (root.isEndTimeKnown())
+            h[0].recordNanos(root.getEndTimeNano() - root.getStartTimeNano());
+        if (root instanceof FieldIndexedTimingInfo) {
+            FieldIndexedTimingInfo indexed = (FieldIndexedTimingInfo)root;
+            final int count = indexed.getFieldSubMeasurementCount();
+            for (int i = 0; i < count; i++) {
+                int index = RECORDED_INDEX[indexed.getFieldSubMeasurementOrdinal(i)];
+                if (index > 0)
+                    h[index].recordNanos(indexed.getFieldSubMeasurementNanos(i));
+            }
+        } else {
+            for (int index = 1; index < RECORDED_FIELDS.length; index++) {
+                List<TimingInfo> timings = root.getAllSubMeasurements(RECORDED_FIELDS[index].name());
+                if (timings == null)
+                    continue;
+                for (TimingInfo ti : timings) {
+                    if (ti.isEndTimeKnown())
+                        h[index].recordNanos(ti.getEndTimeNano() - ti.getStartTimeNano());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the histogram of the given operation ("service.operation") and
+     * latency metric, or null if none has been recorded.
+     */
+    public LatencyHistogram getHistogram(String operation, Field metric) {
+        OperationHistograms op = histogramsByName.get(operation);
+        if (op == null || metric == null)
+            return null;
+        int index = RECORDED_INDEX[metric.ordinal()];
+        return index < 0 ? null : op.histograms[index];
+    }
+
+    @Override
+    public String[] getOperations() {
+        List<String> names = new ArrayList<String>(histogramsByName.keySet());
+        Collections.sort(names);
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public String[] getMetrics() {
+        String[] names = new String[RECORDED_FIELDS.length];
+        for (int i = 0; i < names.length; i++)
+            names[i] = RECORDED_FIELDS[i].name();
+        return names;
+    }
+
+    @Override
+    public long getCount(String operation, String metric) {
+        LatencyHistogram h = histogramOf(operation, metric);
+        return h == null ? 0 : h.snapshot().getCount();
+    }
+
+    @Override
+    public double getLatencyAtPercentile(String operation, String metric, double percentile) {
+        LatencyHistogram h = histogramOf(operation, metric);
+        return h == null ? 0 : h.snapshot().getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public String getSummary() {
+        return summary(false);
+    }
+
+    @Override
+    public String takeIntervalSnapshot() {
+        return summary(true);
+    }
+
+    private String summary(boolean interval) {
+        StringBuilder sb = new StringBuilder();
+        for (String operation : getOperations()) {
+            OperationHistograms op = histogramsByName.get(operation);
+            for (int i = 0; i < RECORDED_FIELDS.length; i++) {
+                LatencyHistogram.Snapshot s = interval
+                        ? op.histograms[i].intervalSnapshot()
+                        : op.histograms[i].snapshot();
+                if (s.getCount() == 0)
+                    continue;
+                sb.append(operation).append(' ').append(RECORDED_FIELDS[i].name())
+                  .append(": ").append(s).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private LatencyHistogram histogramOf(String operation, String metric) {
+        try {
+            return getHistogram(operation, Field.valueOf(metric));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private OperationHistograms histogramsOf(Request<?> request) {
+        final String serviceName = request.getServiceName();
+        ConcurrentMap<Class<?>, OperationHistograms> byClass = histograms.get(serviceName);
+        if (byClass == null) {
+            byClass = new ConcurrentHashMap<Class<?>, OperationHistograms>();
+            ConcurrentMap<Class<?>, OperationHistograms> existing = histograms.putIfAbsent(serviceName, byClass);
+            if (existing != null)
+                byClass = existing;
+        }
+        final Class<?> requestClass = request.getOriginalRequest().getClass();
+        OperationHistograms op = byClass.get(requestClass);
+        if (op == null) {
+            String name = serviceName + "." + operationName(requestClass);
+            op = histogramsByName.get(name);
+            if (op == null) {
+                op = new OperationHistograms();
+                OperationHistograms existing = histogramsByName.putIfAbsent(name, op);
+                if (existing != null)
+                    op = existing;
+            }
+            byClass.putIfAbsent(requestClass, op);
+        }
+        return op;
+    }
+
+    private static String operationName(Class<?> requestClass) {
+        String name = requestClass.getSimpleName();
+        return name.endsWith("Request") && name.length() > "Request".length()
+                ? name.substring(0, name.length() - "Request".length())
+                : name;
+    }
+
+    /** The histograms of an operation, in the order of RECORDED_FIELDS. */
+    private static final class OperationHistograms {
+        private final LatencyHistogram[] histograms = new LatencyHistogram[RECORDED_FIELDS.length];
+
+        OperationHistograms() {
+            for (int i = 0; i < histograms.length; i++)
+                histograms[i] = new LatencyHistogram();
+        }
+    }
+}
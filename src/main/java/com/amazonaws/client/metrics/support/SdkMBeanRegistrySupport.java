@@ -14,13 +14,18 @@
  */
 package com.amazonaws.client.metrics.support;
 
+import javax.management.StandardMBean;
+
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.client.metrics.LatencyHistogramMBean;
 import com.amazonaws.client.metrics.MetricAdmin;
 import com.amazonaws.client.metrics.jmx.MBeans;
+import com.amazonaws.client.metrics.jmx.spi.LatencyHistogramMBeanRegistry;
 import com.amazonaws.client.metrics.jmx.spi.SdkMBeanRegistry;
 
-public class SdkMBeanRegistrySupport implements SdkMBeanRegistry {
+public class SdkMBeanRegistrySupport
+        implements SdkMBeanRegistry, LatencyHistogramMBeanRegistry {
     ;
     @Override
     public boolean registerMetricAdminMBean(String objectName) {
@@ -32,6 +37,17 @@ public class SdkMBeanRegistrySupport implements SdkMBeanRegistry {
         return false;
     }
 
+    @Override
+    public boolean registerLatencyHistogramMBean(String objectName, LatencyHistogramMBean mbean) {
+        try {
+            return MBeans.registerMBean(objectName,
+                    new StandardMBean(mbean, LatencyHistogramMBean.class));
+        } catch(Exception ex) {
+            LogFactory.getLog(SdkMBeanRegistrySupport.class).warn("", ex);
+        }
+        return false;
+    }
+
     @Override
     public boolean unregisterMBean(String objectName) {
         try {
@@ -17,14 +17,20 @@ package com.amazonaws.client.regions;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import com.amazonaws.client.ServiceAbbreviations;
 
 /**
  * A collection of metadata about a set of regions and the services they
  * contain.
+ * <p>
+ * The lookups by region name, endpoint and service are served by immutable
+ * hash indexes built once when the metadata is loaded, rather than by
+ * scanning all the regions and parsing all their endpoints on each call.
  *
  * @see RegionUtils
  */
@@ -32,6 +38,15 @@ public class RegionMetadata {
 
     private final List<Region> regions;
 
+    /** Regions by name. */
+    private final Map<String, Region> regionsByName;
+    /** The first region, in list order, with any service at an endpoint host. */
+    private final Map<String, Region> regionsByHost;
+    /** The service abbreviation at an endpoint host, for the region above. */
+    private final Map<String, String> servicesByHost;
+    /** The regions that support a service, in list order. */
+    private final Map<String, List<Region>> regionsByService;
+
     /**
      * Creates a new RegionMetadata object from the given list of regions.
      *
@@ -44,6 +59,37 @@ public class RegionMetadata {
 
         this.regions =
             Collections.unmodifiableList(new ArrayList<Region>(regions));
+
+        Map<String, Region> byName = new HashMap<String, Region>();
+        Map<String, Region> byHost = new HashMap<String, Region>();
+        Map<String, String> serviceByHost = new HashMap<String, String>();
+        Map<String, List<Region>> byService = new HashMap<String, List<Region>>();
+        for (Region region : this.regions) {
+            if (!byName.containsKey(region.getName())) {
+                byName.put(region.getName(), region);
+            }
+            for (Map.Entry<String, String> entry
+                     : region.getServiceEndpoints().entrySet()) {
+                String host = getHost(entry.getValue());
+                if (!byHost.containsKey(host)) {
+                    byHost.put(host, region);
+                    serviceByHost.put(host, entry.getKey());
+                }
+                List<Region> serviceRegions = byService.get(entry.getKey());
+                if (serviceRegions == null) {
+                    serviceRegions = new ArrayList<Region>();
+                    byService.put(entry.getKey(), serviceRegions);
+                }
+                serviceRegions.add(region);
+            }
+        }
+        for (Map.Entry<String, List<Region>> entry : byService.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.regionsByName = Collections.unmodifiableMap(byName);
+        this.regionsByHost = Collections.unmodifiableMap(byHost);
+        this.servicesByHost = Collections.unmodifiableMap(serviceByHost);
+        this.regionsByService = Collections.unmodifiableMap(byService);
     }
 
     /**
@@ -64,12 +110,7 @@ public class RegionMetadata {
      * @return the corresponding region, if it exists
      */
     public Region getRegion(final String name) {
-        for (Region region : regions) {
-            if (region.getName().equals(name)) {
-                return region;
-            }
-        }
-        return null;
+        return regionsByName.get(name);
     }
 
     /**
@@ -80,15 +121,10 @@ public class RegionMetadata {
      * @see ServiceAbbreviations
      */
     public List<Region> getRegionsForService(final String service) {
-        List<Region> results = new LinkedList<Region>();
-
-        for (Region region : regions) {
-            if (region.isServiceSupported(service)) {
-                results.add(region);
-            }
-        }
-
-        return results;
+        List<Region> results = regionsByService.get(service);
+        return results == null
+            ? new LinkedList<Region>()
+            : new LinkedList<Region>(results);
     }
 
     /**
@@ -106,20 +142,42 @@ public class RegionMetadata {
      *             URLs on record is malformed.
      */
     public Region getRegionByEndpoint(final String endpoint) {
-        String host = getHost(endpoint);
-
-        for (Region region : regions) {
-            for (String serviceEndpoint
-                     : region.getServiceEndpoints().values()) {
-
-                if (host.equals(getHost(serviceEndpoint))) {
-                    return region;
-                }
-            }
+        Region region = regionsByHost.get(getHost(endpoint));
+        if (region == null) {
+            throw new IllegalArgumentException(
+                "No region found with any service for endpoint " + endpoint);
         }
+        return region;
+    }
 
-        throw new IllegalArgumentException(
-            "No region found with any service for endpoint " + endpoint);
+    /**
+     * Returns the abbreviation of the service at the specified endpoint, in
+     * the region returned by {@link #getRegionByEndpoint(String)}; or null if
+     * no known service is at that endpoint.
+     *
+     * @param endpoint
+     *            The endpoint, with or without a scheme.
+     * @return the service abbreviation, or null if there is none
+     * @throws IllegalArgumentException
+     *             If the given URL is malformed.
+     * @see ServiceAbbreviations
+     */
+    public String getServiceByEndpoint(final String endpoint) {
+        return servicesByHost.get(getHost(endpoint));
+    }
+
+    /**
+     * Returns an immutable list of the names of the services supported by the
+     * given region, or null if the region is unknown.
+     *
+     * @param regionName the name of the region
+     * @return the abbreviations of the services supported by the region
+     */
+    public List<String> getServicesForRegion(final String regionName) {
+        Region region = regionsByName.get(regionName);
+        return region == null ? null
+            : Collections.unmodifiableList(
+                  new ArrayList<String>(region.getServiceEndpoints().keySet()));
     }
 
     /**
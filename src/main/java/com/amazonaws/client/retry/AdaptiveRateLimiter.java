@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.retry;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.exception.AmazonClientException;
+
+/**
+ * Client-side send rate limiter that adapts to throttling responses, shared
+ * by all the requests of a client.
+ * <p>
+ * The limiter stays inactive until the first throttling response received
+ * once a send rate has been measured, i.e. past the first half second of
+ * traffic. From then on, requests draw from a token bucket whose fill rate is
+ * adjusted after every response following the CUBIC congestion control
+ * algorithm: the rate is cut multiplicatively on throttling, then grows back
+ * along a cubic curve, slowly around the rate at which throttling last
+ * occurred and faster away from it. The rate is also kept within twice the
+ * measured send rate, so that it can't drift far above the actual traffic.
+ */
+@ThreadSafe
+public final class AdaptiveRateLimiter {
+    /** Multiplicative decrease factor applied on throttling. */
+    private static final double BETA = 0.7;
+    /** Scale factor of the cubic growth function. */
+    private static final double SCALE_CONSTANT = 0.4;
+    /** Smoothing factor of the measured send rate. */
+    private static final double SMOOTH = 0.8;
+    /** Width in seconds of the buckets used to measure the send rate. */
+    private static final double TX_RATE_BUCKET_SECONDS = 0.5;
+    private static final double MIN_FILL_RATE = 0.5;
+    private static final double MIN_CAPACITY = 1;
+
+    private double fillRate;
+    private double maxCapacity;
+    private double currentCapacity;
+    private double lastTimestamp;
+    /** True once lastTimestamp is set; nanoTime based times can be negative. */
+    private boolean lastTimestampSet;
+    private boolean enabled;
+
+    private double measuredTxRate;
+    private double lastTxRateBucket;
+    private long requestCount;
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+
+    public AdaptiveRateLimiter() {
+        double now = now();
+        this.lastTxRateBucket = Math.floor(now);
+        this.lastThrottleTime = now;
+    }
+
+    /**
+     * Waits, if needed, until the current send rate allows for another
+     * request to be sent. Returns immediately while the limiter is inactive.
+     *
+     * @return The number of milliseconds spent waiting.
+     *
+     * @throws AmazonClientException
+     *             if interrupted while waiting.
+     */
+    public long acquire() {
+        long delayMillis;
+        synchronized (this) {
+            if (!enabled)
+                return 0;
+            refill();
+            if (currentCapacity >= 1) {
+                currentCapacity -= 1;
+                return 0;
+            }
+            delayMillis = (long)Math.ceil((1 - currentCapacity) / fillRate * 1000);
+            // Claim the token now, so that concurrent callers queue up behind
+            currentCapacity -= 1;
+        }
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Adjusts the send rate after a response has been received.
+     *
+     * @param throttled
+     *            True if the response was a throttling error.
+     */
+    public synchronized void onResponse(boolean throttled) {
+        final double now = now();
+        updateMeasuredRate(now);
+        double calculatedRate;
+        if (throttled) {
+            if (measuredTxRate == 0) {
+                // No send rate measured yet to decrease from; cutting the rate
+                // now would collapse it to the minimum
+                return;
+            }
+            double rateToUse = enabled ? Math.min(measuredTxRate, fillRate) : measuredTxRate;
+            lastMaxRate = rateToUse;
+            calculateTimeWindow();
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            calculateTimeWindow();
+            double dt = now - lastThrottleTime;
+            calculatedRate = SCALE_CONSTANT * Math.pow(dt - timeWindow, 3) + lastMaxRate;
+        }
+        updateBucketRate(Math.min(calculatedRate, 2 * measuredTxRate), now);
+    }
+
+    /** Returns true once throttling has been detected. */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the current send rate allowed, in requests per second. */
+    public synchronized double getFillRate() {
+        return fillRate;
+    }
+
+    /** Returns the measured send rate, in requests per second. */
+    public synchronized double getMeasuredSendRate() {
+        return measuredTxRate;
+    }
+
+    private void refill() {
+        final double now = now();
+        if (lastTimestampSet) {
+            double fill = (now - lastTimestamp) * fillRate;
+            currentCapacity = Math.min(maxCapacity, currentCapacity + fill);
+        }
+        lastTimestamp = now;
+        lastTimestampSet = true;
+    }
+
+    private void updateBucketRate(double newRate, double now) {
+        refill();
+        fillRate = Math.max(newRate, MIN_FILL_RATE);
+        maxCapacity = Math.max(newRate, MIN_CAPACITY);
+        currentCapacity = Math.min(currentCapacity, maxCapacity);
+    }
+
+    private void calculateTimeWindow() {
+        timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+    }
+
+    private void updateMeasuredRate(double now) {
+        double timeBucket = Math.floor(now / TX_RATE_BUCKET_SECONDS) * TX_RATE_BUCKET_SECONDS;
+        requestCount++;
+        if (timeBucket > lastTxRateBucket) {
+            double currentRate = requestCount / (timeBucket - lastTxRateBucket);
+            measuredTxRate = currentRate * SMOOTH + measuredTxRate * (1 - SMOOTH);
+            requestCount = 0;
+            lastTxRateBucket = timeBucket;
+        }
+    }
+
+    /** Returns the current time in seconds. */
+    private static double now() {
+        return System.nanoTime() / 1e9;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.retry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.exception.AmazonServiceException;
+
+/**
+ * Token bucket shared by all the requests of a client, that retries draw from
+ * and successful requests refill. While a service is healthy, the bucket
+ * stays full and retries are governed only by the {@link RetryPolicy}; during
+ * a prolonged outage or brownout, the bucket drains and further retries are
+ * denied, which caps the load amplification caused by retries.
+ * <p>
+ * A retry of a service error costs {@link #RETRY_COST} tokens, and a retry of
+ * a client-side error (e.g. a timeout or a connection failure) costs
+ * {@link #RETRY_TIMEOUT_COST} tokens. A request that succeeds after retries
+ * gives back the cost of its last retry, and a request that succeeds on the
+ * first attempt adds {@link #NO_RETRY_INCREMENT} token, up to the capacity.
+ */
+@ThreadSafe
+public final class RetryQuota {
+    /** Default capacity of the retry quota, in tokens. */
+    public static final int DEFAULT_CAPACITY = 500;
+    /** Tokens drawn by the retry of a service error. */
+    public static final int RETRY_COST = 5;
+    /** Tokens drawn by the retry of a client-side error. */
+    public static final int RETRY_TIMEOUT_COST = 10;
+    /** Tokens added by a request succeeding on the first attempt. */
+    public static final int NO_RETRY_INCREMENT = 1;
+
+    private final int capacity;
+    private final AtomicInteger availableCapacity;
+
+    /**
+     * @param capacity
+     *            The maximum (and initial) number of tokens of this quota.
+     */
+    public RetryQuota(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative");
+        this.capacity = capacity;
+        this.availableCapacity = new AtomicInteger(capacity);
+    }
+
+    /**
+     * Attempts to draw the tokens for a retry caused by the given exception.
+     *
+     * @return The number of tokens drawn, to be given back via
+     *         {@link #release(int)} if the retry succeeds; or zero if the
+     *         quota is exhausted, in which case the request must not be
+     *         retried.
+     */
+    public int acquire(AmazonClientException exception) {
+        final int cost = exception instanceof AmazonServiceException
+                ? RETRY_COST
+                : RETRY_TIMEOUT_COST;
+        for (;;) {
+            int available = availableCapacity.get();
+            if (available < cost)
+                return 0;
+            if (availableCapacity.compareAndSet(available, available - cost))
+                return cost;
+        }
+    }
+
+    /**
+     * Gives back tokens after a successful request.
+     *
+     * @param acquired
+     *            The number of tokens drawn by the last retry of the request,
+     *            or zero if the request succeeded on the first attempt.
+     */
+    public void release(int acquired) {
+        final int amount = acquired > 0 ? acquired : NO_RETRY_INCREMENT;
+        for (;;) {
+            int available = availableCapacity.get();
+            if (available >= capacity)
+                return;
+            int updated = Math.min(capacity, available + amount);
+            if (availableCapacity.compareAndSet(available, updated))
+                return;
+        }
+    }
+
+    /** Returns the maximum number of tokens of this quota. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of tokens currently available for retries. */
+    public int getAvailableCapacity() {
+        return availableCapacity.get();
+    }
+}
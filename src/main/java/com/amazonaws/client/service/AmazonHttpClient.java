@@ -19,16 +19,24 @@ import static com.amazonaws.network.event.SDKProgressPublisher.publishProgress;
 import static com.amazonaws.network.event.SDKProgressPublisher.publishRequestContentLength;
 import static com.amazonaws.network.event.SDKProgressPublisher.publishResponseContentLength;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.AWSErrorCode;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.ClientSendRate;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.AWSRequestID;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.Exception;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientLeaseWaitTime;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolAvailableCount;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolLeasedCount;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolPendingCount;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolRouteAvailableCount;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolRouteLeasedCount;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpClientPoolRoutePendingCount;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.HttpRequestTime;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RateLimitWaitTime;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RedirectLocation;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RequestCount;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RequestSigningTime;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RetryPauseTime;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RetryQuotaAvailableCapacity;
+import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.RetryQuotaExhausted;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.ServiceEndpoint;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.ServiceName;
 import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.StatusCode;
@@ -37,7 +45,7 @@ import static com.amazonaws.network.metrics.util.AWSRequestMetrics.Field.Throttl
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -46,8 +54,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.net.ssl.SSLContext;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
@@ -60,6 +66,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
@@ -76,8 +83,12 @@ import com.amazonaws.client.handler.request.RequestHandler2;
 import com.amazonaws.client.handler.response.HttpResponseHandler;
 import com.amazonaws.client.http.HttpMethodReleaseInputStream;
 import com.amazonaws.client.http.IdleConnectionReaper;
+import com.amazonaws.client.http.conn.ClientConnectionManagerFactory;
+import com.amazonaws.client.http.conn.SdkSSLContexts;
 import com.amazonaws.client.metrics.AwsSdkMetrics;
+import com.amazonaws.client.retry.AdaptiveRateLimiter;
 import com.amazonaws.client.retry.RetryPolicy;
+import com.amazonaws.client.retry.RetryQuota;
 import com.amazonaws.client.retry.RetryUtils;
 import com.amazonaws.client.util.io.ProgressInputStream;
 import com.amazonaws.credential.AWSCredentials;
@@ -127,8 +138,24 @@ public class AmazonHttpClient {
     /** Client configuration options, such as proxy settings, max retries, etc. */
     private final ClientConfiguration config;
 
-    /** Cache of metadata for recently executed requests for diagnostic purposes */
-    private final ResponseMetadataCache responseMetadataCache = new ResponseMetadataCache(50);
+    /**
+     * Cache of metadata for recently executed requests for diagnostic
+     * purposes; or null if caching is turned off in the client configuration.
+     */
+    private final ResponseMetadataCache responseMetadataCache;
+
+    /**
+     * Token bucket limiting the retries of the requests executed by this
+     * client; or null if retries are only limited by the retry policy.
+     */
+    private final RetryQuota retryQuota;
+
+    /**
+     * Limiter of the send rate of this client once throttling responses are
+     * received; or null if adaptive rate limiting is turned off in the client
+     * configuration.
+     */
+    private final AdaptiveRateLimiter rateLimiter;
 
     /**
      * A request metric collector used specifically for this http client; or
@@ -196,6 +223,16 @@ public class AmazonHttpClient {
         this.config = config;
         this.httpClient = httpClient;
         this.requestMetricCollector = requestMetricCollector;
+        this.responseMetadataCache =
+                config.getCacheResponseMetadata() && config.getResponseMetadataCacheSize() > 0
+                ? new ResponseMetadataCache(config.getResponseMetadataCacheSize())
+                : null;
+        this.retryQuota = config.getRetryQuotaCapacity() > 0
+                ? new RetryQuota(config.getRetryQuotaCapacity())
+                : null;
+        this.rateLimiter = config.useAdaptiveRateLimiting()
+                ? new AdaptiveRateLimiter()
+                : null;
     }
 
     /**
@@ -210,10 +247,13 @@ public class AmazonHttpClient {
      *            response metadata is desired.
      *
      * @return The response metadata for the specified request, otherwise null
-     *         if there is no response metadata available for the request.
+     *         if there is no response metadata available for the request, or
+     *         if response metadata caching is turned off.
+     *
+     * @see ClientConfiguration#setCacheResponseMetadata(boolean)
      */
     public ResponseMetadata getResponseMetadataForRequest(AmazonWebServiceRequest request) {
-        return responseMetadataCache.get(request);
+        return responseMetadataCache == null ? null : responseMetadataCache.get(request);
     }
 
     /**
@@ -235,12 +275,13 @@ public class AmazonHttpClient {
             SchemeRegistry schemeRegistry = httpClient.getConnectionManager().getSchemeRegistry();
 
             SSLSocketFactory sf = new SSLSocketFactory(
-                    SSLContext.getDefault(),
+                    SdkSSLContexts.getSSLContext(config.getTlsSessionCacheSize(),
+                            config.getTlsSessionTimeoutSeconds()),
                     SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
             Scheme https = new Scheme("https", 443, sf);
 
             schemeRegistry.register(https);
-        } catch (NoSuchAlgorithmException e) {
+        } catch (GeneralSecurityException e) {
             throw new AmazonClientException("Unable to access default SSL context to disable strict hostname verification");
         }
     }
@@ -377,6 +418,8 @@ public class AmazonHttpClient {
         URI redirectedURI = null;
         HttpEntity entity = null;
         AmazonClientException retriedException = null;
+        // Number of retry quota tokens drawn by the last retry, if any
+        int retryQuotaCost = 0;
 
         // Make a copy of the original request params and headers so that we can
         // permute it in this loop and start over with the original every time.
@@ -455,25 +498,42 @@ public class AmazonHttpClient {
                     }
                 }
 
-                captureConnectionPoolMetrics(httpClient.getConnectionManager(), awsRequestMetrics);
+                captureConnectionPoolMetrics(httpClient.getConnectionManager(),
+                        httpRequest.getURI(), awsRequestMetrics);
                 HttpContext httpContext = new BasicHttpContext();
                 httpContext.setAttribute(
                         AWSRequestMetrics.class.getSimpleName(),
                         awsRequestMetrics);
                 retriedException = null;
 
+                if (rateLimiter != null && rateLimiter.isEnabled()) {
+                    awsRequestMetrics.startEvent(RateLimitWaitTime);
+                    try {
+                        rateLimiter.acquire();
+                    } finally {
+                        awsRequestMetrics.endEvent(RateLimitWaitTime);
+                    }
+                }
                 publishProgress(listener, ProgressEventType.HTTP_REQUEST_STARTED_EVENT);
                 awsRequestMetrics.startEvent(HttpRequestTime);
+                ClientConnectionManagerFactory.takeLeaseTiming();   // clears any stale one
                 try {
                     apacheResponse = httpClient.execute(httpRequest, httpContext);
                 } finally {
                     awsRequestMetrics.endEvent(HttpRequestTime);
+                    TimingInfo leaseTiming = ClientConnectionManagerFactory.takeLeaseTiming();
+                    if (leaseTiming != null && awsRequestMetrics.isEnabled()) {
+                        awsRequestMetrics.getTimingInfo().addSubMeasurement(
+                                HttpClientLeaseWaitTime.name(), leaseTiming);
+                    }
                 }
                 publishProgress(listener, ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT);
                 final StatusLine statusLine = apacheResponse.getStatusLine();
                 final int statusCode = statusLine == null ? -1 : statusLine.getStatusCode();
                 if (isRequestSuccessful(apacheResponse)) {
                     awsRequestMetrics.addProperty(StatusCode, statusCode);
+                    updateSendRate(false, awsRequestMetrics);
+                    releaseRetryQuota(retryQuotaCost);
                     /*
                      * If we get back any 2xx status code, then we know we should
                      * treat the service call as successful.
@@ -513,6 +573,8 @@ public class AmazonHttpClient {
                     .addPropertyWith(AWSRequestID, ase.getRequestId())
                     .addPropertyWith(AWSErrorCode, ase.getErrorCode())
                     .addPropertyWith(StatusCode, ase.getStatusCode());
+                if (rateLimiter != null)
+                    updateSendRate(RetryUtils.isThrottlingException(ase), awsRequestMetrics);
                 if (!shouldRetry(request.getOriginalRequest(),
                                  httpRequest,
                                  ase,
@@ -520,6 +582,11 @@ public class AmazonHttpClient {
                                  config.getRetryPolicy())) {
                     throw ase;
                 }
+                if (retryQuota != null) {
+                    retryQuotaCost = acquireRetryQuota(ase, awsRequestMetrics);
+                    if (retryQuotaCost == 0)
+                        throw ase;
+                }
                 // Comment out for now. Ref: CR2662349
                 // Preserve the cause of retry before retrying
                 // awsRequestMetrics.addProperty(RetryCause, ase);
@@ -553,6 +620,11 @@ public class AmazonHttpClient {
                                 config.getRetryPolicy())) {
                     throw ace;
                 }
+                if (retryQuota != null) {
+                    retryQuotaCost = acquireRetryQuota(ace, awsRequestMetrics);
+                    if (retryQuotaCost == 0)
+                        throw ace;
+                }
 
                 // Cache the retryable exception
                 retriedException = ace;
@@ -584,19 +656,33 @@ public class AmazonHttpClient {
     }
 
     /**
-     * Captures the connection pool metrics.
+     * Captures the connection pool metrics, in total and for the route of the
+     * given request URI.
      */
+    @SuppressWarnings("unchecked")
     private void captureConnectionPoolMetrics(ClientConnectionManager connectionManager,
-            AWSRequestMetrics awsRequestMetrics) {
+            URI uri, AWSRequestMetrics awsRequestMetrics) {
         if (awsRequestMetrics.isEnabled()
                 && connectionManager instanceof ConnPoolControl) {
-            ConnPoolControl<?> control = (ConnPoolControl<?>) connectionManager;
+            ConnPoolControl<HttpRoute> control = (ConnPoolControl<HttpRoute>) connectionManager;
             PoolStats stats = control.getTotalStats();
             awsRequestMetrics
                 .withCounter(HttpClientPoolAvailableCount, stats.getAvailable())
                 .withCounter(HttpClientPoolLeasedCount, stats.getLeased())
                 .withCounter(HttpClientPoolPendingCount, stats.getPending())
                 ;
+            HttpRoute route;
+            try {
+                route = ConnectionManagerFactory.routeOf(uri, config, connectionManager);
+            } catch (IllegalStateException e) {
+                return;     // unsupported scheme
+            }
+            stats = control.getStats(route);
+            awsRequestMetrics
+                .withCounter(HttpClientPoolRouteAvailableCount, stats.getAvailable())
+                .withCounter(HttpClientPoolRouteLeasedCount, stats.getLeased())
+                .withCounter(HttpClientPoolRoutePendingCount, stats.getPending())
+                ;
         }
     }
 
@@ -685,6 +771,31 @@ public class AmazonHttpClient {
         }
     }
 
+    /**
+     * Opens up to the given number of connections to the given endpoint,
+     * including the TLS handshake for an HTTPS endpoint, and keeps them in the
+     * connection pool so that the first requests to the endpoint don't pay
+     * for the connection setup, e.g. at application startup. Connections
+     * already open in the pool count toward the given number. The number of
+     * connections is limited by the maximum number of connections per route.
+     *
+     * @param endpoint
+     *            The endpoint, e.g. "https://s3.amazonaws.com".
+     * @param count
+     *            The number of connections to open.
+     * @return The number of connections to the endpoint open in the pool;
+     *         less than the given number if the pool limits were reached or
+     *         some connections could not be opened.
+     */
+    public int warmUpConnections(URI endpoint, int count) {
+        if (count <= 0)
+            return 0;
+        ClientConnectionManager connectionManager = httpClient.getConnectionManager();
+        HttpRoute route = ConnectionManagerFactory.routeOf(endpoint, config, connectionManager);
+        return ConnectionManagerFactory.warmUp(connectionManager, route,
+                httpClient.getParams(), config, count);
+    }
+
     /**
      * Shuts down this HTTP client object, releasing any resources that might be
      * held open. This is an optional method, and callers are not expected to
@@ -748,6 +859,49 @@ public class AmazonHttpClient {
                                                            retries);
     }
 
+    /**
+     * Draws from the retry quota for a retry that the retry policy allows.
+     *
+     * @return The number of tokens drawn, or zero if the retry quota is
+     *         exhausted and the request must not be retried.
+     */
+    private int acquireRetryQuota(AmazonClientException exception,
+                                  AWSRequestMetrics awsRequestMetrics) {
+        int cost = retryQuota.acquire(exception);
+        awsRequestMetrics.setCounter(RetryQuotaAvailableCapacity,
+                                     retryQuota.getAvailableCapacity());
+        if (cost == 0) {
+            if (log.isDebugEnabled())
+                log.debug("Retry quota exhausted; not retrying the request");
+            awsRequestMetrics.incrementCounter(RetryQuotaExhausted);
+        }
+        return cost;
+    }
+
+    /**
+     * Gives back to the retry quota, if any, the tokens drawn by the last
+     * retry of a request that eventually succeeded.
+     */
+    private void releaseRetryQuota(int retryQuotaCost) {
+        if (retryQuota != null)
+            retryQuota.release(retryQuotaCost);
+    }
+
+    /**
+     * Updates the adaptive rate limiter, if any, with a response received
+     * from the service.
+     *
+     * @param throttled
+     *            True if the response is a throttling error.
+     */
+    private void updateSendRate(boolean throttled, AWSRequestMetrics awsRequestMetrics) {
+        if (rateLimiter != null) {
+            rateLimiter.onResponse(throttled);
+            if (rateLimiter.isEnabled())
+                awsRequestMetrics.addProperty(ClientSendRate, rateLimiter.getFillRate());
+        }
+    }
+
     private static boolean isTemporaryRedirect(org.apache.http.HttpResponse response) {
         int status = response.getStatusLine().getStatusCode();
         return status == HttpStatus.SC_TEMPORARY_REDIRECT &&
@@ -843,7 +997,9 @@ public class AmazonHttpClient {
                 throw new RuntimeException("Unable to unmarshall response metadata. Response Code: " +
                         httpResponse.getStatusCode() + ", Response Text: " + httpResponse.getStatusText());
 
-            responseMetadataCache.add(request.getOriginalRequest(), awsResponse.getResponseMetadata());
+            if (responseMetadataCache != null) {
+                responseMetadataCache.add(request.getOriginalRequest(), awsResponse.getResponseMetadata());
+            }
 
             if (requestLog.isDebugEnabled()) {
                 final StatusLine statusLine = apacheHttpResponse.getStatusLine();
@@ -20,6 +20,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
@@ -55,6 +57,8 @@ public abstract class AmazonWebServiceClient implements AWSClient{
     private static final String AMAZON = "Amazon";
     private static final String AWS = "AWS";
     public static final boolean LOGGING_AWS_REQUEST_METRIC = true;
+    /** The maximum number of signers memoized by endpoint host. */
+    private static final int MAX_MEMOIZED_SIGNERS = 64;
 
     private static final Log log =
         LogFactory.getLog(AmazonWebServiceClient.class);
@@ -89,6 +93,14 @@ public abstract class AmazonWebServiceClient implements AWSClient{
     /** AWS signer for authenticating requests. */
     private volatile Signer signer;
 
+    /**
+     * The signers returned by {@link #getSignerByURI(URI)}, by endpoint host,
+     * so that the region parsing and the signer lookup and instantiation are
+     * done once per host rather than once per request.
+     */
+    private final ConcurrentMap<String, MemoizedSigner> signersByHost =
+        new ConcurrentHashMap<String, MemoizedSigner>();
+
     /**
      * The cached service abbreviation for this service, used for identifying
      * service endpoints by region, identifying the necessary signer, etc.
@@ -257,7 +269,24 @@ public abstract class AmazonWebServiceClient implements AWSClient{
      * the information on the S3 bucket and key is not yet known.
      */
     public Signer getSignerByURI(URI uri) {
-        return computeSignerByURI(uri, signerRegionOverride, true);
+        final String host = uri == null ? null : uri.getHost();
+        if (host == null) {
+            return computeSignerByURI(uri, signerRegionOverride, true);
+        }
+        final String service = getServiceNameIntern();
+        final String signerType = clientConfiguration.getSignerOverride();
+        final String regionOverride = signerRegionOverride;
+        MemoizedSigner memo = signersByHost.get(host);
+        if (memo != null && memo.isFor(service, signerType, regionOverride)) {
+            return memo.signer;
+        }
+        Signer signer = computeSignerByURI(uri, regionOverride, true);
+        if (signersByHost.size() >= MAX_MEMOIZED_SIGNERS) {
+            signersByHost.clear();
+        }
+        signersByHost.put(host,
+                new MemoizedSigner(signer, service, signerType, regionOverride));
+        return signer;
     }
 
     /**
@@ -423,6 +452,23 @@ public abstract class AmazonWebServiceClient implements AWSClient{
         client.shutdown();
     }
 
+    /**
+     * Opens up to the given number of connections to the current endpoint of
+     * this client and keeps them in the connection pool, so that the first
+     * requests don't pay for the connection setup (e.g. the TLS handshake).
+     * Typically called once at application startup, after the endpoint or
+     * region of the client has been set.
+     *
+     * @param count
+     *            The number of connections to open.
+     * @return The number of connections to the endpoint open in the pool.
+     *
+     * @see AmazonHttpClient#warmUpConnections(URI, int)
+     */
+    public int warmUpConnections(int count) {
+        return client.warmUpConnections(endpoint, count);
+    }
+
     /**
      * Converts a Request<T> object into an HttpRequest object. Copies all the
      * headers, parameters, etc. from the Request into the new HttpRequest.
@@ -765,4 +811,34 @@ public abstract class AmazonWebServiceClient implements AWSClient{
             this.signerRegionOverride = signerRegionOverride;
         }
     }
+
+    /**
+     * A signer computed for an endpoint host, along with the client settings
+     * it was computed from; it is only reused while these are unchanged.
+     */
+    private static final class MemoizedSigner {
+        private final Signer signer;
+        private final String serviceName;
+        private final String signerType;
+        private final String signerRegionOverride;
+
+        MemoizedSigner(Signer signer, String serviceName, String signerType,
+                String signerRegionOverride) {
+            this.signer = signer;
+            this.serviceName = serviceName;
+            this.signerType = signerType;
+            this.signerRegionOverride = signerRegionOverride;
+        }
+
+        boolean isFor(String serviceName, String signerType,
+                String signerRegionOverride) {
+            return equal(this.serviceName, serviceName)
+                && equal(this.signerType, signerType)
+                && equal(this.signerRegionOverride, signerRegionOverride);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
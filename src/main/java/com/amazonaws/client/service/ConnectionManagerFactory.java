@@ -14,27 +14,145 @@
  */
 package com.amazonaws.client.service;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
 
 import com.amazonaws.client.ClientConfiguration;
 import com.amazonaws.client.http.IdleConnectionReaper;
+import com.amazonaws.client.http.conn.CachingDnsResolver;
 
 /** Responsible for creating and configuring instances of Apache HttpClient4's Connection Manager. */
 class ConnectionManagerFactory {
+    private static final Log log = LogFactory.getLog(ConnectionManagerFactory.class);
+    /** The maximum number of connections opened concurrently by a warm-up. */
+    private static final int MAX_WARM_UP_THREADS = 8;
 
     public static PoolingClientConnectionManager createPoolingClientConnManager( ClientConfiguration config, HttpParams httpClientParams ) {
+        DnsResolver dnsResolver = config.getDnsCacheTtlMillis() > 0
+                ? CachingDnsResolver.getShared(config.getDnsCacheTtlMillis())
+                : new SystemDefaultDnsResolver();
         PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(
                 SchemeRegistryFactory.createDefault(),
-                config.getConnectionTTL(), TimeUnit.MILLISECONDS);
-        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+                config.getConnectionTTL(), TimeUnit.MILLISECONDS, dnsResolver);
+        final int maxPerRoute = config.getMaxConnectionsPerRoute();
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute > 0
+                ? Math.min(maxPerRoute, config.getMaxConnections())
+                : config.getMaxConnections());
         connectionManager.setMaxTotal(config.getMaxConnections());
         if (config.useReaper()) {
-            IdleConnectionReaper.registerConnectionManager(connectionManager);
+            IdleConnectionReaper.registerConnectionManager(connectionManager,
+                    config.getConnectionMaxIdleMillis());
         }
         return connectionManager;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the route of the connections to the given endpoint, as planned
+     * by the http client for the given configuration.
+     */
+    static HttpRoute routeOf(URI endpoint, ClientConfiguration config,
+            ClientConnectionManager connectionManager) {
+        Scheme scheme = connectionManager.getSchemeRegistry().getScheme(endpoint.getScheme());
+        int port = scheme.resolvePort(endpoint.getPort());
+        HttpHost target = new HttpHost(endpoint.getHost(), port, endpoint.getScheme());
+        boolean secure = scheme.isLayered();
+        String proxyHost = config.getProxyHost();
+        int proxyPort = config.getProxyPort();
+        if (proxyHost != null && proxyPort > 0) {
+            return new HttpRoute(target, config.getLocalAddress(),
+                    new HttpHost(proxyHost, proxyPort), secure);
+        }
+        return new HttpRoute(target, config.getLocalAddress(), secure);
+    }
+
+    /**
+     * Opens up to the given number of connections of the given route and
+     * releases them to the pool, so that they are ready for the first requests
+     * to the route. Connections already open in the pool are counted as well.
+     * Stops early, without failing, if the connections cannot be leased within
+     * the connection timeout or opened.
+     *
+     * @return the number of open connections in the pool for the route
+     */
+    static int warmUp(final ClientConnectionManager connectionManager,
+            final HttpRoute route, final HttpParams params,
+            ClientConfiguration config, int count) {
+        List<ManagedClientConnection> connections = new ArrayList<ManagedClientConnection>(count);
+        ExecutorService executor = null;
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    connections.add(connectionManager.requestConnection(route, null)
+                            .getConnection(config.getConnectionTimeout(), TimeUnit.MILLISECONDS));
+                } catch (ConnectionPoolTimeoutException e) {
+                    break;  // route or pool at its maximum
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(connections.size());
+            for (final ManagedClientConnection conn : connections) {
+                if (conn.isOpen())
+                    continue;
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(
+                            Math.min(connections.size(), MAX_WARM_UP_THREADS));
+                }
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        conn.open(route, new BasicHttpContext(), params);
+                        conn.markReusable();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.debug("Unable to warm up a connection to " + route, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+        int open = 0;
+        for (ManagedClientConnection conn : connections) {
+            if (conn.isOpen()) {
+                conn.markReusable();
+                open++;
+            }
+            connectionManager.releaseConnection(conn,
+                    config.getConnectionMaxIdleMillis(), TimeUnit.MILLISECONDS);
+        }
+        return open;
+    }
+}
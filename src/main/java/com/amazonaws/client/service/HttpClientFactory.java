@@ -20,7 +20,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
@@ -61,7 +61,9 @@ import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 
 import com.amazonaws.client.ClientConfiguration;
+import com.amazonaws.client.http.conn.SdkSSLContexts;
 import com.amazonaws.client.http.impl.client.HttpRequestNoRetryHandler;
+import com.amazonaws.client.http.impl.client.SdkConnectionKeepAliveStrategy;
 import com.amazonaws.client.http.impl.client.SdkHttpClient;
 import com.amazonaws.exception.AmazonClientException;
 
@@ -99,6 +101,8 @@ class HttpClientFactory {
         SdkHttpClient httpClient = new SdkHttpClient(connectionManager, httpClientParams);
         httpClient.setHttpRequestRetryHandler(HttpRequestNoRetryHandler.Singleton);
         httpClient.setRedirectStrategy(new LocationHeaderNotRequiredRedirectStrategy());
+        httpClient.setKeepAliveStrategy(
+                new SdkConnectionKeepAliveStrategy(config.getConnectionMaxIdleMillis()));
 
         if (config.getLocalAddress() != null) {
             ConnRouteParams.setLocalAddress(httpClientParams, config.getLocalAddress());
@@ -107,14 +111,15 @@ class HttpClientFactory {
         try {
             Scheme http = new Scheme("http", 80, PlainSocketFactory.getSocketFactory());
             SSLSocketFactory sf = new SSLSocketFactory(
-                    SSLContext.getDefault(),
+                    SdkSSLContexts.getSSLContext(config.getTlsSessionCacheSize(),
+                            config.getTlsSessionTimeoutSeconds()),
                     SSLSocketFactory.STRICT_HOSTNAME_VERIFIER);
             Scheme https = new Scheme("https", 443, sf);
             SchemeRegistry sr = connectionManager.getSchemeRegistry();
             sr.register(http);
             sr.register(https);
-        } catch (NoSuchAlgorithmException e) {
-            throw new AmazonClientException("Unable to access default SSL context", e);
+        } catch (GeneralSecurityException e) {
+            throw new AmazonClientException("Unable to access the SSL context", e);
         }
 
         /*
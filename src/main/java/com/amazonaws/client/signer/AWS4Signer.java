@@ -17,10 +17,9 @@ package com.amazonaws.client.signer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,6 +50,13 @@ public class AWS4Signer extends AbstractAWSSigner
     private static final DateTimeFormatter timeFormatter = DateTimeFormat
             .forPattern("yyyyMMdd'T'HHmmss'Z'").withZoneUTC();
 
+    /**
+     * Derived signing keys shared by all AWS4 signers; a signing key only
+     * changes with the secret key, day, region and service.
+     */
+    private static final SigningKeyCache signingKeyCache =
+            new SigningKeyCache(SigningKeyCache.DEFAULT_MAX_ENTRIES);
+
     /** Seconds in a week, which is the max expiration time Sig-v4 accepts */
     private final static long MAX_EXPIRATION_TIME_IN_SECONDS = 60 * 60 * 24 * 7;
     /**
@@ -77,6 +83,20 @@ public class AWS4Signer extends AbstractAWSSigner
      */
     protected boolean doubleUrlEncode;
 
+    /**
+     * Whether neither {@link #getCanonicalizedHeaderString(Request)} nor
+     * {@link #getSignedHeadersString(Request)} is overridden, so that both
+     * can be built in a single pass over the sorted headers.
+     */
+    private final boolean singlePassHeaders;
+
+    /**
+     * Whether {@link #getCanonicalRequest(Request, String)} is not
+     * overridden, so that the signed headers can be taken from the pass
+     * building the canonical request.
+     */
+    private final boolean defaultCanonicalRequest;
+
     /**
      * Construct a new AWS4 signer instance.
      * By default, enable double url-encoding.
@@ -94,6 +114,29 @@ public class AWS4Signer extends AbstractAWSSigner
      */
     public AWS4Signer(boolean doubleUrlEncoding) {
         this.doubleUrlEncode = doubleUrlEncoding;
+        this.singlePassHeaders =
+                !overrides(getClass(), "getCanonicalizedHeaderString", Request.class)
+                && !overrides(getClass(), "getSignedHeadersString", Request.class);
+        this.defaultCanonicalRequest =
+                !overrides(getClass(), "getCanonicalRequest", Request.class, String.class);
+    }
+
+    /**
+     * Returns true if the given method of this class is overridden by the
+     * given subclass, or if that can't be determined.
+     */
+    private static boolean overrides(Class<?> subclass, String name, Class<?>... parameterTypes) {
+        for (Class<?> c = subclass; c != AWS4Signer.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared at this level
+            } catch (SecurityException e) {
+                return true;
+            }
+        }
+        return false;
     }
 
     protected static final Log log = LogFactory.getLog(AWS4Signer.class);
@@ -139,7 +182,7 @@ public class AWS4Signer extends AbstractAWSSigner
         String credentialsAuthorizationHeader =
                 "Credential=" + signingCredentials;
         String signedHeadersAuthorizationHeader =
-                "SignedHeaders=" + getSignedHeadersString(request);
+                "SignedHeaders=" + headerSigningResult.getSignedHeaders();
         String signatureAuthorizationHeader =
                 "Signature=" + BinaryUtils.toHex(headerSigningResult.getSignature());
 
@@ -212,54 +255,97 @@ public class AWS4Signer extends AbstractAWSSigner
     }
 
     protected String getCanonicalizedHeaderString(Request<?> request) {
-        List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
         StringBuilder buffer = new StringBuilder();
-        for (String header : sortedHeaders) {
-            String key = header.toLowerCase().replaceAll("\\s+", " ");
-            String value = request.getHeaders().get(header);
-
-            buffer.append(key).append(":");
-            if (value != null) {
-                buffer.append(value.replaceAll("\\s+", " "));
-            }
-
-            buffer.append("\n");
-        }
-
+        appendCanonicalizedHeaders(request, buffer, null);
         return buffer.toString();
     }
 
     protected String getSignedHeadersString(Request<?> request) {
-        List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
         StringBuilder buffer = new StringBuilder();
-        for (String header : sortedHeaders) {
-            if (buffer.length() > 0) buffer.append(";");
-            buffer.append(header.toLowerCase());
+        appendCanonicalizedHeaders(request, null, buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Sorts the request headers once and, in the same traversal, appends the
+     * canonicalized header lines and/or the semicolon separated list of signed
+     * header names to the given buffers. Either buffer may be null.
+     */
+    private void appendCanonicalizedHeaders(Request<?> request,
+            StringBuilder canonicalHeaders, StringBuilder signedHeaders) {
+        Map<String, String> headers = request.getHeaders();
+        String[] sortedHeaders = headers.keySet().toArray(new String[headers.size()]);
+        Arrays.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+        for (int i = 0; i < sortedHeaders.length; i++) {
+            String header = sortedHeaders[i];
+            String key = header.toLowerCase();
+            if (signedHeaders != null) {
+                if (i > 0) signedHeaders.append(";");
+                signedHeaders.append(key);
+            }
+            if (canonicalHeaders != null) {
+                appendCompactedWhitespace(canonicalHeaders, key);
+                canonicalHeaders.append(":");
+                String value = headers.get(header);
+                if (value != null) {
+                    appendCompactedWhitespace(canonicalHeaders, value);
+                }
+                canonicalHeaders.append("\n");
+            }
         }
+    }
 
-        return buffer.toString();
+    /**
+     * Appends the given string, replacing each run of whitespace characters
+     * (as matched by the regex "\\s") with a single space.
+     */
+    private static void appendCompactedWhitespace(StringBuilder buffer, String value) {
+        boolean inWhitespace = false;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                    || c == '\f' || c == '\r') {
+                if (!inWhitespace) buffer.append(' ');
+                inWhitespace = true;
+            } else {
+                buffer.append(c);
+                inWhitespace = false;
+            }
+        }
     }
 
     protected String getCanonicalRequest(Request<?> request, String contentSha256) {
+        return buildCanonicalRequest(request, contentSha256, new StringBuilder());
+    }
+
+    /**
+     * Builds the canonical request, appending the list of signed headers it
+     * contains to the given buffer.
+     */
+    private String buildCanonicalRequest(Request<?> request, String contentSha256,
+            StringBuilder signedHeaders) {
         /* This would url-encode the resource path for the first time */
         String path = HttpUtils.appendUri(request.getEndpoint().getPath(), request.getResourcePath());
 
-        String canonicalRequest =
-                request.getHttpMethod().toString() + "\n" +
+        StringBuilder canonicalRequest = new StringBuilder(512);
+        canonicalRequest.append(request.getHttpMethod().toString()).append("\n")
         /* This would optionally double url-encode the resource path */
-                        getCanonicalizedResourcePath(path, doubleUrlEncode) + "\n" +
-                        getCanonicalizedQueryString(request) + "\n" +
-                        getCanonicalizedHeaderString(request) + "\n" +
-                        getSignedHeadersString(request) + "\n" +
-                        contentSha256;
-        log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
-        return canonicalRequest;
+                .append(getCanonicalizedResourcePath(path, doubleUrlEncode)).append("\n")
+                .append(getCanonicalizedQueryString(request)).append("\n");
+        if (singlePassHeaders) {
+            appendCanonicalizedHeaders(request, canonicalRequest, signedHeaders);
+        } else {
+            canonicalRequest.append(getCanonicalizedHeaderString(request));
+            signedHeaders.append(getSignedHeadersString(request));
+        }
+        canonicalRequest.append("\n")
+                .append(signedHeaders).append("\n")
+                .append(contentSha256);
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
+        }
+        return canonicalRequest.toString();
     }
 
     protected String getStringToSign(String algorithm, String dateTime, String scope, String canonicalRequest) {
@@ -268,7 +354,9 @@ public class AWS4Signer extends AbstractAWSSigner
                         dateTime + "\n" +
                         scope + "\n" +
                         BinaryUtils.toHex(hash(canonicalRequest));
-        log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        }
         return stringToSign;
     }
 
@@ -285,18 +373,56 @@ public class AWS4Signer extends AbstractAWSSigner
         String serviceName = extractServiceName(request.getEndpoint());
         String scope =  dateStamp + "/" + regionName + "/" + serviceName + "/" + TERMINATOR;
 
-        String stringToSign = getStringToSign(algorithm, timeStamp, scope, getCanonicalRequest(request,contentSha256 ));
+        String canonicalRequest;
+        String signedHeaders;
+        if (defaultCanonicalRequest) {
+            StringBuilder signedHeadersBuffer = new StringBuilder();
+            canonicalRequest = buildCanonicalRequest(request, contentSha256, signedHeadersBuffer);
+            signedHeaders = signedHeadersBuffer.toString();
+        } else {
+            canonicalRequest = getCanonicalRequest(request, contentSha256);
+            signedHeaders = getSignedHeadersString(request);
+        }
+        String stringToSign = getStringToSign(algorithm, timeStamp, scope, canonicalRequest);
+
+        byte[] kSigning = getSigningKey(sanitizedCredentials, dateStamp,
+                regionName, serviceName);
+
+        byte[] signature = sign(stringToSign.getBytes(), kSigning, SigningAlgorithm.HmacSHA256);
+        return new HeaderSigningResult(timeStamp, scope, kSigning, signature,
+                signedHeaders);
+    }
+
+    /**
+     * Returns the AWS4 signing key for the given scope, deriving it only if
+     * no key for the same secret key, day, region and service is cached.
+     */
+    private byte[] getSigningKey(AWSCredentials sanitizedCredentials,
+            String dateStamp, String regionName, String serviceName) {
+        byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey()).getBytes();
+        // Never use the plaintext secret key as a cache key
+        String fingerprint = BinaryUtils.toHex(hash(kSecret));
+        byte[] kSigning = signingKeyCache.get(fingerprint, dateStamp,
+                regionName, serviceName);
+        if (kSigning != null) return kSigning;
 
         // AWS4 uses a series of derived keys, formed by hashing different
         // pieces of data
-        byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey()).getBytes();
         byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
         byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
         byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        signingKeyCache.put(fingerprint, dateStamp, regionName, serviceName,
+                kSigning);
+        return kSigning;
+    }
 
-        byte[] signature = sign(stringToSign.getBytes(), kSigning, SigningAlgorithm.HmacSHA256);
-        return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
+    /**
+     * Returns the cache of derived signing keys shared by all AWS4 signers,
+     * e.g. for inspecting its hit and miss counters.
+     */
+    public static SigningKeyCache getSigningKeyCache() {
+        return signingKeyCache;
     }
 
     protected final String getTimeStamp(long dateMilli) {
@@ -367,12 +493,19 @@ public class AWS4Signer extends AbstractAWSSigner
         private String scope;
         private byte[] kSigning;
         private byte[] signature;
+        private String signedHeaders;
 
         public HeaderSigningResult(String dateTime, String scope, byte[] kSigning, byte[] signature) {
+            this(dateTime, scope, kSigning, signature, null);
+        }
+
+        public HeaderSigningResult(String dateTime, String scope, byte[] kSigning, byte[] signature,
+                String signedHeaders) {
             this.dateTime = dateTime;
             this.scope = scope;
             this.kSigning = kSigning;
             this.signature = signature;
+            this.signedHeaders = signedHeaders;
         }
 
         public String getDateTime() {
@@ -389,6 +522,14 @@ public class AWS4Signer extends AbstractAWSSigner
             return kSigningCopy;
         }
 
+        /**
+         * Returns the semicolon separated list of the header names that were
+         * signed.
+         */
+        public String getSignedHeaders() {
+            return signedHeaders;
+        }
+
         public byte[] getSignature() {
             byte[] signatureCopy = new byte[signature.length];
             System.arraycopy(signature, 0, signatureCopy, 0, signature.length);
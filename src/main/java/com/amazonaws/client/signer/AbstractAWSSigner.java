@@ -39,11 +39,13 @@ import com.amazonaws.auth.SigningAlgorithm;
 import com.amazonaws.client.HttpUtils;
 import com.amazonaws.client.Signer;
 import com.amazonaws.client.util.io.ProgressInputStream;
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.client.util.sdk.SdkDigestInputStream;
 import com.amazonaws.credential.AWSCredentials;
 import com.amazonaws.exception.AmazonClientException;
 import com.amazonaws.json.codec.Base64;
 import com.amazonaws.network.type.Request;
+import com.amazonaws.utility.DigestAlgorithm;
 
 /**
  * Abstract base class for AWS signing protocol implementations. Provides
@@ -53,6 +55,8 @@ import com.amazonaws.network.type.Request;
  * Not intended to be sub-classed by developers.
  */
 public abstract class AbstractAWSSigner implements Signer {
+    /** Size of the buffer used to read a payload stream for hashing. */
+    private static final int HASH_BUFFER_SIZE = 4 * 1024;
 
     /**
      * Computes an RFC 2104-compliant HMAC signature and returns the result as a
@@ -89,7 +93,7 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] sign(byte[] data, byte[] key, SigningAlgorithm algorithm) throws AmazonClientException {
         try {
-            Mac mac = Mac.getInstance(algorithm.toString());
+            Mac mac = algorithm.getMac();
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (Exception e) {
@@ -111,24 +115,26 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(String text) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(text.getBytes(UTF8));
-            return md.digest();
+            return DigestAlgorithm.SHA256.digest(text.getBytes(UTF8));
         } catch (Exception e) {
             throw new AmazonClientException("Unable to compute hash while signing request: " + e.getMessage(), e);
         }
     }
 
     protected byte[] hash(InputStream input) throws AmazonClientException {
+        byte[] buffer = BufferPool.getDefault().acquire(HASH_BUFFER_SIZE);
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            // The digest is owned by the stream, so it can't be the
+            // thread-local one
+            MessageDigest md = DigestAlgorithm.SHA256.newDigest();
             @SuppressWarnings("resource")
             DigestInputStream digestInputStream = new SdkDigestInputStream(input, md);
-            byte[] buffer = new byte[1024];
             while (digestInputStream.read(buffer) > -1);
             return digestInputStream.getMessageDigest().digest();
         } catch (Exception e) {
             throw new AmazonClientException("Unable to compute hash while signing request: " + e.getMessage(), e);
+        } finally {
+            BufferPool.getDefault().release(buffer);
         }
     }
 
@@ -146,8 +152,19 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(byte[] data) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(data);
+            return DigestAlgorithm.SHA256.digest(data);
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to compute hash while signing request: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hashes the given range of the binary data using the SHA-256 algorithm.
+     */
+    public byte[] hash(byte[] data, int offset, int length) throws AmazonClientException {
+        try {
+            MessageDigest md = DigestAlgorithm.SHA256.getThreadLocalDigest();
+            md.update(data, offset, length);
             return md.digest();
         } catch (Exception e) {
             throw new AmazonClientException("Unable to compute hash while signing request: " + e.getMessage(), e);
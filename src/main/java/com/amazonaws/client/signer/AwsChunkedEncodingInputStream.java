@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.auth.SigningAlgorithm;
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.client.util.sdk.SdkInputStream;
 import com.amazonaws.exception.AmazonClientException;
 import com.amazonaws.json.codec.BinaryUtils;
@@ -51,6 +52,9 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
     private String priorChunkSignature;
     private final AWS4Signer aws4Signer;
 
+    /** Buffer for the data of the next chunk, borrowed from the buffer pool */
+    private byte[] chunkBuffer;
+
     /** Iterator on the current chunk that has been signed */
     private ChunkContentIterator currentChunkIterator;
 
@@ -276,7 +280,9 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
      * 		Returns true if next chunk is the last empty chunk.
      */
     private boolean setUpNextChunk() throws IOException {
-        byte[] chunkData = new byte[DEFAULT_CHUNK_SIZE];
+        if (chunkBuffer == null)
+            chunkBuffer = BufferPool.getDefault().acquire(DEFAULT_CHUNK_SIZE);
+        final byte[] chunkData = chunkBuffer;
         int chunkSizeInBytes = 0;
         while (chunkSizeInBytes < DEFAULT_CHUNK_SIZE) {
             /** Read from the buffer of the decoded stream */
@@ -298,26 +304,37 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
             }
         }
         if (chunkSizeInBytes == 0){
-            byte[] signedFinalChunk = createSignedChunk(FINAL_CHUNK);
+            byte[] signedFinalChunk = createSignedChunk(FINAL_CHUNK, 0);
             currentChunkIterator = new ChunkContentIterator(signedFinalChunk);
+            releaseChunkBuffer();
             return true;
         }
         else {
-            if (chunkSizeInBytes < chunkData.length) {
-                byte[] temp = new byte[chunkSizeInBytes];
-                System.arraycopy(chunkData, 0, temp, 0, chunkSizeInBytes);
-                chunkData = temp;
-            }
-            byte[] signedChunkContent = createSignedChunk(chunkData);
+            byte[] signedChunkContent = createSignedChunk(chunkData, chunkSizeInBytes);
             currentChunkIterator = new ChunkContentIterator(signedChunkContent);
             return false;
         }
     }
 
-    private byte[] createSignedChunk(byte[] chunkData) {
+    /**
+     * Returns the chunk buffer to the shared pool; a new one is acquired if
+     * this stream is reset and read again.
+     */
+    private void releaseChunkBuffer() {
+        BufferPool.getDefault().release(chunkBuffer);
+        chunkBuffer = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        releaseChunkBuffer();
+        super.close();
+    }
+
+    private byte[] createSignedChunk(byte[] chunkData, int chunkLength) {
         StringBuilder chunkHeader = new StringBuilder();
         // chunk-size
-        chunkHeader.append(Integer.toHexString(chunkData.length));
+        chunkHeader.append(Integer.toHexString(chunkLength));
         // nonsig-extension
         String nonsigExtension = "";
         // sig-extension
@@ -327,7 +344,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
                 keyPath + "\n" +
                 priorChunkSignature + "\n" +
                 BinaryUtils.toHex(aws4Signer.hash(nonsigExtension)) + "\n" +
-                BinaryUtils.toHex(aws4Signer.hash(chunkData));
+                BinaryUtils.toHex(aws4Signer.hash(chunkData, 0, chunkLength));
         String chunkSignature = BinaryUtils.toHex(aws4Signer.sign(chunkStringToSign, kSigning, SigningAlgorithm.HmacSHA256));
         priorChunkSignature = chunkSignature;
         chunkHeader.append(nonsigExtension + CHUNK_SIGNATURE_HEADER + chunkSignature);
@@ -336,11 +353,11 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
         try {
             byte[] header = chunkHeader.toString().getBytes(UTF8);
             byte[] trailer = CLRF.getBytes(UTF8);
-            byte[] signedChunk = new byte[header.length + chunkData.length + trailer.length];
+            byte[] signedChunk = new byte[header.length + chunkLength + trailer.length];
             System.arraycopy(header, 0, signedChunk, 0, header.length);
-            System.arraycopy(chunkData, 0, signedChunk, header.length, chunkData.length);
+            System.arraycopy(chunkData, 0, signedChunk, header.length, chunkLength);
             System.arraycopy(trailer, 0,
-                    signedChunk, header.length + chunkData.length,
+                    signedChunk, header.length + chunkLength,
                     trailer.length);
             return signedChunk;
         } catch (Exception e) {
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.signer;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of derived AWS4 signing keys. A signing key only depends on
+ * the secret key, the date stamp, the region and the service, so it can be
+ * reused across all the requests signed on the same day for the same scope.
+ * <p>
+ * Entries are keyed by a fingerprint of the secret key rather than the secret
+ * key itself, together with the region and service name. Each entry remembers
+ * the date stamp it was derived for; a lookup with a different date stamp is
+ * treated as a miss, so cached keys naturally expire at day rollover. Once the
+ * max size has been reached, the least recently used entry is aged out.
+ * <p>
+ * This class is thread safe.
+ */
+public class SigningKeyCache {
+    /** Default maximum number of signing keys held by the cache. */
+    public static final int DEFAULT_MAX_ENTRIES = 300;
+
+    private final InternalCache internalCache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a new cache that will contain, at most the specified number of
+     * entries.
+     *
+     * @param maxEntries
+     *            The maximum size of this cache.
+     */
+    public SigningKeyCache(int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        internalCache = new InternalCache(maxEntries);
+    }
+
+    /**
+     * Returns the signing key previously derived for the given scope, or null
+     * if no key for that scope was derived on the given date.
+     *
+     * @param secretKeyFingerprint
+     *            A one-way fingerprint of the secret key; never the secret key
+     *            itself.
+     * @param dateStamp
+     *            The "yyyyMMdd" date stamp of the signing scope.
+     * @param regionName
+     *            The region name of the signing scope.
+     * @param serviceName
+     *            The service name of the signing scope.
+     */
+    public byte[] get(String secretKeyFingerprint, String dateStamp,
+            String regionName, String serviceName) {
+        String cacheKey = cacheKey(secretKeyFingerprint, regionName, serviceName);
+        CachedSigningKey cached;
+        synchronized (internalCache) {
+            cached = internalCache.get(cacheKey);
+        }
+        if (cached == null || !cached.dateStamp.equals(dateStamp)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return cached.signingKey;
+    }
+
+    /**
+     * Adds a newly derived signing key to this cache, replacing any key
+     * derived for the same scope on a previous day, and possibly evicting the
+     * least recently used entry if the cache is at its size limit.
+     * <p>
+     * The given byte array is retained by the cache and must not be modified
+     * afterwards.
+     */
+    public void put(String secretKeyFingerprint, String dateStamp,
+            String regionName, String serviceName, byte[] signingKey) {
+        String cacheKey = cacheKey(secretKeyFingerprint, regionName, serviceName);
+        CachedSigningKey cached = new CachedSigningKey(dateStamp, signingKey);
+        synchronized (internalCache) {
+            internalCache.put(cacheKey, cached);
+        }
+    }
+
+    /**
+     * Removes all entries from this cache. The hit and miss counters are left
+     * untouched.
+     */
+    public void clear() {
+        synchronized (internalCache) {
+            internalCache.clear();
+        }
+    }
+
+    /** Returns the current number of entries in this cache. */
+    public int size() {
+        synchronized (internalCache) {
+            return internalCache.size();
+        }
+    }
+
+    /** Returns the number of lookups that found a usable signing key. */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no signing key, or one derived
+     * for a different day.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static String cacheKey(String secretKeyFingerprint,
+            String regionName, String serviceName) {
+        return secretKeyFingerprint + "/" + regionName + "/" + serviceName;
+    }
+
+    /**
+     * A derived signing key together with the date stamp it is valid for.
+     */
+    private static final class CachedSigningKey {
+        private final String dateStamp;
+        private final byte[] signingKey;
+
+        CachedSigningKey(String dateStamp, byte[] signingKey) {
+            this.dateStamp = dateStamp;
+            this.signingKey = signingKey;
+        }
+    }
+
+    /**
+     * Simple implementation of LinkedHashMap in access order that overrides
+     * the <code>removeEldestEntry</code> method to turn LinkedHashMap into a
+     * LRU cache that automatically evicts old entries.
+     */
+    private static final class InternalCache extends LinkedHashMap<String, CachedSigningKey> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        InternalCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, CachedSigningKey> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
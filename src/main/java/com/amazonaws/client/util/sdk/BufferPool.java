@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.util.sdk;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of I/O buffers shared by the SDK streams, so that the
+ * buffers used for copying and repeating stream content are recycled across
+ * requests instead of being allocated per request or per copy loop.
+ * <p>
+ * Buffers are tiered by size: a request for a buffer is served with a buffer
+ * of the smallest tier that is large enough, from 4KB up to 4MB (each tier
+ * being four times the previous one). Larger requests are allocated and never
+ * pooled. A buffer returned to the pool is kept only as long as the total
+ * size of the pooled buffers stays within the configured maximum, and is
+ * otherwise left to the garbage collector, so borrowing a buffer and never
+ * returning it is harmless.
+ * <p>
+ * Heap buffers are pooled up to {@value #DEFAULT_MAX_POOLED_BYTES} bytes by
+ * default. Direct buffers are only pooled if a maximum is configured via
+ * {@link #setMaxPooledDirectBytes(long)}.
+ * <p>
+ * This class is thread safe.
+ */
+public final class BufferPool {
+    /** Default maximum total size of the pooled heap buffers. */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 32L << 20;
+    /** Default maximum total size of the pooled direct buffers. */
+    public static final long DEFAULT_MAX_POOLED_DIRECT_BYTES = 0;
+
+    private static final int MIN_TIER_SIZE = 4 << 10;
+    private static final int TIER_COUNT = 6;
+    private static final int MAX_TIER_SIZE = MIN_TIER_SIZE << (2 * (TIER_COUNT - 1));
+
+    private static final BufferPool DEFAULT = new BufferPool();
+
+    private final Tier<byte[]> heap = new Tier<byte[]>();
+    private final Tier<ByteBuffer> direct = new Tier<ByteBuffer>();
+
+    private volatile long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+    private volatile long maxPooledDirectBytes = DEFAULT_MAX_POOLED_DIRECT_BYTES;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong releaseCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+
+    /** Returns the buffer pool shared by the SDK. */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a heap buffer of at least the given size. The content of the
+     * returned buffer is undefined.
+     */
+    public byte[] acquire(int minSize) {
+        acquireCount.incrementAndGet();
+        final int tier = tierOf(minSize);
+        if (tier >= 0) {
+            byte[] b = heap.poll(tier);
+            if (b != null) {
+                hitCount.incrementAndGet();
+                return b;
+            }
+            return new byte[tierSize(tier)];
+        }
+        return new byte[minSize];
+    }
+
+    /**
+     * Returns the given heap buffer to the pool. The buffer must not be used
+     * by the caller after this call. Null is ignored.
+     */
+    public void release(byte[] b) {
+        if (b == null)
+            return;
+        releaseCount.incrementAndGet();
+        final int tier = exactTierOf(b.length);
+        if (tier < 0 || !heap.offer(tier, b, b.length, maxPooledBytes))
+            discardCount.incrementAndGet();
+    }
+
+    /**
+     * Returns a direct buffer of at least the given capacity, cleared (i.e.
+     * with its position set to zero and its limit to its capacity). The
+     * content of the returned buffer is undefined.
+     */
+    public ByteBuffer acquireDirect(int minSize) {
+        acquireCount.incrementAndGet();
+        final int tier = tierOf(minSize);
+        if (tier >= 0) {
+            ByteBuffer b = direct.poll(tier);
+            if (b != null) {
+                hitCount.incrementAndGet();
+                b.clear();
+                return b;
+            }
+            return ByteBuffer.allocateDirect(tierSize(tier));
+        }
+        return ByteBuffer.allocateDirect(minSize);
+    }
+
+    /**
+     * Returns the given direct buffer to the pool. The buffer, and any view
+     * of it, must not be used by the caller after this call. Null and heap
+     * buffers are ignored.
+     */
+    public void release(ByteBuffer b) {
+        if (b == null || !b.isDirect())
+            return;
+        releaseCount.incrementAndGet();
+        final int tier = exactTierOf(b.capacity());
+        if (tier < 0 || !direct.offer(tier, b, b.capacity(), maxPooledDirectBytes))
+            discardCount.incrementAndGet();
+    }
+
+    /** Returns the maximum total size of the pooled heap buffers. */
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the pooled heap buffers; zero disables
+     * the pooling of heap buffers. Lowering the maximum does not drop the
+     * buffers already pooled, but no buffer is pooled again until the total
+     * falls below the new maximum.
+     */
+    public void setMaxPooledBytes(long maxPooledBytes) {
+        if (maxPooledBytes < 0)
+            throw new IllegalArgumentException("maxPooledBytes must not be negative");
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /** Returns the maximum total size of the pooled direct buffers. */
+    public long getMaxPooledDirectBytes() {
+        return maxPooledDirectBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the pooled direct buffers; zero (the
+     * default) disables the pooling of direct buffers.
+     */
+    public void setMaxPooledDirectBytes(long maxPooledDirectBytes) {
+        if (maxPooledDirectBytes < 0)
+            throw new IllegalArgumentException("maxPooledDirectBytes must not be negative");
+        this.maxPooledDirectBytes = maxPooledDirectBytes;
+    }
+
+    /** Returns the current total size of the pooled heap buffers. */
+    public long getPooledBytes() {
+        return heap.pooledBytes.get();
+    }
+
+    /** Returns the current total size of the pooled direct buffers. */
+    public long getPooledDirectBytes() {
+        return direct.pooledBytes.get();
+    }
+
+    /** Returns the number of buffers acquired from this pool. */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /** Returns the number of acquired buffers that were recycled. */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** Returns the number of buffers returned to this pool. */
+    public long getReleaseCount() {
+        return releaseCount.get();
+    }
+
+    /**
+     * Returns the number of buffers returned to this pool that were dropped,
+     * either because they were not of a tier size or the pool was full.
+     */
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    /** Drops all the pooled buffers. */
+    public void clear() {
+        heap.clear();
+        direct.clear();
+    }
+
+    private static int tierSize(int tier) {
+        return MIN_TIER_SIZE << (2 * tier);
+    }
+
+    /**
+     * Returns the smallest tier holding buffers of at least the given size, or
+     * -1 if the size is beyond the largest tier.
+     */
+    private static int tierOf(int size) {
+        if (size > MAX_TIER_SIZE)
+            return -1;
+        int tier = 0;
+        while (tierSize(tier) < size)
+            tier++;
+        return tier;
+    }
+
+    /** Returns the tier of buffers of exactly the given size, or -1 if none. */
+    private static int exactTierOf(int size) {
+        int tier = tierOf(size);
+        return tier >= 0 && tierSize(tier) == size ? tier : -1;
+    }
+
+    /**
+     * The pooled buffers of a kind, one queue per tier, together with their
+     * total size.
+     */
+    private static final class Tier<B> {
+        private final Queue<B>[] queues;
+        private final AtomicLong pooledBytes = new AtomicLong();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Tier() {
+            queues = new Queue[TIER_COUNT];
+            for (int i = 0; i < TIER_COUNT; i++)
+                queues[i] = new ConcurrentLinkedQueue<B>();
+        }
+
+        B poll(int tier) {
+            B b = queues[tier].poll();
+            if (b != null)
+                pooledBytes.addAndGet(-tierSize(tier));
+            return b;
+        }
+
+        boolean offer(int tier, B b, int size, long maxBytes) {
+            for (;;) {
+                long current = pooledBytes.get();
+                if (current + size > maxBytes)
+                    return false;
+                if (pooledBytes.compareAndSet(current, current + size))
+                    break;
+            }
+            queues[tier].offer(b);
+            return true;
+        }
+
+        void clear() {
+            for (int i = 0; i < TIER_COUNT; i++) {
+                while (poll(i) != null)
+                    ;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.client.util.sdk;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.http.annotation.NotThreadSafe;
+
+/**
+ * An input stream over the remaining content of a {@link ByteBuffer}, which
+ * may be a heap, direct or memory-mapped buffer.
+ * <p>
+ * The stream reads from a private duplicate of the given buffer, so the
+ * position and limit of the caller's buffer are never modified. Mark and
+ * reset are supported without any buffering, so the content can be read
+ * again on a retry, and the original buffer content can be accessed directly
+ * via {@link #getByteBuffer()} (e.g. to compute a checksum without copying
+ * the data into a stream).
+ */
+@NotThreadSafe
+public class ByteBufferInputStream extends SdkInputStream {
+    private final ByteBuffer original;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param byteBuffer
+     *            The buffer whose remaining content (from its current
+     *            position to its limit) is to be read.
+     */
+    public ByteBufferInputStream(ByteBuffer byteBuffer) {
+        if (byteBuffer == null)
+            throw new IllegalArgumentException("byteBuffer must not be null");
+        this.original = byteBuffer.duplicate();
+        this.buffer = byteBuffer.duplicate();
+        this.buffer.mark();
+    }
+
+    /**
+     * Returns a new read-only view of the full content of this stream,
+     * regardless of how much of it has been read so far.
+     */
+    public ByteBuffer getByteBuffer() {
+        return original.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the total number of bytes of this stream.
+     */
+    public long getContentLength() {
+        return original.remaining();
+    }
+
+    @Override
+    public int read() {
+        abortIfNeeded();
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        abortIfNeeded();
+        if (len == 0)
+            return 0;
+        if (!buffer.hasRemaining())
+            return -1;
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        abortIfNeeded();
+        if (n <= 0)
+            return 0;
+        int count = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        abortIfNeeded();
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position; the read limit is ignored since the whole
+     * content remains available.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        buffer.mark();
+    }
+
+    @Override
+    public void reset() {
+        abortIfNeeded();
+        buffer.reset();
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
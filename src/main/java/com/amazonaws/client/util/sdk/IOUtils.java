@@ -39,14 +39,15 @@ public enum IOUtils {
      */
     public static byte[] toByteArray(InputStream is) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] b = BufferPool.getDefault().acquire(BUFFER_SIZE);
         try {
-            byte[] b = new byte[BUFFER_SIZE];
             int n = 0;
             while ((n = is.read(b)) != -1) {
                 output.write(b, 0, n);
             }
             return output.toByteArray();
         } finally {
+            BufferPool.getDefault().release(b);
             output.close();
         }
     }
@@ -59,6 +60,22 @@ public enum IOUtils {
         return new String(toByteArray(is), StringUtils.UTF8);
     }
 
+    /**
+     * Reads from the given input stream until the given buffer is full or
+     * the stream ends, and returns the number of bytes read; which is less
+     * than the length of the buffer only at the end of the stream.
+     */
+    public static int readFully(InputStream is, byte[] b) throws IOException {
+        int total = 0;
+        while (total < b.length) {
+            int n = is.read(b, total, b.length - total);
+            if (n == -1)
+                break;
+            total += n;
+        }
+        return total;
+    }
+
     /**
      * Closes the given Closeable quietly.
      * @param is the given closeable
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014-2014 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import com.amazonaws.network.type.Request;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A drop-in replacement of {@link JSONWriter} for the request marshallers,
+ * producing the same JSON text with a Jackson streaming generator that encodes
+ * it as UTF-8 directly into a byte buffer. Unlike marshalling through a
+ * {@link JSONWriter} into a <code>StringWriter</code>, there is no intermediate
+ * string nor any re-encoding of the request body.
+ * <p>
+ * The buffer is a per-thread scratch buffer, reset and reused by every
+ * marshalling on the same thread; only the finished content is copied out, once,
+ * into an array of the exact size that becomes the request entity. The scratch
+ * buffer is not retained by the thread if it has grown beyond
+ * {@link #MAX_RETAINED_BUFFER_SIZE}, so that an occasional large request does
+ * not pin its memory.
+ * <p>
+ * A marshaller opts in by replacing the <code>StringWriter</code> and
+ * <code>JSONWriter</code> with an <code>SdkJsonGenerator</code>, and setting
+ * the content of the request with {@link #setContentOf(Request, String)}. Each
+ * instance can produce one JSON text, and is not thread safe.
+ */
+public class SdkJsonGenerator {
+    /** The maximum size of the scratch buffer retained by a thread. */
+    static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ThreadLocal<ScratchBuffer> scratchBuffers =
+            new ThreadLocal<ScratchBuffer>();
+
+    private final ScratchBuffer buffer;
+    private final JsonGenerator generator;
+    private byte[] content;
+
+    public SdkJsonGenerator() {
+        ScratchBuffer scratch = scratchBuffers.get();
+        if (scratch == null) {
+            scratch = new ScratchBuffer();
+        } else {
+            // Taken by this instance until the content is finished.
+            scratchBuffers.remove();
+            scratch.reset();
+        }
+        this.buffer = scratch;
+        try {
+            this.generator = jsonFactory.createGenerator(scratch);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public SdkJsonGenerator object() throws JSONException {
+        try {
+            generator.writeStartObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator endObject() throws JSONException {
+        try {
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator array() throws JSONException {
+        try {
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator endArray() throws JSONException {
+        try {
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator key(String s) throws JSONException {
+        if (s == null) {
+            throw new JSONException("Null key.");
+        }
+        try {
+            generator.writeFieldName(s);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator value(String s) throws JSONException {
+        try {
+            generator.writeString(s);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator value(boolean b) throws JSONException {
+        try {
+            generator.writeBoolean(b);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator value(long l) throws JSONException {
+        try {
+            generator.writeNumber(l);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    public SdkJsonGenerator value(double d) throws JSONException {
+        if (Double.isInfinite(d) || Double.isNaN(d)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+        try {
+            generator.writeNumber(d);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a date value, as epoch seconds.
+     */
+    public SdkJsonGenerator value(Date date) throws JSONException {
+        return value(date.getTime() / 1000);
+    }
+
+    /**
+     * Appends a ByteBuffer value, as base 64, without changing the position
+     * of the buffer.
+     */
+    public SdkJsonGenerator value(ByteBuffer b) throws JSONException {
+        try {
+            if (b.hasArray()) {
+                generator.writeBinary(b.array(),
+                        b.arrayOffset() + b.position(), b.remaining());
+            } else {
+                byte[] bytes = new byte[b.remaining()];
+                b.duplicate().get(bytes);
+                generator.writeBinary(bytes);
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a String, Boolean, Number, Date or ByteBuffer value; or the
+     * string form of any other object.
+     */
+    public SdkJsonGenerator value(Object o) throws JSONException {
+        if (o == null) {
+            try {
+                generator.writeNull();
+            } catch (IOException e) {
+                throw new JSONException(e);
+            }
+            return this;
+        }
+        if (o instanceof String) {
+            return value((String)o);
+        }
+        if (o instanceof Boolean) {
+            return value(((Boolean)o).booleanValue());
+        }
+        if (o instanceof Integer || o instanceof Long
+                || o instanceof Short || o instanceof Byte) {
+            return value(((Number)o).longValue());
+        }
+        if (o instanceof Float || o instanceof Double) {
+            return value(((Number)o).doubleValue());
+        }
+        if (o instanceof Date) {
+            return value((Date)o);
+        }
+        if (o instanceof ByteBuffer) {
+            return value((ByteBuffer)o);
+        }
+        // BigInteger, BigDecimal and any other object as per its string form
+        try {
+            if (o instanceof Number) {
+                generator.writeNumber(o.toString());
+            } else {
+                generator.writeString(o.toString());
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the JSON text and returns it as UTF-8 bytes. The scratch
+     * buffer is released to the current thread on the first call.
+     */
+    public byte[] getBytes() throws JSONException {
+        if (content == null) {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                throw new JSONException(e);
+            }
+            content = buffer.toByteArray();
+            if (buffer.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+                scratchBuffers.set(buffer);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Finishes the JSON text and returns a new input stream of it.
+     */
+    public InputStream getContent() throws JSONException {
+        return new ByteArrayInputStream(getBytes());
+    }
+
+    /**
+     * Finishes the JSON text and sets it as the content of the given request,
+     * along with the Content-Length and Content-Type headers.
+     */
+    public void setContentOf(Request<?> request, String contentType)
+            throws JSONException {
+        byte[] bytes = getBytes();
+        request.setContent(new ByteArrayInputStream(bytes));
+        request.addHeader("Content-Length", Integer.toString(bytes.length));
+        request.addHeader("Content-Type", contentType);
+    }
+
+    /** A byte array output stream whose array is reused once reset. */
+    private static final class ScratchBuffer extends ByteArrayOutputStream {
+        ScratchBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
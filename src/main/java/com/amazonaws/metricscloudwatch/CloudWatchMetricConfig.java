@@ -65,9 +65,10 @@ public class CloudWatchMetricConfig {
      */
     static final int MAX_METRICS_DATUM_SIZE = 20;
     /**
-     * Default metrics queue size. If the queue size
-     * exceeds this value, then excessive metrics will be dropped to prevent
-     * resource exhaustion.
+     * Default metrics queue size, i.e. the maximum number of unique metrics
+     * (metric name, unit and dimensions) whose statistics are accumulated in
+     * memory. Data points of any new metric beyond this number are dropped to
+     * prevent resource exhaustion, regardless of the request rate.
      */
     public static final int DEFAULT_METRICS_QSIZE = 1000;
     /**
@@ -75,13 +76,19 @@ public class CloudWatchMetricConfig {
      * which is the finest granularity of Amazon CloudWatch. 
      */
     public static final int DEFAULT_QUEUE_POLL_TIMEOUT_MILLI = (int)TimeUnit.MINUTES.toMillis(1);
+    /**
+     * Default number of threads used to upload the metrics of an interval to
+     * Amazon CloudWatch in parallel.
+     */
+    public static final int DEFAULT_UPLOAD_THREAD_COUNT = 2;
 
     /** Credentials for the uploader to communicate with Amazon CloudWatch */
     private AWSCredentialsProvider credentialsProvider;
 
     /**
      * Number of milliseconds to wait before the polling of the metrics queue
-     * times out.
+     * times out, i.e. the interval at which the accumulated statistics are
+     * uploaded.
      */
     private long queuePollTimeoutMilli = DEFAULT_QUEUE_POLL_TIMEOUT_MILLI;
 
@@ -93,6 +100,9 @@ public class CloudWatchMetricConfig {
     
     private int metricQueueSize = DEFAULT_METRICS_QSIZE;
 
+    /** Number of threads used to upload the metrics to Amazon CloudWatch. */
+    private int uploadThreadCount = DEFAULT_UPLOAD_THREAD_COUNT;
+
     /**
      * Returns the credential provider that holds the credentials to connect to
      * Amazon CloudWatch.
@@ -174,4 +184,32 @@ public class CloudWatchMetricConfig {
         setMetricQueueSize(metricQueueSize);
         return this;
     }
+
+    /**
+     * Returns the number of threads used to upload the metrics of an interval
+     * to Amazon CloudWatch in parallel.
+     */
+    public int getUploadThreadCount() {
+        return uploadThreadCount;
+    }
+
+    /**
+     * Configure the number of threads used to upload the metrics of an
+     * interval to Amazon CloudWatch in parallel, overriding the default. Must
+     * be at least 1, in which case the metrics are uploaded sequentially by
+     * the uploader thread.
+     * 
+     * @see #DEFAULT_UPLOAD_THREAD_COUNT
+     */
+    public void setUploadThreadCount(int uploadThreadCount) {
+        if (uploadThreadCount < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.uploadThreadCount = uploadThreadCount;
+    }
+
+    public CloudWatchMetricConfig withUploadThreadCount(int uploadThreadCount) {
+        setUploadThreadCount(uploadThreadCount);
+        return this;
+    }
 }
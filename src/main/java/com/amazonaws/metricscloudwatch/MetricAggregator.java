@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metricscloudwatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+
+/**
+ * An internal accumulator of the metric data points into the statistics
+ * (minimum, maximum, sum and sample count) of each unique metric, i.e. metric
+ * name, unit and set of dimensions, as uploaded to Amazon CloudWatch once per
+ * upload interval.
+ * <p>
+ * Adding a data point updates the cell of its metric under the lock of one of
+ * its stripes, without any allocation beyond the lookup key. Each cell is
+ * striped by thread so that concurrent request threads rarely contend on the
+ * same lock, and a data point is accounted for whole in a single interval.
+ * The number of unique metrics is bounded, so the memory used is independent
+ * of the request rate: data points of new metrics beyond the bound are
+ * dropped, and the cells of metrics that have not been updated for a couple
+ * of intervals are evicted. A cell is retired under all its stripe locks
+ * before being evicted, so that a data point being added to it concurrently
+ * goes to a new cell instead of being lost.
+ */
+@ThreadSafe
+class MetricAggregator {
+    /* Number of consecutive empty flushes after which a cell is evicted. */
+    private static final int IDLE_FLUSHES_BEFORE_EVICTION = 2;
+
+    private final ConcurrentMap<String, StatisticCell> cells =
+            new ConcurrentHashMap<String, StatisticCell>();
+    private final int maxMetrics;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @param maxMetrics
+     *            the maximum number of unique metrics accumulated at any time
+     */
+    MetricAggregator(int maxMetrics) {
+        if (maxMetrics < 1)
+            throw new IllegalArgumentException();
+        this.maxMetrics = maxMetrics;
+    }
+
+    /**
+     * Accumulates the value of the given datum into the statistics of its
+     * metric, returning true if successful or false if the maximum number of
+     * unique metrics has been reached. A datum without value is ignored.
+     */
+    boolean add(MetricDatum datum) {
+        Double value = datum.getValue();
+        if (value == null)
+            return true;
+        List<Dimension> dims = datum.getDimensions();
+        Collections.sort(dims, DimensionComparator.INSTANCE);
+        String key = keyOf(datum.getMetricName(), datum.getUnit(), dims);
+        for (;;) {
+            StatisticCell cell = cells.get(key);
+            if (cell == null) {
+                if (cells.size() >= maxMetrics) {
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+                cell = new StatisticCell(datum.getMetricName(), datum.getUnit(), dims);
+                StatisticCell existing = cells.putIfAbsent(key, cell);
+                if (existing != null)
+                    cell = existing;
+            }
+            if (cell.add(value.doubleValue()))
+                return true;
+            // Retired by a concurrent flush, which may not have evicted it yet
+            cells.remove(key, cell);
+        }
+    }
+
+    /**
+     * Returns the statistics accumulated for each metric since the previous
+     * flush, as metric data with statistic values, and starts a new interval.
+     * A data point added concurrently with the flush may be accounted for in
+     * either interval.
+     */
+    List<MetricDatum> flush() {
+        List<MetricDatum> data = new ArrayList<MetricDatum>();
+        for (Map.Entry<String, StatisticCell> entry : cells.entrySet()) {
+            StatisticCell cell = entry.getValue();
+            MetricDatum datum = cell.drain();
+            if (datum != null)
+                data.add(datum);
+            else if (cell.idleFlushes >= IDLE_FLUSHES_BEFORE_EVICTION && cell.retire())
+                cells.remove(entry.getKey(), cell);
+        }
+        return data;
+    }
+
+    /** Returns the number of unique metrics currently accumulated. */
+    int size() {
+        return cells.size();
+    }
+
+    /**
+     * Returns the number of data points dropped so far because the maximum
+     * number of unique metrics had been reached.
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private static String keyOf(String metricName, String unit, List<Dimension> dims) {
+        StringBuilder sb = new StringBuilder(64)
+            .append(metricName).append('|').append(unit);
+        for (Dimension dim : dims)
+            sb.append('|').append(dim.getName()).append('=').append(dim.getValue());
+        return sb.toString();
+    }
+
+    /**
+     * The statistics of a unique metric, held in a number of stripes of
+     * count, sum, minimum and maximum, each updated and drained under its own
+     * lock.
+     */
+    private static final class StatisticCell {
+        private static final int STRIPES;
+        static {
+            int n = 1;
+            while (n < Runtime.getRuntime().availableProcessors() && n < 8)
+                n <<= 1;
+            STRIPES = n;
+        }
+
+        private final String metricName;
+        private final String unit;
+        private final List<Dimension> dimensions;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        /* Number of consecutive flushes with no data; accessed by the flushing thread only. */
+        private int idleFlushes;
+        /* Set under all the stripe locks once the cell no longer accepts data points. */
+        private boolean retired;
+
+        StatisticCell(String metricName, String unit, List<Dimension> dimensions) {
+            this.metricName = metricName;
+            this.unit = unit;
+            this.dimensions = new ArrayList<Dimension>(dimensions);
+            for (int i = 0; i < STRIPES; i++)
+                stripes[i] = new Stripe();
+        }
+
+        /**
+         * Adds the given value to the statistics, returning true if
+         * successful or false if this cell has been retired.
+         */
+        boolean add(double value) {
+            final Stripe stripe = stripes[(int)(Thread.currentThread().getId() & (STRIPES - 1))];
+            synchronized (stripe) {
+                if (retired)
+                    return false;
+                stripe.count++;
+                stripe.sum += value;
+                if (value < stripe.min)
+                    stripe.min = value;
+                if (value > stripe.max)
+                    stripe.max = value;
+            }
+            return true;
+        }
+
+        /**
+         * Retires this cell so that no data point can be added to it anymore,
+         * returning true if successful or false if data points have been added
+         * since the last drain.
+         */
+        boolean retire() {
+            return retire(0);
+        }
+
+        /** Retires this cell once the locks of the stripes before i are held. */
+        private boolean retire(int i) {
+            if (i < stripes.length) {
+                synchronized (stripes[i]) {
+                    return retire(i + 1);
+                }
+            }
+            for (Stripe stripe : stripes) {
+                if (stripe.count != 0)
+                    return false;
+            }
+            retired = true;
+            return true;
+        }
+
+        /**
+         * Resets the statistics, returning them as a metric datum; or null if
+         * no data point has been added since the previous drain.
+         */
+        MetricDatum drain() {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (stripe.count == 0)
+                        continue;
+                    count += stripe.count;
+                    sum += stripe.sum;
+                    min = Math.min(min, stripe.min);
+                    max = Math.max(max, stripe.max);
+                    stripe.reset();
+                }
+            }
+            if (count == 0 || min > max) {
+                idleFlushes++;
+                return null;
+            }
+            idleFlushes = 0;
+            return new MetricDatum()
+                .withMetricName(metricName)
+                .withDimensions(dimensions)
+                .withUnit(unit)
+                .withStatisticValues(new StatisticSet()
+                    .withMaximum(max)
+                    .withMinimum(min)
+                    .withSampleCount((double)count)
+                    .withSum(sum))
+                ;
+        }
+    }
+
+    /**
+     * The statistics accumulated by a stripe of a cell, guarded by the
+     * stripe itself.
+     */
+    private static final class Stripe {
+        long count;
+        double sum;
+        double min;
+        double max;
+        /* Keeps the stripes of a cell, allocated together, on separate cache lines. */
+        long p1, p2, p3, p4;
+
+        Stripe() {
+            reset();
+        }
+
+        void reset() {
+            count = 0;
+            sum = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+        }
+    }
+}
@@ -14,17 +14,29 @@
  */
 package com.amazonaws.metricscloudwatch;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
-import com.amazonaws.services.cloudwatch.model.MetricDatum;
 import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
 
 /**
  * A internal daemon thread used to upload request metrics to Amazon CloudWatch.
+ * The requests of each upload interval are sent in parallel by a small pool of
+ * daemon threads, as configured by
+ * {@link CloudWatchMetricConfig#getUploadThreadCount()}; the next interval
+ * starts once they have all completed, so that at most one interval of
+ * requests is pending at any time.
  */
 class MetricUploaderThread extends Thread {
     private static final String THREAD_NAME = "java-sdk-metric-uploader";
@@ -32,26 +44,32 @@ class MetricUploaderThread extends Thread {
     private final AmazonCloudWatchClient cloudwatchClient;
     private final Log log = LogFactory.getLog(getClass());
     private final BlockingRequestBuilder qIterator;
+    /* Null if the requests are sent by this thread only. */
+    private final ExecutorService uploadExecutor;
 
     MetricUploaderThread(CloudWatchMetricConfig config,
-            BlockingQueue<MetricDatum> queue) {
+            MetricAggregator aggregator) {
         this(config, 
-             queue, 
+             aggregator, 
              config.getCredentialsProvider() == null 
              ? new AmazonCloudWatchClient() 
              : new AmazonCloudWatchClient(config.getCredentialsProvider()));
     }
 
     MetricUploaderThread(CloudWatchMetricConfig config, 
-        BlockingQueue<MetricDatum> queue,
+        MetricAggregator aggregator,
         AmazonCloudWatchClient client)
     {
         super(THREAD_NAME);
-        if (config == null || queue == null) {
+        if (config == null || aggregator == null) {
             throw new IllegalArgumentException();
         }
         this.cloudwatchClient = client;
-        this.qIterator = new BlockingRequestBuilder(config, queue);
+        this.qIterator = new BlockingRequestBuilder(config, aggregator);
+        final int threads = config.getUploadThreadCount();
+        this.uploadExecutor = threads > 1
+            ? Executors.newFixedThreadPool(threads, new UploadThreadFactory())
+            : null;
         String endpoint = config.getCloudWatchEndPoint(); 
         if (endpoint != null)
             cloudwatchClient.setEndpoint(endpoint);
@@ -64,10 +82,14 @@ class MetricUploaderThread extends Thread {
         while (!cancelled) {
             try {
                 Iterable<PutMetricDataRequest> requests = qIterator.nextUploadUnits();
-                for (PutMetricDataRequest req: requests) {
-                    log.debug(req);
-                    cloudwatchClient.putMetricData(req);
-                    Thread.yield();
+                if (uploadExecutor == null) {
+                    for (PutMetricDataRequest req: requests) {
+                        log.debug(req);
+                        cloudwatchClient.putMetricData(req);
+                        Thread.yield();
+                    }
+                } else {
+                    uploadInParallel(requests);
                 }
             } catch(InterruptedException e) {
                 if (!cancelled) {
@@ -80,9 +102,51 @@ class MetricUploaderThread extends Thread {
         }
     }
 
-    void cancel() { cancelled = true; }
+    /**
+     * Sends the given requests with the upload executor, and waits for all of
+     * them to complete.
+     */
+    private void uploadInParallel(Iterable<PutMetricDataRequest> requests)
+            throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final PutMetricDataRequest req: requests) {
+            futures.add(uploadExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    log.debug(req);
+                    cloudwatchClient.putMetricData(req);
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future: futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.warn("Failed to upload metrics; soldier on", e.getCause());
+            }
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+        if (uploadExecutor != null)
+            uploadExecutor.shutdownNow();
+    }
 
     public AmazonCloudWatchClient getCloudwatchClient() {
         return cloudwatchClient;
     }
+
+    private static class UploadThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, THREAD_NAME + "-" + threadCount.incrementAndGet());
+            thread.setPriority(MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
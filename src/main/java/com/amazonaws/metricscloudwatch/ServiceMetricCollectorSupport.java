@@ -47,9 +47,21 @@ public class ServiceMetricCollectorSupport extends ServiceMetricCollector
     static final double NANO_PER_SEC = TimeUnit.SECONDS.toNanos(1);
     protected final static Log log = LogFactory.getLog(ServiceMetricCollectorSupport.class);
     private final BlockingQueue<MetricDatum> queue;
+    private final MetricAggregator aggregator;
 
+    /**
+     * @param queue
+     *            the queue to add the metric data points to, as they are
+     *            collected
+     */
     protected ServiceMetricCollectorSupport(BlockingQueue<MetricDatum> queue) {
         this.queue = queue;
+        this.aggregator = null;
+    }
+
+    ServiceMetricCollectorSupport(MetricAggregator aggregator) {
+        this.queue = null;
+        this.aggregator = aggregator;
     }
 
     @Override
@@ -150,10 +162,12 @@ public class ServiceMetricCollectorSupport extends ServiceMetricCollector
         }
     }
     /**
-     * Adds the given metric to the queue, returning true if successful or false
-     * if no space available.
+     * Accumulates the given metric into the statistics to be uploaded at the
+     * end of the current interval, or adds it to the queue this collector was
+     * constructed with; returning true if successful or false if no space is
+     * available.
      */
     protected boolean addMetricsToQueue(MetricDatum metric) {
-        return queue.offer(metric); 
+        return aggregator != null ? aggregator.add(metric) : queue.offer(metric);
     }
 }
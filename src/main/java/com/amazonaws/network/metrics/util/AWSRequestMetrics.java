@@ -132,7 +132,47 @@ public class AWSRequestMetrics {
          * /apidocs/org/apache/http/pool/PoolStats.html
          */
         HttpClientPoolPendingCount,
+        /**
+         * The number of idle persistent connections of the route, i.e.
+         * endpoint, of the request.
+         */
+        HttpClientPoolRouteAvailableCount,
+        /**
+         * The number of persistent connections of the route of the request
+         * currently being used to execute requests.
+         */
+        HttpClientPoolRouteLeasedCount,
+        /**
+         * The number of connection requests to the route of the request being
+         * blocked awaiting a free connection.
+         */
+        HttpClientPoolRoutePendingCount,
+        /**
+         * Time spent waiting to lease a connection from the connection pool,
+         * per attempt.
+         */
+        HttpClientLeaseWaitTime,
         RetryPauseTime,
+        /**
+         * Number of tokens left in the client retry quota after a retry drew
+         * from it.
+         */
+        RetryQuotaAvailableCapacity,
+        /**
+         * Number of retries denied because the client retry quota was
+         * exhausted.
+         */
+        RetryQuotaExhausted,
+        /**
+         * Send rate, in requests per second, allowed by the client adaptive
+         * rate limiter once throttling has been detected.
+         */
+        ClientSendRate,
+        /**
+         * Time spent waiting for the client adaptive rate limiter before
+         * sending a request.
+         */
+        RateLimitWaitTime,
 //      S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint library
 //      S3UploadThroughput,   // migrated to S3RequestMetric in the S3 clint library
         ServiceEndpoint,
@@ -1028,7 +1028,7 @@ public class AmazonCloudFrontClient extends AmazonWebServiceClient implements Am
         executionContext.setSigner(signer);
         executionContext.setCredentials(credentials);
 
-        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller, clientConfiguration.useXmlStreamReader());
         DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(exceptionUnmarshallers);
 
         Response<X> res = client.execute(request, responseHandler, errorResponseHandler, executionContext);
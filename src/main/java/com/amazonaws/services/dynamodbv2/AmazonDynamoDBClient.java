@@ -17,6 +17,7 @@ package com.amazonaws.services.dynamodbv2;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,6 +51,7 @@ import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
 import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.CompactItem;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
@@ -88,6 +90,7 @@ import com.amazonaws.services.dynamodbv2.model.transform.BatchGetItemRequestMars
 import com.amazonaws.services.dynamodbv2.model.transform.BatchGetItemResultJsonUnmarshaller;
 import com.amazonaws.services.dynamodbv2.model.transform.BatchWriteItemRequestMarshaller;
 import com.amazonaws.services.dynamodbv2.model.transform.BatchWriteItemResultJsonUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.CompactItemListJsonUnmarshaller;
 import com.amazonaws.services.dynamodbv2.model.transform.ConditionalCheckFailedExceptionUnmarshaller;
 import com.amazonaws.services.dynamodbv2.model.transform.CreateTableRequestMarshaller;
 import com.amazonaws.services.dynamodbv2.model.transform.CreateTableResultJsonUnmarshaller;
@@ -310,6 +313,12 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
      */
     protected List<JsonErrorUnmarshaller> jsonErrorUnmarshallers;
 
+    /**
+     * Whether the items of the scan, query and batch get results are
+     * {@link CompactItem}s.
+     */
+    private volatile boolean compactItems;
+
     /**
      * Constructs a new client to invoke service methods on
      * AmazonDynamoDBv2.  A credentials provider chain will be used
@@ -532,6 +541,10 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
      *             either a problem with the data in the request, or a server side issue.
      */
     public ScanResult scan(ScanRequest scanRequest) {
+        return scan(scanRequest, compactItems);
+    }
+
+    private ScanResult scan(ScanRequest scanRequest, boolean compact) {
         ExecutionContext executionContext = createExecutionContext(scanRequest);
         AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
         awsRequestMetrics.startEvent(Field.ClientExecuteTime);
@@ -548,8 +561,9 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
             } finally {
                 awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-            Unmarshaller<ScanResult, JsonUnmarshallerContext> unmarshaller =
-                new ScanResultJsonUnmarshaller();
+            Unmarshaller<ScanResult, JsonUnmarshallerContext> unmarshaller = compact
+                ? new ScanResultJsonUnmarshaller(CompactItemListJsonUnmarshaller.getInstance())
+                : new ScanResultJsonUnmarshaller();
             JsonResponseHandler<ScanResult> responseHandler =
                 new JsonResponseHandler<ScanResult>(unmarshaller);
             
@@ -1170,6 +1184,10 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
      *             either a problem with the data in the request, or a server side issue.
      */
     public QueryResult query(QueryRequest queryRequest) {
+        return query(queryRequest, compactItems);
+    }
+
+    private QueryResult query(QueryRequest queryRequest, boolean compact) {
         ExecutionContext executionContext = createExecutionContext(queryRequest);
         AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
         awsRequestMetrics.startEvent(Field.ClientExecuteTime);
@@ -1186,8 +1204,9 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
             } finally {
                 awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-            Unmarshaller<QueryResult, JsonUnmarshallerContext> unmarshaller =
-                new QueryResultJsonUnmarshaller();
+            Unmarshaller<QueryResult, JsonUnmarshallerContext> unmarshaller = compact
+                ? new QueryResultJsonUnmarshaller(CompactItemListJsonUnmarshaller.getInstance())
+                : new QueryResultJsonUnmarshaller();
             JsonResponseHandler<QueryResult> responseHandler =
                 new JsonResponseHandler<QueryResult>(unmarshaller);
             
@@ -1497,8 +1516,9 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
             } finally {
                 awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-            Unmarshaller<BatchGetItemResult, JsonUnmarshallerContext> unmarshaller =
-                new BatchGetItemResultJsonUnmarshaller();
+            Unmarshaller<BatchGetItemResult, JsonUnmarshallerContext> unmarshaller = compactItems
+                ? new BatchGetItemResultJsonUnmarshaller(CompactItemListJsonUnmarshaller.getInstance())
+                : new BatchGetItemResultJsonUnmarshaller();
             JsonResponseHandler<BatchGetItemResult> responseHandler =
                 new JsonResponseHandler<BatchGetItemResult>(unmarshaller);
             
@@ -3004,6 +3024,112 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
         return batchGetItem(batchGetItemRequest);
     }
 
+    /**
+     * Sets whether the items of the results of the scan, query and batch get
+     * item operations are read-only {@link CompactItem}s, which hold the JSON
+     * text of each page of items and decode the attribute values on access,
+     * rather than maps of fully decoded attribute values. This reduces the
+     * memory used by large result pages several fold, for example when they
+     * are marshalled into objects by the DynamoDBMapper. Disabled by default.
+     */
+    public void setCompactItems(boolean compactItems) {
+        this.compactItems = compactItems;
+    }
+
+    /**
+     * Returns whether the items of the results of the scan, query and batch
+     * get item operations are {@link CompactItem}s.
+     *
+     * @see #setCompactItems(boolean)
+     */
+    public boolean isCompactItems() {
+        return compactItems;
+    }
+
+    /**
+     * Scans the table of the given request from its exclusive start key, if
+     * any, to the end of the table, page by page, passing each item to the
+     * given handler as a {@link CompactItem}; until the handler returns false.
+     * Only one page of compact items is held in memory at any time, and the
+     * items do not need to be retained by the handler. The <i>Limit</i> of
+     * the request, if any, is the maximum number of items of each page. No
+     * item is passed to the handler if the request selects the count only.
+     * <p>
+     * The exclusive start key of the request is updated for each page, and
+     * restored before returning.
+     *
+     * @param scanRequest
+     *            the scan request of the first page
+     * @param handler
+     *            the handler of the items
+     * @return the number of items passed to the handler
+     */
+    public int scan(ScanRequest scanRequest, ItemHandler handler) {
+        final Map<String, AttributeValue> startKey = scanRequest.getExclusiveStartKey();
+        int count = 0;
+        try {
+            Map<String, AttributeValue> lastKey;
+            do {
+                ScanResult page = scan(scanRequest, true);
+                // No items are returned when only the count is selected
+                if (page.getItems() != null) {
+                    for (Map<String, AttributeValue> item : page.getItems()) {
+                        count++;
+                        if (!handler.handleItem(item))
+                            return count;
+                    }
+                }
+                lastKey = page.getLastEvaluatedKey();
+                scanRequest.setExclusiveStartKey(lastKey);
+            } while (lastKey != null && !lastKey.isEmpty());
+            return count;
+        } finally {
+            scanRequest.setExclusiveStartKey(startKey);
+        }
+    }
+
+    /**
+     * Queries the table or index of the given request from its exclusive
+     * start key, if any, to the last matching item, page by page, passing each
+     * item to the given handler as a {@link CompactItem}; until the handler
+     * returns false. Only one page of compact items is held in memory at any
+     * time. The <i>Limit</i> of the request, if any, is the maximum number of
+     * items of each page. No item is passed to the handler if the request
+     * selects the count only.
+     * <p>
+     * The exclusive start key of the request is updated for each page, and
+     * restored before returning.
+     *
+     * @param queryRequest
+     *            the query request of the first page
+     * @param handler
+     *            the handler of the items
+     * @return the number of items passed to the handler
+     */
+    public int query(QueryRequest queryRequest, ItemHandler handler) {
+        final Map<String, AttributeValue> startKey = queryRequest.getExclusiveStartKey();
+        int count = 0;
+        try {
+            Map<String, AttributeValue> lastKey;
+            do {
+                QueryResult page = query(queryRequest, true);
+                // No items are returned when only the count is selected
+                if (page.getItems() != null) {
+                    for (Map<String, AttributeValue> item : page.getItems()) {
+                        count++;
+                        if (!handler.handleItem(item))
+                            return count;
+                    }
+                }
+                lastKey = page.getLastEvaluatedKey();
+                queryRequest.setExclusiveStartKey(lastKey);
+            } while (lastKey != null && !lastKey.isEmpty());
+            return count;
+        } finally {
+            queryRequest.setExclusiveStartKey(startKey);
+        }
+    }
+
     @Override
     public void setEndpoint(String endpoint) {
         super.setEndpoint(endpoint);
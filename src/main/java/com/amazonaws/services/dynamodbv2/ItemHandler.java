@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2;
+
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * A handler of the items of a scan or query, passed to
+ * {@link AmazonDynamoDBClient#scan(com.amazonaws.services.dynamodbv2.model.ScanRequest, ItemHandler)}
+ * or
+ * {@link AmazonDynamoDBClient#query(com.amazonaws.services.dynamodbv2.model.QueryRequest, ItemHandler)}
+ * to process the items one at a time, in bounded memory.
+ * <p>
+ * For example, to marshall the items into objects with a DynamoDBMapper:
+ * <pre>
+ * client.scan(scanRequest, new ItemHandler() {
+ *     public boolean handleItem(Map&lt;String, AttributeValue&gt; item) {
+ *         process(mapper.marshallIntoObject(MyItem.class, item));
+ *         return true;
+ *     }
+ * });</pre>
+ */
+public interface ItemHandler {
+    /**
+     * Handles the given item, a read-only
+     * {@link com.amazonaws.services.dynamodbv2.model.CompactItem}, and
+     * returns whether to continue with the next item.
+     *
+     * @param item
+     *            the item, whose attribute values are decoded on access
+     * @return true to continue with the next item; false to stop
+     */
+    boolean handleItem(Map<String, AttributeValue> item);
+}
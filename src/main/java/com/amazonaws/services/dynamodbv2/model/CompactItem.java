@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.transform.AttributeValueJsonUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContextImpl;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A read-only item, i.e. map of attribute names to attribute values, backed
+ * by the JSON text of the item in a buffer shared by all the items of a
+ * result page, rather than by an {@link AttributeValue} object graph.
+ * <p>
+ * The attribute names are indexed on first access, along with the offsets of
+ * their values, and each attribute value is decoded from its offset into a
+ * new {@link AttributeValue} whenever it is accessed; so the memory held by a
+ * page of compact items is close to the size of the page on the wire, however
+ * many attributes each item has. Iterating over the entries decodes each
+ * attribute value as it is reached, and keeps none of them.
+ * <p>
+ * Compact items are returned by {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient}
+ * when {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient#setCompactItems(boolean)}
+ * is enabled, and to the {@link com.amazonaws.services.dynamodbv2.ItemHandler}s.
+ * They cannot be modified; copy them into a <code>HashMap</code> to do so.
+ */
+public final class CompactItem extends AbstractMap<String, AttributeValue> {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+    /**
+     * The attribute names, written after the offsets of their values so that
+     * reading the names first sees the offsets too.
+     */
+    private volatile String[] names;
+    /** The offsets in the buffer of the attribute values, by index. */
+    private int[] valueOffsets;
+
+    /**
+     * @param buffer
+     *            the buffer holding the JSON object of the item
+     * @param offset
+     *            the offset of the item in the buffer
+     * @param length
+     *            the length of the item in the buffer
+     */
+    public CompactItem(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Returns the length in bytes of the JSON text of this item. */
+    public int getEncodedLength() {
+        return length;
+    }
+
+    @Override
+    public int size() {
+        return names().length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(names(), key) >= 0;
+    }
+
+    /**
+     * Returns the value of the given attribute, decoded from the JSON text of
+     * the item; or null if the item has no such attribute.
+     */
+    @Override
+    public AttributeValue get(Object key) {
+        int index = indexOf(names(), key);
+        return index < 0 ? null : decode(index);
+    }
+
+    /**
+     * Returns the entries of this item, in the order of the JSON text. The
+     * value of each entry is decoded when the entry is reached.
+     */
+    @Override
+    public Set<Map.Entry<String, AttributeValue>> entrySet() {
+        return new AbstractSet<Map.Entry<String, AttributeValue>>() {
+            @Override
+            public int size() {
+                return names().length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, AttributeValue>> iterator() {
+                final String[] n = names();
+                return new Iterator<Map.Entry<String, AttributeValue>>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < n.length;
+                    }
+
+                    public Map.Entry<String, AttributeValue> next() {
+                        if (next >= n.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<String, AttributeValue>(
+                                n[index], decode(index));
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns the attribute names, indexed on the first call. */
+    private String[] names() {
+        String[] n = names;
+        if (n == null) {
+            n = indexNames();
+        }
+        return n;
+    }
+
+    /**
+     * Indexes the attribute names and the offsets of their values, which
+     * DynamoDB always encodes as JSON objects.
+     */
+    private String[] indexNames() {
+        List<String> list = new ArrayList<String>();
+        int[] offsets = new int[8];
+        JsonParser parser = null;
+        try {
+            parser = jsonFactory.createParser(buffer, offset, length);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new AmazonClientException("Invalid compact item");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                list.add(parser.getCurrentName());
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new AmazonClientException("Invalid compact item");
+                }
+                if (list.size() > offsets.length) {
+                    int[] grown = new int[offsets.length * 2];
+                    System.arraycopy(offsets, 0, grown, 0, offsets.length);
+                    offsets = grown;
+                }
+                // The location in the buffer of the brace opening the value
+                offsets[list.size() - 1] = (int) parser.getCurrentLocation().getCharOffset();
+                parser.skipChildren();
+            }
+        } catch (AmazonClientException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to index compact item", e);
+        } finally {
+            closeQuietly(parser);
+        }
+        String[] n = list.toArray(new String[list.size()]);
+        valueOffsets = offsets;
+        names = n;
+        return n;
+    }
+
+    private static int indexOf(String[] names, Object key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == key || names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the value of the attribute of the given index, from its offset
+     * to the end of the item.
+     */
+    private AttributeValue decode(int index) {
+        int start = valueOffsets[index];
+        JsonParser parser = null;
+        try {
+            parser = jsonFactory.createParser(buffer, start, offset + length - start);
+            parser.nextToken();
+            return AttributeValueJsonUnmarshaller.getInstance().unmarshall(
+                    new JsonUnmarshallerContextImpl(parser));
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to decode attribute value", e);
+        } finally {
+            closeQuietly(parser);
+        }
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
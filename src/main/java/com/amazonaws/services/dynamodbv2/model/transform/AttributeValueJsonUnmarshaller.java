@@ -22,6 +22,7 @@ import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
 import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.transform.JsonFieldIndex;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.ListUnmarshaller;
 import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.ByteBufferJsonUnmarshaller;
@@ -33,6 +34,8 @@ import com.fasterxml.jackson.core.JsonToken;
  * Attribute Value JSON Unmarshaller
  */
 public class AttributeValueJsonUnmarshaller implements Unmarshaller<AttributeValue, JsonUnmarshallerContext> {
+    private static final JsonFieldIndex FIELDS =
+        new JsonFieldIndex("S", "N", "B", "SS", "NS", "BS");
 
     public AttributeValue unmarshall(JsonUnmarshallerContext context) throws Exception {
         AttributeValue attributeValue = new AttributeValue();
@@ -49,29 +52,31 @@ public class AttributeValueJsonUnmarshaller implements Unmarshaller<AttributeVal
             if (token == null) break;
 
             if (token == FIELD_NAME || token == START_OBJECT) {
-                if (context.testExpression("S", targetDepth)) {
+                switch (FIELDS.indexOf(context, targetDepth)) {
+                case 0:
                     context.nextToken();
                     attributeValue.setS(StringJsonUnmarshaller.getInstance().unmarshall(context));
-                }
-                if (context.testExpression("N", targetDepth)) {
+                    break;
+                case 1:
                     context.nextToken();
                     attributeValue.setN(StringJsonUnmarshaller.getInstance().unmarshall(context));
-                }
-                if (context.testExpression("B", targetDepth)) {
+                    break;
+                case 2:
                     context.nextToken();
                     attributeValue.setB(ByteBufferJsonUnmarshaller.getInstance().unmarshall(context));
-                }
-                if (context.testExpression("SS", targetDepth)) {
+                    break;
+                case 3:
                     context.nextToken();
                     attributeValue.setSS(new ListUnmarshaller<String>(StringJsonUnmarshaller.getInstance()).unmarshall(context));
-                }
-                if (context.testExpression("NS", targetDepth)) {
+                    break;
+                case 4:
                     context.nextToken();
                     attributeValue.setNS(new ListUnmarshaller<String>(StringJsonUnmarshaller.getInstance()).unmarshall(context));
-                }
-                if (context.testExpression("BS", targetDepth)) {
+                    break;
+                case 5:
                     context.nextToken();
                     attributeValue.setBS(new ListUnmarshaller<java.nio.ByteBuffer>(ByteBufferJsonUnmarshaller.getInstance()).unmarshall(context));
+                    break;
                 }
             } else if (token == END_ARRAY || token == END_OBJECT) {
                 if (context.getLastParsedParentElement() == null || context.getLastParsedParentElement().equals(currentParentElement)) {
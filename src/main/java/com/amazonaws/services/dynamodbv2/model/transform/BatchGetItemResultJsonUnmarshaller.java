@@ -36,6 +36,19 @@ import com.fasterxml.jackson.core.JsonToken;
  * Batch Get Item Result JSON Unmarshaller
  */
 public class BatchGetItemResultJsonUnmarshaller implements Unmarshaller<BatchGetItemResult, JsonUnmarshallerContext> {
+    private final Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller;
+
+    public BatchGetItemResultJsonUnmarshaller() {
+        this(new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance())));
+    }
+
+    /**
+     * @param itemsUnmarshaller
+     *            the unmarshaller of each list of items of the result
+     */
+    public BatchGetItemResultJsonUnmarshaller(Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller) {
+        this.itemsUnmarshaller = itemsUnmarshaller;
+    }
 
     public BatchGetItemResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         BatchGetItemResult batchGetItemResult = new BatchGetItemResult();
@@ -54,7 +67,7 @@ public class BatchGetItemResultJsonUnmarshaller implements Unmarshaller<BatchGet
             if (token == FIELD_NAME || token == START_OBJECT) {
                 if (context.testExpression("Responses", targetDepth)) {
                     context.nextToken();
-                    batchGetItemResult.setResponses(new MapUnmarshaller<String,java.util.List<java.util.Map<String,AttributeValue>>>(StringJsonUnmarshaller.getInstance(), new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance()))).unmarshall(context));
+                    batchGetItemResult.setResponses(new MapUnmarshaller<String,java.util.List<java.util.Map<String,AttributeValue>>>(StringJsonUnmarshaller.getInstance(), itemsUnmarshaller).unmarshall(context));
                 }
                 if (context.testExpression("UnprocessedKeys", targetDepth)) {
                     context.nextToken();
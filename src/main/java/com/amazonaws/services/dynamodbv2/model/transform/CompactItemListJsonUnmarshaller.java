@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.model.transform;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CompactItem;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Unmarshalls a JSON array of items into a read-only list of
+ * {@link CompactItem}s, copying the JSON text of the items into a single
+ * buffer as they are parsed, without decoding any attribute value.
+ */
+public class CompactItemListJsonUnmarshaller
+        implements Unmarshaller<List<Map<String, AttributeValue>>, JsonUnmarshallerContext> {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    public List<Map<String, AttributeValue>> unmarshall(JsonUnmarshallerContext context) throws Exception {
+        if (context.getCurrentToken() == VALUE_NULL) {
+            return null;
+        }
+        JsonParser parser = context.getJsonParser();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        JsonGenerator generator = jsonFactory.createGenerator(buffer);
+        int[] offsets = new int[16];
+        int n = 0;
+
+        while (true) {
+            JsonToken token = context.nextToken();
+            if (token == null || token == END_ARRAY) break;
+            if (token == START_OBJECT) {
+                // Copied from the parser directly: the context is not aware
+                // of the tokens of the item, but they leave its state as is.
+                if (n + 1 >= offsets.length) {
+                    int[] grown = new int[offsets.length * 2];
+                    System.arraycopy(offsets, 0, grown, 0, offsets.length);
+                    offsets = grown;
+                }
+                generator.flush();
+                offsets[n++] = buffer.size();
+                generator.copyCurrentStructure(parser);
+            }
+        }
+        generator.close();
+        offsets[n] = buffer.size();
+
+        byte[] bytes = buffer.toByteArray();
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>(n);
+        for (int i = 0; i < n; i++) {
+            // The generator separates root-level values with a space
+            int start = offsets[i];
+            while (bytes[start] == ' ') start++;
+            items.add(new CompactItem(bytes, start, offsets[i + 1] - start));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    private static CompactItemListJsonUnmarshaller instance;
+    public static CompactItemListJsonUnmarshaller getInstance() {
+        if (instance == null) instance = new CompactItemListJsonUnmarshaller();
+        return instance;
+    }
+}
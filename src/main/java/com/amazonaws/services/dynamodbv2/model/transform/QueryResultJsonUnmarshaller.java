@@ -35,6 +35,19 @@ import com.fasterxml.jackson.core.JsonToken;
  * Query Result JSON Unmarshaller
  */
 public class QueryResultJsonUnmarshaller implements Unmarshaller<QueryResult, JsonUnmarshallerContext> {
+    private final Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller;
+
+    public QueryResultJsonUnmarshaller() {
+        this(new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance())));
+    }
+
+    /**
+     * @param itemsUnmarshaller
+     *            the unmarshaller of each list of items of the result
+     */
+    public QueryResultJsonUnmarshaller(Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller) {
+        this.itemsUnmarshaller = itemsUnmarshaller;
+    }
 
     public QueryResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         QueryResult queryResult = new QueryResult();
@@ -53,7 +66,7 @@ public class QueryResultJsonUnmarshaller implements Unmarshaller<QueryResult, Js
             if (token == FIELD_NAME || token == START_OBJECT) {
                 if (context.testExpression("Items", targetDepth)) {
                     context.nextToken();
-                    queryResult.setItems(new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance())).unmarshall(context));
+                    queryResult.setItems(itemsUnmarshaller.unmarshall(context));
                 }
                 if (context.testExpression("Count", targetDepth)) {
                     context.nextToken();
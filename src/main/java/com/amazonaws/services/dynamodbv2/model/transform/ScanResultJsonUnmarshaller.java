@@ -35,6 +35,19 @@ import com.fasterxml.jackson.core.JsonToken;
  * Scan Result JSON Unmarshaller
  */
 public class ScanResultJsonUnmarshaller implements Unmarshaller<ScanResult, JsonUnmarshallerContext> {
+    private final Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller;
+
+    public ScanResultJsonUnmarshaller() {
+        this(new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance())));
+    }
+
+    /**
+     * @param itemsUnmarshaller
+     *            the unmarshaller of each list of items of the result
+     */
+    public ScanResultJsonUnmarshaller(Unmarshaller<java.util.List<java.util.Map<String,AttributeValue>>, JsonUnmarshallerContext> itemsUnmarshaller) {
+        this.itemsUnmarshaller = itemsUnmarshaller;
+    }
 
     public ScanResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         ScanResult scanResult = new ScanResult();
@@ -53,7 +66,7 @@ public class ScanResultJsonUnmarshaller implements Unmarshaller<ScanResult, Json
             if (token == FIELD_NAME || token == START_OBJECT) {
                 if (context.testExpression("Items", targetDepth)) {
                     context.nextToken();
-                    scanResult.setItems(new ListUnmarshaller<java.util.Map<String,AttributeValue>>(new MapUnmarshaller<String,AttributeValue>(StringJsonUnmarshaller.getInstance(), AttributeValueJsonUnmarshaller.getInstance())).unmarshall(context));
+                    scanResult.setItems(itemsUnmarshaller.unmarshall(context));
                 }
                 if (context.testExpression("Count", targetDepth)) {
                     context.nextToken();
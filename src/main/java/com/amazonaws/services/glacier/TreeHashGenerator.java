@@ -14,13 +14,9 @@
  */
 package com.amazonaws.services.glacier;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +24,7 @@ import com.amazonaws.client.util.sdk.ResettableInputStream;
 import com.amazonaws.exception.AmazonClientException;
 import com.amazonaws.json.codec.BinaryUtils;
 import com.amazonaws.services.glacier.internal.TreeHashInputStream;
+import com.amazonaws.utility.DigestAlgorithm;
 
 /**
  * Utility class for calculating tree hashes.
@@ -144,18 +141,7 @@ public class TreeHashGenerator {
     }
     
 
-    private static byte[] computeSHA256Hash(byte[] data) throws NoSuchAlgorithmException, IOException {
-        BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(data));
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[16384];
-            int bytesRead = -1;
-            while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
-                messageDigest.update(buffer, 0, bytesRead);
-            }
-            return messageDigest.digest();
-        } finally {
-            try { bis.close(); } catch ( Exception e ) {}
-        }
+    private static byte[] computeSHA256Hash(byte[] data) {
+        return DigestAlgorithm.SHA256.digest(data);
     }
 }
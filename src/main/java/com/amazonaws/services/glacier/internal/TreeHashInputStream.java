@@ -17,7 +17,6 @@ package com.amazonaws.services.glacier.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.DigestInputStream;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -26,6 +25,7 @@ import java.util.List;
 import com.amazonaws.client.util.sdk.SdkDigestInputStream;
 import com.amazonaws.client.util.sdk.SdkFilterInputStream;
 import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.utility.DigestAlgorithm;
 
 /**
  * Filter input stream that enables tree hash computation on the bytes that
@@ -34,7 +34,7 @@ import com.amazonaws.services.glacier.TreeHashGenerator;
 public class TreeHashInputStream extends SdkFilterInputStream {
 
     public TreeHashInputStream(InputStream in) throws NoSuchAlgorithmException {
-        super(new SdkDigestInputStream(in, MessageDigest.getInstance("SHA-256")));
+        super(new SdkDigestInputStream(in, DigestAlgorithm.SHA256.newDigest()));
         this.digestInputStream = (DigestInputStream) super.in;
     }
 
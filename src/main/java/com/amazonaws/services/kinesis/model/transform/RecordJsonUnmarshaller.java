@@ -22,6 +22,7 @@ import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
 import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
 
 import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.transform.JsonFieldIndex;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.ByteBufferJsonUnmarshaller;
 import com.amazonaws.transform.SimpleTypeJsonUnmarshallers.StringJsonUnmarshaller;
@@ -32,6 +33,8 @@ import com.fasterxml.jackson.core.JsonToken;
  * Record JSON Unmarshaller
  */
 public class RecordJsonUnmarshaller implements Unmarshaller<Record, JsonUnmarshallerContext> {
+    private static final JsonFieldIndex FIELDS =
+        new JsonFieldIndex("SequenceNumber", "Data", "PartitionKey");
 
     public Record unmarshall(JsonUnmarshallerContext context) throws Exception {
         Record record = new Record();
@@ -48,17 +51,19 @@ public class RecordJsonUnmarshaller implements Unmarshaller<Record, JsonUnmarsha
             if (token == null) break;
 
             if (token == FIELD_NAME || token == START_OBJECT) {
-                if (context.testExpression("SequenceNumber", targetDepth)) {
+                switch (FIELDS.indexOf(context, targetDepth)) {
+                case 0:
                     context.nextToken();
                     record.setSequenceNumber(StringJsonUnmarshaller.getInstance().unmarshall(context));
-                }
-                if (context.testExpression("Data", targetDepth)) {
+                    break;
+                case 1:
                     context.nextToken();
                     record.setData(ByteBufferJsonUnmarshaller.getInstance().unmarshall(context));
-                }
-                if (context.testExpression("PartitionKey", targetDepth)) {
+                    break;
+                case 2:
                     context.nextToken();
                     record.setPartitionKey(StringJsonUnmarshaller.getInstance().unmarshall(context));
+                    break;
                 }
             } else if (token == END_ARRAY || token == END_OBJECT) {
                 if (context.getLastParsedParentElement() == null || context.getLastParsedParentElement().equals(currentParentElement)) {
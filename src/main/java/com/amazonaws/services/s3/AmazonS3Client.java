@@ -28,8 +28,8 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -66,6 +66,7 @@ import com.amazonaws.client.service.ExecutionContext;
 import com.amazonaws.client.service.ServiceClientHolderInputStream;
 import com.amazonaws.client.signer.SignerFactory;
 import com.amazonaws.client.util.io.ProgressInputStream;
+import com.amazonaws.client.util.sdk.ByteBufferInputStream;
 import com.amazonaws.client.util.sdk.ReleasableInputStream;
 import com.amazonaws.client.util.sdk.ResettableInputStream;
 import com.amazonaws.credential.AWSCredentials;
@@ -181,6 +182,7 @@ import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.RestoreObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummaryHandler;
 import com.amazonaws.services.s3.model.SSECustomerKey;
 import com.amazonaws.services.s3.model.SSECustomerKeyProvider;
 import com.amazonaws.services.s3.model.SetBucketAclRequest;
@@ -206,6 +208,7 @@ import com.amazonaws.services.s3.model.transform.Unmarshallers;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CompleteMultipartUploadHandler;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CopyObjectResultHandler;
 import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.utility.DigestAlgorithm;
 import com.amazonaws.utility.LengthCheckInputStream;
 import com.amazonaws.utility.Md5Utils;
 import com.amazonaws.utility.date.DateUtils;
@@ -612,6 +615,35 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
      */
     public ObjectListing listObjects(ListObjectsRequest listObjectsRequest)
             throws AmazonClientException, AmazonServiceException {
+        return listObjects(listObjectsRequest, (S3ObjectSummaryHandler) null);
+    }
+
+    /**
+     * Returns a list of summary information about the objects in the
+     * specified bucket, as {@link #listObjects(ListObjectsRequest)}; but
+     * passes each object summary to the given handler as soon as it is parsed
+     * from the response, rather than holding all of them in the returned
+     * listing. This keeps the memory used by a listing of any number of
+     * pages, e.g. a bucket inventory, bounded by a single object summary.
+     * The summaries handled before a failed attempt are not handled again
+     * when the request is retried.
+     * <p>
+     * The returned listing has no object summaries, but has the common
+     * prefixes, the truncation status and the next marker to request the next
+     * page with.
+     *
+     * @param listObjectsRequest
+     *            The request object containing all options for listing the
+     *            objects in a specified bucket.
+     * @param summaryHandler
+     *            The handler of the object summaries, or null to return them
+     *            in the listing.
+     *
+     * @return The listing of the specified bucket, without object summaries.
+     */
+    public ObjectListing listObjects(ListObjectsRequest listObjectsRequest,
+            S3ObjectSummaryHandler summaryHandler)
+            throws AmazonClientException, AmazonServiceException {
         assertParameterNotNull(listObjectsRequest.getBucketName(), "The bucket name parameter must be specified when listing objects in a bucket");
 
         Request<ListObjectsRequest> request = createRequest(listObjectsRequest.getBucketName(), null, listObjectsRequest, HttpMethodName.GET);
@@ -621,7 +653,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         if (listObjectsRequest.getMaxKeys() != null && listObjectsRequest.getMaxKeys().intValue() >= 0) request.addParameter("max-keys", listObjectsRequest.getMaxKeys().toString());
         if (listObjectsRequest.getEncodingType() != null) request.addParameter("encoding-type", listObjectsRequest.getEncodingType());
 
-        return invoke(request, new Unmarshallers.ListObjectsUnmarshaller(), listObjectsRequest.getBucketName(), null);
+        return invoke(request, new Unmarshallers.ListObjectsUnmarshaller(summaryHandler,
+                listObjectsRequest.getEncodingType()), listObjectsRequest.getBucketName(), null);
     }
 
     /* (non-Javadoc)
@@ -1167,9 +1200,9 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                         // No content length check is performed when the
                         // MD5 check is enabled, since a correct MD5 check would
                         // imply a correct content length.
-                        MessageDigest digest = MessageDigest.getInstance("MD5");
+                        MessageDigest digest = DigestAlgorithm.MD5.newDigest();
                         is = new DigestValidationInputStream(is, digest, serverSideHash);
-                    } catch (NoSuchAlgorithmException e) {
+                    } catch (IllegalStateException e) {
                         log.warn("No MD5 digest algorithm available.  Unable to calculate "
                                     + "checksum and verify data integrity.", e);
                     }
@@ -1335,6 +1368,16 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             }
             input = newResettableInputStream(file, "Unable to find file to upload")
                     .disableClose();    // requires explicit release
+        } else if (input instanceof ByteBufferInputStream) {
+            // The buffer content is read in place and is repeatable, so its
+            // length and MD5 can be computed upfront without any buffering
+            final ByteBufferInputStream bbis = (ByteBufferInputStream)input;
+            if (metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) == null) {
+                metadata.setContentLength(bbis.getContentLength());
+            }
+            if (metadata.getContentMD5() == null && !skipContentMd5Check) {
+                metadata.setContentMD5(Md5Utils.md5AsBase64(bbis.getByteBuffer()));
+            }
         }
         final ProgressListener listener;
         final ObjectMetadata returnedMetadata;
@@ -2715,7 +2758,17 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         request.addParameter("uploadId", uploadId);
         request.addParameter("partNumber", Integer.toString(partNumber));
 
-        addHeaderIfNotNull(request, Headers.CONTENT_MD5, uploadPartRequest.getMd5Digest());
+        String md5Digest = uploadPartRequest.getMd5Digest();
+        if (md5Digest == null && fileOrig == null
+                && isOrig instanceof ByteBufferInputStream
+                && !skipContentMd5IntegrityCheck(uploadPartRequest)) {
+            // Compute the MD5 of the part directly on the buffer, rather
+            // than through a digest stream wrapper
+            md5Digest = Md5Utils.md5AsBase64(partOf(
+                    ((ByteBufferInputStream)isOrig).getByteBuffer(),
+                    uploadPartRequest.getFileOffset(), partSize));
+        }
+        addHeaderIfNotNull(request, Headers.CONTENT_MD5, md5Digest);
         request.addHeader(Headers.CONTENT_LENGTH, Long.toString(partSize));
 
         // Populate the SSE-CPK parameters to the request header
@@ -2745,7 +2798,7 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                     partSize,
                     uploadPartRequest.isLastPart());
             MD5DigestCalculatingInputStream md5DigestStream = null;
-            if (uploadPartRequest.getMd5Digest() == null
+            if (md5Digest == null
              && !skipContentMd5IntegrityCheck(uploadPartRequest)) {
                 /*
                  * If the user hasn't set the content MD5, then we don't want to
@@ -2764,6 +2817,19 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         }
     }
 
+    /**
+     * Returns the region of the given buffer that holds a part of the given
+     * size at the given offset from the buffer position, truncated to the
+     * content available.
+     */
+    private static ByteBuffer partOf(ByteBuffer buffer, long offset, long partSize) {
+        final int start = buffer.position() + (int)Math.min(offset, buffer.remaining());
+        final int end = start + (int)Math.min(partSize, buffer.limit() - start);
+        buffer.limit(end);
+        buffer.position(start);
+        return buffer;
+    }
+
     private UploadPartResult doUploadPart(final String bucketName,
             final String key, final String uploadId, final int partNumber,
             final long partSize, Request<UploadPartRequest> request,
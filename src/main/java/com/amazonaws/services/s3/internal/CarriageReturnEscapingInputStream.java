@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.client.util.sdk.SdkFilterInputStream;
+
+/**
+ * Filtered input stream of a UTF-8 encoded XML document that replaces every
+ * carriage return (\r) with the explicit XML character entity
+ * <code>&amp;#013;</code> as the document is read, to prevent the SAX parser
+ * from misinterpreting 0x0D characters as 0x0A.
+ * <p>
+ * As the byte 0x0D can only encode a carriage return in UTF-8, the document
+ * is escaped without being decoded; and reads that contain no carriage
+ * return go straight into the caller's buffer.
+ */
+public final class CarriageReturnEscapingInputStream extends SdkFilterInputStream {
+    private static final byte CR = '\r';
+    private static final byte[] ESCAPE = { '&', '#', '0', '1', '3', ';' };
+
+    /** The index of the next byte of the escape to return. */
+    private int escapeIndex = ESCAPE.length;
+    /** The bytes read past a carriage return, not returned yet. */
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    public CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int bytesRead = read(b, 0, 1);
+
+        if (bytesRead == -1) return bytesRead;
+        return b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        int n = 0;
+        if (escapeIndex == ESCAPE.length && position == limit) {
+            int bytesRead = super.read(b, off, len);
+            if (bytesRead <= 0) return bytesRead;
+            int cr = indexOfCarriageReturn(b, off, off + bytesRead);
+            if (cr < 0) return bytesRead;
+            // Keep the bytes past the carriage return for the escape to fit
+            int tail = off + bytesRead - (cr + 1);
+            if (buffer == null || buffer.length < tail) {
+                buffer = new byte[Math.max(tail, 1024)];
+            }
+            System.arraycopy(b, cr + 1, buffer, 0, tail);
+            position = 0;
+            limit = tail;
+            escapeIndex = 0;
+            n = cr - off;
+        }
+
+        while (n < len) {
+            if (escapeIndex < ESCAPE.length) {
+                b[off + n++] = ESCAPE[escapeIndex++];
+            } else if (position < limit) {
+                int max = Math.min(limit, position + len - n);
+                int cr = indexOfCarriageReturn(buffer, position, max);
+                int end = cr < 0 ? max : cr;
+                System.arraycopy(buffer, position, b, off + n, end - position);
+                n += end - position;
+                position = end;
+                if (cr >= 0) {
+                    position++;
+                    escapeIndex = 0;
+                }
+            } else {
+                // Don't block for more once some bytes can be returned
+                break;
+            }
+        }
+        return n;
+    }
+
+    private static int indexOfCarriageReturn(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == CR) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        byte[] b = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int bytesRead = read(b, 0, (int) Math.min(b.length, n - skipped));
+            if (bytesRead == -1) break;
+            skipped += bytesRead;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        int pending = (ESCAPE.length - escapeIndex) + (limit - position);
+        return pending > 0 ? pending : super.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
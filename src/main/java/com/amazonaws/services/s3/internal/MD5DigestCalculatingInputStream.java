@@ -17,15 +17,22 @@ package com.amazonaws.services.s3.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import com.amazonaws.client.util.sdk.SdkFilterInputStream;
+import com.amazonaws.utility.DigestAlgorithm;
 
 /**
  * Simple InputStream wrapper that examines the wrapped stream's contents as
  * they are read and calculates and MD5 digest.
+ * <p>
+ * Once the end of the content has been reached, the digest is final: the
+ * stream can be reset and read again (e.g. on a retry) without the content
+ * being digested again. If the stream is reset before reaching the end, the
+ * digest is rolled back to its state at the time of the mark.
  */
 public class MD5DigestCalculatingInputStream extends SdkFilterInputStream {
+    private static final int SKIP_BUF_SIZE = 2*1024;
+
     /** The MD5 message digest being calculated by this input stream */
     private MessageDigest digest;
     /**
@@ -33,51 +40,52 @@ public class MD5DigestCalculatingInputStream extends SdkFilterInputStream {
      * operation was called; always null if mark is not supported.
      */
     private MessageDigest digestLastMarked;
+    /** The digest of the whole content, once the end has been reached. */
+    private byte[] completeDigest;
+    /** The buffer the skipped bytes are read into, once needed. */
+    private byte[] skipBuffer;
 
     public MD5DigestCalculatingInputStream(InputStream in) {
         super(in);
-        try {
-            digest = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) { // should never occur
-            throw new IllegalStateException("unexpected", e);
-        }
+        digest = DigestAlgorithm.MD5.newDigest();
     }
 
+    /**
+     * Returns the MD5 digest of the whole content, or of the content read so
+     * far if the end has not been reached yet.
+     */
     public byte[] getMd5Digest() {
-        return digest.digest();
+        if (completeDigest != null)
+            return completeDigest.clone();
+        return cloneDigest(digest).digest();
     }
 
     @Override
     public void mark(int readlimit) {
         super.mark(readlimit);
-        if (markSupported()) {
-            try {
-                digestLastMarked = (MessageDigest)digest.clone();
-            } catch (CloneNotSupportedException e) { // should never occur
-                throw new IllegalStateException("unexpected", e);
-            }
+        if (markSupported() && completeDigest == null) {
+            digestLastMarked = cloneDigest(digest);
         }
     }
 
     /**
-     * Resets the wrapped input stream and the in progress message digest.
+     * Resets the wrapped input stream, and rolls back the in progress message
+     * digest unless the end of the content has already been reached.
      */
     @Override
     public void reset() throws IOException {
         super.reset();
-        if (digestLastMarked != null) {
-            try {
-                digest = (MessageDigest)digestLastMarked.clone();
-            } catch (CloneNotSupportedException e) { // should never occur
-                throw new IllegalStateException("unexpected", e);
-            }
+        if (completeDigest == null && digestLastMarked != null) {
+            digest = cloneDigest(digestLastMarked);
         }
     }
 
     @Override
     public int read() throws IOException {
         int ch = super.read();
-        if (ch != -1) {
+        if (ch == -1) {
+            onEndOfContent();
+        } else if (completeDigest == null) {
             digest.update((byte)ch);
         }
         return ch;
@@ -86,9 +94,45 @@ public class MD5DigestCalculatingInputStream extends SdkFilterInputStream {
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         int result = super.read(b, off, len);
-        if (result != -1) {
+        if (result == -1) {
+            onEndOfContent();
+        } else if (completeDigest == null) {
             digest.update(b, off, result);
         }
         return result;
     }
+
+    /**
+     * Skips over the given number of bytes by reading them, so that the
+     * skipped bytes are taken into account by the digest.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+        if (skipBuffer == null)
+            skipBuffer = new byte[SKIP_BUF_SIZE];
+        byte[] b = skipBuffer;
+        long m = n; // remaining number of bytes to read
+        while (m > 0) {
+            int len = read(b, 0, (int)Math.min(m, b.length));
+            if (len == -1)
+                return n - m;
+            m -= len;
+        }
+        return n;
+    }
+
+    private void onEndOfContent() {
+        if (completeDigest == null)
+            completeDigest = digest.digest();
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest)digest.clone();
+        } catch (CloneNotSupportedException e) { // should never occur
+            throw new IllegalStateException("unexpected", e);
+        }
+    }
 }
@@ -39,6 +39,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.client.HttpUtils;
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.exception.AmazonClientException;
 import com.amazonaws.json.codec.BinaryUtils;
 import com.amazonaws.network.type.Request;
@@ -226,6 +227,27 @@ public class ServiceUtils {
         return result.toString();
     }
 
+    /**
+     * Compares the given object keys in the order of their UTF-8 encoding,
+     * i.e. the order in which the objects of a bucket are listed.
+     */
+    public static int compareKeys(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                // Characters beyond U+FFFF sort after all the others in UTF-8
+                boolean xs = x >= '\uD800' && x <= '\uDFFF';
+                boolean ys = y >= '\uD800' && y <= '\uDFFF';
+                if (xs != ys)
+                    return xs ? 1 : -1;
+                return x - y;
+            }
+        }
+        return a.length() - b.length();
+    }
+
     /**
      * Downloads an S3Object, as returned from
      * {@link AmazonS3Client#getObject(com.amazonaws.services.s3.model.GetObjectRequest)},
@@ -257,10 +279,10 @@ public class ServiceUtils {
         }
 
         OutputStream outputStream = null;
+        byte[] buffer = BufferPool.getDefault().acquire(1024*10);
         try {
             outputStream = new BufferedOutputStream(new FileOutputStream(
                     destinationFile, appendData));
-            byte[] buffer = new byte[1024*10];
             int bytesRead;
             while ((bytesRead = s3Object.getObjectContent().read(buffer)) > -1) {
                 outputStream.write(buffer, 0, bytesRead);
@@ -270,6 +292,7 @@ public class ServiceUtils {
             throw new AmazonClientException(
                     "Unable to store object contents to disk: " + e.getMessage(), e);
         } finally {
+            BufferPool.getDefault().release(buffer);
             closeQuietly(outputStream, log);
             closeQuietly(s3Object.getObjectContent(), log);
         }
@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import com.amazonaws.authprovider.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.client.util.sdk.SdkFilterInputStream;
 import com.amazonaws.credential.AWSCredentialsProvider;
 import com.amazonaws.exception.AmazonClientException;
@@ -322,9 +323,9 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
         if (s3Object == null) return null;
 
         OutputStream outputStream = null;
+        byte[] buffer = BufferPool.getDefault().acquire(1024*10);
         try {
             outputStream = new BufferedOutputStream(new FileOutputStream(destinationFile));
-            byte[] buffer = new byte[1024*10];
             int bytesRead;
             while ((bytesRead = s3Object.getObjectContent().read(buffer)) > -1) {
                 outputStream.write(buffer, 0, bytesRead);
@@ -333,6 +334,7 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
             throw new AmazonClientException(
                     "Unable to store object contents to disk: " + e.getMessage(), e);
         } finally {
+            BufferPool.getDefault().release(buffer);
             closeQuietly(outputStream, log);
             closeQuietly(s3Object.getObjectContent(), log);
         }
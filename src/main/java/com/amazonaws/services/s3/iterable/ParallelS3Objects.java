@@ -0,0 +1,865 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import static com.amazonaws.services.s3.internal.ServiceUtils.compareKeys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazonaws.exception.AbortedException;
+import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3ObjectSummaryHandler;
+
+/**
+ * Lists the objects of an Amazon S3 bucket, or of a prefix, with concurrent
+ * requests rather than one page after the other. For example:
+ *
+ * <pre class="brush: java">
+ * for ( S3ObjectSummary summary : ParallelS3Objects.withPrefix(s3, &quot;my-bucket&quot;, &quot;photos/&quot;) ) {
+ *     System.out.printf(&quot;Object with key '%s'\n&quot;, summary.getKey());
+ * }
+ * </pre>
+ * <p>
+ * The key space is split into partitions listed independently: the
+ * subdirectories discovered by listing with the delimiter, a few levels deep
+ * if needed; and, when those are too few or too wide to list with a
+ * delimiter, ranges of keys starting with the same characters. Up to
+ * {@link #withParallelism(int)} partitions are listed concurrently, and the
+ * rest of a partition being listed is split further whenever requests would
+ * otherwise be idle, so that a few large partitions don't list serially.
+ * <p>
+ * Iterating returns the object summaries in key order, as
+ * {@link S3Objects} does, with the pages of the next partitions fetched
+ * ahead up to a bounded number of pages. {@link #forEachUnordered(S3ObjectSummaryHandler)}
+ * passes them to a handler in no particular order as soon as they are listed,
+ * for the highest throughput; and {@link #delete()} deletes them.
+ */
+public class ParallelS3Objects implements Iterable<S3ObjectSummary> {
+    /** The default maximum number of concurrent listing requests. */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /** The number of partitions to aim for, per concurrent request. */
+    private static final int PARTITIONS_PER_THREAD = 4;
+    /** The number of pages fetched ahead per concurrent request when iterating. */
+    private static final int PAGES_PER_THREAD = 2;
+    /** The maximum depth of the subdirectories discovered as partitions. */
+    private static final int MAX_DISCOVERY_DEPTH = 3;
+    /** The maximum number of keys of a multi-object delete request. */
+    private static final int MAX_DELETE_BATCH = 1000;
+    private static final String DEFAULT_DELIMITER = "/";
+    /**
+     * The characters starting the key ranges a flat prefix is split into,
+     * in UTF-8 order.
+     */
+    private static final String RANGE_ALPHABET =
+            "-./0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private String prefix = "";
+    private Integer batchSize = null;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private ExecutorService executorService = null;
+
+    private ParallelS3Objects(AmazonS3 s3, String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Constructs an iterable that covers all the objects in an Amazon S3
+     * bucket.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @return An iterator for object summaries.
+     */
+    public static ParallelS3Objects inBucket(AmazonS3 s3, String bucketName) {
+        return new ParallelS3Objects(s3, bucketName);
+    }
+
+    /**
+     * Constructs an iterable that covers the objects in an Amazon S3 bucket
+     * where the key begins with the given prefix.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @param prefix
+     *            The prefix.
+     * @return An iterator for object summaries.
+     */
+    public static ParallelS3Objects withPrefix(AmazonS3 s3, String bucketName, String prefix) {
+        ParallelS3Objects objects = new ParallelS3Objects(s3, bucketName);
+        objects.prefix = prefix == null ? "" : prefix;
+        return objects;
+    }
+
+    /**
+     * Sets the batch size, i.e., how many {@link S3ObjectSummary}s will be
+     * fetched at once by each request.
+     *
+     * @param batchSize
+     *            How many object summaries to fetch at once.
+     */
+    public ParallelS3Objects withBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of concurrent listing requests.
+     *
+     * @param parallelism
+     *            The maximum number of concurrent listing requests.
+     */
+    public ParallelS3Objects withParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be at least 1");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the executor service to send the listing requests with. By
+     * default, each listing uses its own threads, which terminate once idle.
+     *
+     * @param executorService
+     *            The executor service to send the listing requests with.
+     */
+    public ParallelS3Objects withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public AmazonS3 getS3() {
+        return s3;
+    }
+
+    /**
+     * Returns an iterator of the object summaries in key order. Only the
+     * partitions being listed are discovered upfront; the object summaries
+     * are fetched as they are needed, along with a bounded number of pages
+     * ahead of them.
+     */
+    @Override
+    public Iterator<S3ObjectSummary> iterator() {
+        ExecutorService executor = executorService;
+        boolean owned = executor == null;
+        if (owned) {
+            executor = createExecutorService();
+        }
+        List<Partition> partitions;
+        try {
+            partitions = discoverPartitions(executor);
+        } catch (RuntimeException e) {
+            if (owned)
+                executor.shutdown();
+            throw e;
+        }
+        return new OrderedIterator(partitions, executor, owned);
+    }
+
+    /**
+     * Passes every object summary to the given handler, in no particular
+     * order, and returns once all of them have been handled. The handler is
+     * called concurrently by the threads listing the partitions, so it must
+     * be thread safe. Each page is handled once it is listed in full, so a
+     * listing request that is retried does not handle its summaries twice.
+     *
+     * @param handler
+     *            The handler of the object summaries.
+     * @return The number of object summaries handled.
+     * @throws AmazonClientException
+     *             The first failure of a listing request or of the handler,
+     *             after which the other partitions are no longer listed.
+     */
+    public long forEachUnordered(final S3ObjectSummaryHandler handler) {
+        final AtomicLong count = new AtomicLong();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        ExecutorService executor = executorService;
+        boolean owned = executor == null;
+        if (owned) {
+            executor = createExecutorService();
+        }
+        List<Lister> listers = new ArrayList<Lister>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            List<Partition> partitions = discoverPartitions(executor);
+            PartitionQueue queue = new PartitionQueue(partitions);
+            Lister self = new Lister(queue, count, failure, handler);
+            int helpers = partitions.size() == 1 && partitions.get(0).listed ? 0 : parallelism - 1;
+            for (int i = 0; i < helpers; i++) {
+                Lister lister = new Lister(queue, count, failure, handler);
+                listers.add(lister);
+                futures.add(executor.submit(lister));
+            }
+            self.run();
+            for (int i = 0; i < listers.size(); i++) {
+                if (listers.get(i).claim()) {
+                    // Not started, and there is nothing left to list
+                    futures.get(i).cancel(false);
+                } else {
+                    waitFor(futures.get(i));
+                }
+            }
+        } finally {
+            if (owned) {
+                executor.shutdown();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return count.get();
+    }
+
+    /**
+     * Deletes all the objects of this listing, with multi-object delete
+     * requests of up to 1000 keys sent as the partitions are listed.
+     *
+     * @return The number of objects deleted.
+     * @throws com.amazonaws.services.s3.model.MultiObjectDeleteException
+     *             if any of the objects could not be deleted.
+     */
+    public long delete() {
+        final List<KeyVersion> batch = new ArrayList<KeyVersion>(MAX_DELETE_BATCH);
+        long count = forEachUnordered(new S3ObjectSummaryHandler() {
+            @Override
+            public void handleObjectSummary(S3ObjectSummary objectSummary) {
+                List<KeyVersion> keys = null;
+                synchronized (batch) {
+                    batch.add(new KeyVersion(objectSummary.getKey()));
+                    if (batch.size() == MAX_DELETE_BATCH) {
+                        keys = new ArrayList<KeyVersion>(batch);
+                        batch.clear();
+                    }
+                }
+                if (keys != null) {
+                    deleteObjects(keys);
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            deleteObjects(batch);
+        }
+        return count;
+    }
+
+    private void deleteObjects(List<KeyVersion> keys) {
+        s3.deleteObjects(new DeleteObjectsRequest(bucketName)
+                .withKeys(keys).withQuiet(true));
+    }
+
+    private ExecutorService createExecutorService() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger(1);
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("s3-parallel-listing-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism,
+                parallelism, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException(e);
+        } catch (ExecutionException e) {
+            // The failure itself is reported by the lister
+        }
+    }
+
+    /**
+     * Returns the partitions of the key space, in key order. A single page
+     * is listed first, which is the only partition if it is the whole
+     * listing. Otherwise, the listing is expanded with the delimiter, a level
+     * at a time, until there are enough subdirectories to list concurrently;
+     * then the subdirectories too wide to expand, and all of them if there are
+     * still too few, are split into key ranges.
+     */
+    private List<Partition> discoverPartitions(ExecutorService executor) {
+        final int target = parallelism * PARTITIONS_PER_THREAD;
+        Partition root = new Partition(prefix, null, null);
+        List<S3ObjectSummary> firstPage = root.listNextPage();
+        if (root.done) {
+            return Collections.singletonList(new Partition(firstPage));
+        }
+        List<Partition> partitions = new ArrayList<Partition>();
+        partitions.add(new Partition(prefix, null, null));
+
+        for (int depth = 0; depth < MAX_DISCOVERY_DEPTH; depth++) {
+            if (countSubtrees(partitions) >= target)
+                break;
+            // Expand all the subtrees of this level concurrently
+            List<Future<List<Partition>>> expansions = new ArrayList<Future<List<Partition>>>();
+            for (final Partition partition : partitions) {
+                if (partition.isSubtree() && !partition.wide) {
+                    expansions.add(executor.submit(new Callable<List<Partition>>() {
+                        public List<Partition> call() {
+                            return expand(partition);
+                        }
+                    }));
+                }
+            }
+            if (expansions.isEmpty())
+                break;
+            List<Partition> expanded = new ArrayList<Partition>();
+            Iterator<Future<List<Partition>>> results = expansions.iterator();
+            for (Partition partition : partitions) {
+                if (partition.isSubtree() && !partition.wide) {
+                    List<Partition> children = getResult(results.next());
+                    if (children == null) {
+                        partition.wide = true;
+                        expanded.add(partition);
+                    } else {
+                        expanded.addAll(children);
+                    }
+                } else {
+                    expanded.add(partition);
+                }
+            }
+            partitions = expanded;
+        }
+
+        int subtrees = countSubtrees(partitions);
+        int ranges = Math.min(target, RANGE_ALPHABET.length());
+        int rangesPerSubtree = subtrees == 0 ? 1
+                : Math.min((target + subtrees - 1) / subtrees, ranges);
+        List<Partition> split = new ArrayList<Partition>();
+        for (Partition partition : partitions) {
+            if (partition.isSubtree() && partition.wide) {
+                split(partition.prefix, ranges, split);
+            } else if (partition.isSubtree() && subtrees < parallelism) {
+                split(partition.prefix, rangesPerSubtree, split);
+            } else {
+                split.add(partition);
+            }
+        }
+        return split;
+    }
+
+    private static int countSubtrees(List<Partition> partitions) {
+        int count = 0;
+        for (Partition partition : partitions) {
+            if (partition.isSubtree())
+                count++;
+        }
+        return count;
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new AmazonClientException("Unable to list objects", e.getCause());
+        }
+    }
+
+    /**
+     * Lists a single page of the given subtree with the delimiter and, if it
+     * is complete, returns its objects and subdirectories as partitions in
+     * key order; or null if the subtree is too wide.
+     */
+    private List<Partition> expand(Partition subtree) {
+        ObjectListing listing = s3.listObjects(new ListObjectsRequest(
+                bucketName, subtree.prefix, null, DEFAULT_DELIMITER, null));
+        if (listing.isTruncated())
+            return null;
+        List<Partition> partitions = new ArrayList<Partition>();
+        List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+        List<String> commonPrefixes = listing.getCommonPrefixes();
+        List<S3ObjectSummary> objects = new ArrayList<S3ObjectSummary>();
+        int i = 0, j = 0;
+        while (i < summaries.size() || j < commonPrefixes.size()) {
+            if (j == commonPrefixes.size() || (i < summaries.size()
+                    && compareKeys(summaries.get(i).getKey(), commonPrefixes.get(j)) < 0)) {
+                objects.add(summaries.get(i++));
+            } else {
+                if (!objects.isEmpty()) {
+                    partitions.add(new Partition(objects));
+                    objects = new ArrayList<S3ObjectSummary>();
+                }
+                partitions.add(new Partition(commonPrefixes.get(j++), null, null));
+            }
+        }
+        if (!objects.isEmpty()) {
+            partitions.add(new Partition(objects));
+        }
+        return partitions;
+    }
+
+    /**
+     * Adds the given number of key ranges covering the given prefix, starting
+     * with evenly spaced characters after the prefix.
+     */
+    private void split(String prefix, int ranges, List<Partition> partitions) {
+        String start = null;
+        for (int i = 1; i <= ranges; i++) {
+            String end = i == ranges ? null
+                    : prefix + RANGE_ALPHABET.charAt(i * RANGE_ALPHABET.length() / ranges);
+            partitions.add(new Partition(prefix, start, end));
+            start = end;
+        }
+    }
+
+    /**
+     * A contiguous part of the key space: either the objects already listed
+     * while discovering the partitions, or the keys with a prefix, between an
+     * optional inclusive start and exclusive end.
+     */
+    private final class Partition {
+        final String prefix;
+        final String start;
+        private String end;
+        final boolean listed;
+        private String marker;
+        boolean done;
+        /** Whether this subtree has too many children to expand. */
+        boolean wide;
+
+        /* The state of the ordered iteration, guarded by the iterator. */
+        final LinkedList<List<S3ObjectSummary>> pages = new LinkedList<List<S3ObjectSummary>>();
+        boolean fetchedAll;
+        boolean fetching;
+        RuntimeException failure;
+
+        Partition(String prefix, String start, String end) {
+            this.prefix = prefix;
+            this.start = start;
+            this.end = end;
+            this.listed = false;
+            if (start != null) {
+                // Right before the start, so that the start itself is listed.
+                // U+FFFD is the last character legal in XML 1.0 (the marker
+                // is echoed back in the listing); the few keys between it and
+                // the start, with characters beyond U+FFFF, are skipped
+                char last = start.charAt(start.length() - 1);
+                this.marker = start.substring(0, start.length() - 1)
+                        + (char) (last - 1) + '\uFFFD';
+            }
+        }
+
+        Partition(List<S3ObjectSummary> objects) {
+            this.prefix = null;
+            this.start = null;
+            this.end = null;
+            this.listed = true;
+            this.pages.add(objects);
+            this.done = true;
+            this.fetchedAll = true;
+        }
+
+        boolean isSubtree() {
+            return !listed && start == null && end == null;
+        }
+
+        /**
+         * Lists the next page of this partition, and returns its object
+         * summaries within the bounds of the partition.
+         */
+        List<S3ObjectSummary> listNextPage() {
+            ObjectListing listing = s3.listObjects(new ListObjectsRequest(
+                    bucketName, prefix, marker, null, batchSize));
+            List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+            List<S3ObjectSummary> page = new ArrayList<S3ObjectSummary>(summaries.size());
+            boolean pastEnd = false;
+            for (S3ObjectSummary summary : summaries) {
+                if (start != null && compareKeys(summary.getKey(), start) < 0)
+                    continue;
+                if (end != null && compareKeys(summary.getKey(), end) >= 0) {
+                    pastEnd = true;
+                    break;
+                }
+                page.add(summary);
+            }
+            if (pastEnd || !listing.isTruncated() || summaries.isEmpty()) {
+                done = true;
+            } else if (listing.getNextMarker() != null) {
+                marker = listing.getNextMarker();
+            } else {
+                marker = summaries.get(summaries.size() - 1).getKey();
+            }
+            return page;
+        }
+
+        /**
+         * Splits the keys of this partition not listed yet into up to the
+         * given number of partitions: this one, ending sooner, followed by
+         * the returned ones.
+         */
+        List<Partition> splitRemainder(int count) {
+            List<String> boundaries = rangeBoundaries(count - 1);
+            List<Partition> partitions = new ArrayList<Partition>(boundaries.size());
+            for (int i = 0; i < boundaries.size(); i++) {
+                partitions.add(new Partition(prefix, boundaries.get(i),
+                        i + 1 < boundaries.size() ? boundaries.get(i + 1) : end));
+            }
+            if (!boundaries.isEmpty()) {
+                end = boundaries.get(0);
+            }
+            return partitions;
+        }
+
+        /**
+         * Returns up to the given number of evenly spaced keys between the
+         * marker and the end of this partition, made of the shortest leading
+         * part of the marker giving enough of them and a character.
+         */
+        private List<String> rangeBoundaries(int count) {
+            List<String> best = Collections.emptyList();
+            for (int length = prefix.length(); length <= marker.length() && best.size() < count; length++) {
+                if (length > 0 && Character.isHighSurrogate(marker.charAt(length - 1)))
+                    continue;
+                String base = marker.substring(0, length);
+                List<String> boundaries = new ArrayList<String>();
+                for (int i = 0; i < RANGE_ALPHABET.length(); i++) {
+                    String boundary = base + RANGE_ALPHABET.charAt(i);
+                    if (compareKeys(boundary, marker) > 0
+                            && (end == null || compareKeys(boundary, end) < 0)) {
+                        boundaries.add(boundary);
+                    }
+                }
+                if (boundaries.size() > best.size())
+                    best = boundaries;
+            }
+            if (best.size() <= count)
+                return best;
+            List<String> spaced = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                spaced.add(best.get(i * best.size() / count));
+            }
+            return spaced;
+        }
+    }
+
+    /**
+     * The partitions left to list, shared by the listers; the listers out of
+     * partitions wait for the others to split theirs, until all of them are
+     * listed.
+     */
+    private static final class PartitionQueue {
+        private final LinkedList<Partition> partitions;
+        private int listing;
+        private int waiting;
+        private boolean failed;
+
+        PartitionQueue(List<Partition> partitions) {
+            this.partitions = new LinkedList<Partition>(partitions);
+        }
+
+        /**
+         * Returns the next partition to list; or null once all of them are
+         * listed, or one failed.
+         */
+        synchronized Partition take() {
+            while (partitions.isEmpty() && listing > 0 && !failed) {
+                waiting++;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AbortedException(e);
+                } finally {
+                    waiting--;
+                }
+            }
+            if (partitions.isEmpty() || failed)
+                return null;
+            listing++;
+            return partitions.removeFirst();
+        }
+
+        synchronized void done(boolean failed) {
+            listing--;
+            if (failed)
+                this.failed = true;
+            notifyAll();
+        }
+
+        /** Returns the number of listers waiting for a partition. */
+        synchronized int idle() {
+            return Math.max(waiting - partitions.size(), 0);
+        }
+
+        synchronized void addAll(List<Partition> split) {
+            partitions.addAll(split);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Lists the partitions taken from the queue, passing the object summaries
+     * to the handler, and splits the one being listed whenever other listers
+     * are idle; unless claimed by the thread running the listing first.
+     */
+    private static final class Lister implements Runnable {
+        private final PartitionQueue queue;
+        private final AtomicLong count;
+        private final AtomicReference<RuntimeException> failure;
+        private final S3ObjectSummaryHandler handler;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Lister(PartitionQueue queue, AtomicLong count,
+                AtomicReference<RuntimeException> failure,
+                S3ObjectSummaryHandler handler) {
+            this.queue = queue;
+            this.count = count;
+            this.failure = failure;
+            this.handler = handler;
+        }
+
+        /** Returns true if this lister had not started yet. */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        public void run() {
+            if (!claim())
+                return;
+            Partition partition;
+            try {
+                while (failure.get() == null && (partition = queue.take()) != null) {
+                    boolean failed = true;
+                    try {
+                        list(partition);
+                        failed = false;
+                    } finally {
+                        queue.done(failed);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private void list(Partition partition) {
+            if (partition.listed) {
+                handle(partition.pages.getFirst());
+                return;
+            }
+            while (!partition.done && failure.get() == null) {
+                handle(partition.listNextPage());
+                int idle = queue.idle();
+                if (!partition.done && idle > 0) {
+                    queue.addAll(partition.splitRemainder(idle + 1));
+                }
+            }
+        }
+
+        private void handle(List<S3ObjectSummary> page) {
+            for (S3ObjectSummary summary : page) {
+                handler.handleObjectSummary(summary);
+            }
+            count.addAndGet(page.size());
+        }
+    }
+
+    /**
+     * Iterates the partitions in order, while the pages of the current
+     * partition and of the next ones are fetched concurrently: up to the
+     * parallelism in flight, and, beyond the current partition, up to a
+     * bounded number of pages fetched ahead.
+     */
+    private final class OrderedIterator implements Iterator<S3ObjectSummary> {
+        private final List<Partition> partitions;
+        private final ExecutorService executor;
+        private final boolean ownedExecutor;
+        private final int maxPagesAhead = parallelism * PAGES_PER_THREAD;
+
+        private int current;
+        private int pagesAhead;
+        private int fetching;
+        private Iterator<S3ObjectSummary> page = Collections.<S3ObjectSummary>emptyList().iterator();
+
+        OrderedIterator(List<Partition> partitions, ExecutorService executor,
+                boolean ownedExecutor) {
+            this.partitions = new ArrayList<Partition>(partitions);
+            this.executor = executor;
+            this.ownedExecutor = ownedExecutor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                List<S3ObjectSummary> next = takePage();
+                if (next == null)
+                    return false;
+                page = next.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return page.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns the next page of the current partition, moving on to the
+         * next partition when done; or null once all of them are.
+         */
+        private synchronized List<S3ObjectSummary> takePage() {
+            while (current < partitions.size()) {
+                Partition partition = partitions.get(current);
+                schedule();
+                while (partition.pages.isEmpty() && !partition.fetchedAll
+                        && partition.failure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AbortedException(e);
+                    }
+                }
+                if (partition.failure != null)
+                    throw partition.failure;
+                if (!partition.pages.isEmpty()) {
+                    if (!partition.listed)
+                        pagesAhead--;
+                    return partition.pages.removeFirst();
+                }
+                current++;
+            }
+            if (ownedExecutor)
+                executor.shutdown();
+            return null;
+        }
+
+        /**
+         * Splits the rest of the given partition if there is nothing else
+         * to fetch, for the idle requests to fetch it concurrently.
+         */
+        private void split(Partition partition) {
+            int idle = parallelism - fetching;
+            if (partition.fetchedAll || idle < 2 || pagesAhead + fetching >= maxPagesAhead)
+                return;
+            int index = partitions.indexOf(partition);
+            for (int i = current; i < partitions.size(); i++) {
+                Partition other = partitions.get(i);
+                if (other != partition && !other.fetchedAll && !other.fetching)
+                    return;
+            }
+            partitions.addAll(index + 1, partition.splitRemainder(idle));
+        }
+
+        /** Fetches the next pages of the partitions, within the bounds. */
+        private void schedule() {
+            for (int i = current; i < partitions.size() && fetching < parallelism; i++) {
+                final Partition partition = partitions.get(i);
+                if (partition.fetchedAll || partition.fetching || partition.failure != null)
+                    continue;
+                if (i > current && pagesAhead + fetching >= maxPagesAhead)
+                    break;
+                partition.fetching = true;
+                fetching++;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        fetch(partition);
+                    }
+                });
+            }
+        }
+
+        private void fetch(Partition partition) {
+            List<S3ObjectSummary> next = null;
+            RuntimeException failure = null;
+            try {
+                next = partition.listNextPage();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                partition.fetching = false;
+                fetching--;
+                if (failure != null) {
+                    partition.failure = failure;
+                } else {
+                    partition.pages.add(next);
+                    partition.fetchedAll = partition.done;
+                    pagesAhead++;
+                    split(partition);
+                    schedule();
+                }
+                notifyAll();
+            }
+        }
+    }
+}
@@ -91,6 +91,19 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
         return this;
     }
 
+    /**
+     * Returns an iterable over the same objects, listed with up to the given
+     * number of concurrent requests.
+     *
+     * @param parallelism
+     *            The maximum number of concurrent listing requests.
+     * @see ParallelS3Objects
+     */
+    public ParallelS3Objects withParallelism(int parallelism) {
+        return ParallelS3Objects.withPrefix(s3, bucketName, prefix)
+                .withBatchSize(batchSize).withParallelism(parallelism);
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
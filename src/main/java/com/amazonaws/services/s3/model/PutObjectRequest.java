@@ -16,7 +16,9 @@ package com.amazonaws.services.s3.model;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import com.amazonaws.client.util.sdk.ByteBufferInputStream;
 import com.amazonaws.network.event.ProgressListener;
 import com.amazonaws.network.request.AmazonWebServiceRequest;
 
@@ -729,6 +731,59 @@ public class PutObjectRequest extends AmazonWebServiceRequest implements
         return this;
     }
 
+    /**
+     * Sets the buffer whose remaining content (from its position to its
+     * limit) is to be uploaded to Amazon S3. This is a more efficient
+     * alternative to an input stream when the data is already in memory or
+     * memory-mapped: the buffer is read in place and can be re-read on retry
+     * without being buffered again, and the content length is set from the
+     * buffer if not already specified in the object metadata.
+     * <p>
+     * The buffer replaces any input stream previously set, and its position
+     * and limit are left untouched. The content of the buffer must not be
+     * modified until the upload has completed.
+     * </p>
+     *
+     * @param byteBuffer
+     *            The buffer containing the data to be uploaded to Amazon S3.
+     *
+     * @see PutObjectRequest#getByteBuffer()
+     * @see PutObjectRequest#withByteBuffer(ByteBuffer)
+     */
+    public void setByteBuffer(ByteBuffer byteBuffer) {
+        setInputStream(byteBuffer == null ? null : new ByteBufferInputStream(byteBuffer));
+    }
+
+    /**
+     * Returns a read-only view of the buffer containing the data to be
+     * uploaded to Amazon S3, or null if the data is not provided by a buffer.
+     *
+     * @see PutObjectRequest#setByteBuffer(ByteBuffer)
+     */
+    public ByteBuffer getByteBuffer() {
+        return inputStream instanceof ByteBufferInputStream
+             ? ((ByteBufferInputStream) inputStream).getByteBuffer()
+             : null;
+    }
+
+    /**
+     * Sets the buffer whose remaining content is to be uploaded to Amazon S3.
+     * Returns this {@link PutObjectRequest}, enabling additional method calls
+     * to be chained together.
+     *
+     * @param byteBuffer
+     *            The buffer containing the data to be uploaded to Amazon S3.
+     *
+     * @return This PutObjectRequest, so that additional method calls can be
+     *         chained together.
+     *
+     * @see PutObjectRequest#setByteBuffer(ByteBuffer)
+     */
+    public PutObjectRequest withByteBuffer(ByteBuffer byteBuffer) {
+        setByteBuffer(byteBuffer);
+        return this;
+    }
+
     /**
      * Sets the optional redirect location for the new object.
      *
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.model;
+
+/**
+ * A handler of the object summaries of a listing, passed to
+ * {@link com.amazonaws.services.s3.AmazonS3Client#listObjects(ListObjectsRequest, S3ObjectSummaryHandler)}
+ * to process each summary as soon as it is parsed from the response, rather
+ * than holding all the summaries of the page in an {@link ObjectListing}.
+ * <p>
+ * The summaries are handled on the thread parsing the response, while the
+ * rest of the response is still being received; so the handler should not
+ * block for long. If the request is retried after part of the response was
+ * received, the response of the retry, which lists the same page again, is
+ * only handled past the key of the last summary already handled; so each
+ * summary is handled once and in order, even if objects of the page are added
+ * or deleted between the attempts.
+ */
+public interface S3ObjectSummaryHandler {
+    /**
+     * Handles the given object summary, in the order of the listing.
+     *
+     * @param objectSummary
+     *            the summary of the next object of the listing
+     */
+    void handleObjectSummary(S3ObjectSummary objectSummary);
+}
@@ -16,7 +16,9 @@ package com.amazonaws.services.s3.model;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import com.amazonaws.client.util.sdk.ByteBufferInputStream;
 import com.amazonaws.network.event.ProgressListener;
 import com.amazonaws.network.request.AmazonWebServiceRequest;
 
@@ -127,6 +129,46 @@ public class UploadPartRequest extends AmazonWebServiceRequest implements
         return this;
     }
 
+    /**
+     * Sets the buffer containing the data to upload for the new part, as an
+     * alternative to an input stream. The part is read from the buffer
+     * position (plus the file offset, if any), and the buffer is read in
+     * place, so it can be re-read on retry without being buffered again, and
+     * the MD5 digest of the part is computed directly on it if not specified.
+     * The position and limit of the given buffer are left untouched.
+     *
+     * @param byteBuffer
+     *            the buffer containing the data to upload for the new part.
+     */
+    public void setByteBuffer(ByteBuffer byteBuffer) {
+        setInputStream(byteBuffer == null ? null : new ByteBufferInputStream(byteBuffer));
+    }
+
+    /**
+     * Returns a read-only view of the buffer containing the data to upload for
+     * the new part, or null if the data is not provided by a buffer.
+     */
+    public ByteBuffer getByteBuffer() {
+        return inputStream instanceof ByteBufferInputStream
+             ? ((ByteBufferInputStream) inputStream).getByteBuffer()
+             : null;
+    }
+
+    /**
+     * Sets the buffer containing the data to upload for the new part, and
+     * returns this updated object so that additional method calls can be
+     * chained together.
+     *
+     * @param byteBuffer
+     *            the buffer containing the data to upload for the new part.
+     *
+     * @return The updated UploadPartRequest object.
+     */
+    public UploadPartRequest withByteBuffer(ByteBuffer byteBuffer) {
+        setByteBuffer(byteBuffer);
+        return this;
+    }
+
     /**
      * Returns the name of the bucket containing the existing, initiated
      * multipart upload, with which this new part will be associated.
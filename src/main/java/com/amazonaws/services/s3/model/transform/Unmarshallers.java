@@ -15,9 +15,12 @@
 package com.amazonaws.services.s3.model.transform;
 
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.List;
 
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
+import com.amazonaws.services.s3.internal.ServiceUtils;
 import com.amazonaws.services.s3.model.AccessControlList;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketCrossOriginConfiguration;
@@ -33,6 +36,8 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.Owner;
 import com.amazonaws.services.s3.model.PartListing;
 import com.amazonaws.services.s3.model.RequestPaymentConfiguration;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3ObjectSummaryHandler;
 import com.amazonaws.services.s3.model.VersionListing;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.BucketCrossOriginConfigurationHandler;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CompleteMultipartUploadHandler;
@@ -69,12 +74,67 @@ public class Unmarshallers {
 
     /**
      * Unmarshaller for the ListObjects XML response.
+     * <p>
+     * The object summaries are passed to the handler, if any, as they are
+     * parsed; so when the request is retried after part of the response was
+     * parsed, the summaries with keys up to the last key handled by the
+     * previous attempts are skipped, for each of them to be handled once.
      */
     public static final class ListObjectsUnmarshaller implements
             Unmarshaller<ObjectListing, InputStream> {
+        private final S3ObjectSummaryHandler summaryHandler;
+        private final boolean urlEncodedKeys;
+        /** The key of the last summary handled by the attempts so far, or null. */
+        private String lastHandledKey;
+
+        public ListObjectsUnmarshaller() {
+            this(null, null);
+        }
+
+        /**
+         * @param summaryHandler
+         *            the handler of the object summaries, instead of the
+         *            object listing; or null
+         * @param encodingType
+         *            the encoding type of the keys requested for the listing,
+         *            or null
+         */
+        public ListObjectsUnmarshaller(S3ObjectSummaryHandler summaryHandler,
+                String encodingType) {
+            this.summaryHandler = summaryHandler;
+            this.urlEncodedKeys = "url".equals(encodingType);
+        }
+
         public ObjectListing unmarshall(InputStream in) throws Exception {
+            S3ObjectSummaryHandler handler = null;
+            if (summaryHandler != null) {
+                final String skipped = lastHandledKey == null ? null : decodeKey(lastHandledKey);
+                handler = new S3ObjectSummaryHandler() {
+                    public void handleObjectSummary(S3ObjectSummary objectSummary) {
+                        // The keys are listed in order, so the ones up to the
+                        // last key handled by a previous attempt were handled
+                        if (skipped != null && ServiceUtils.compareKeys(
+                                decodeKey(objectSummary.getKey()), skipped) <= 0)
+                            return;
+                        summaryHandler.handleObjectSummary(objectSummary);
+                        lastHandledKey = objectSummary.getKey();
+                    }
+                };
+            }
             return new XmlResponsesSaxParser()
-                    .parseListBucketObjectsResponse(in).getObjectListing();
+                    .parseListBucketObjectsResponse(in, handler)
+                    .getObjectListing();
+        }
+
+        /** Returns the given key as ordered by the listing. */
+        private String decodeKey(String key) {
+            if (!urlEncodedKeys)
+                return key;
+            try {
+                return URLDecoder.decode(key, "UTF-8");
+            } catch (UnsupportedEncodingException e) { // should never occur
+                throw new IllegalStateException("unexpected", e);
+            }
         }
     }
 
@@ -17,13 +17,8 @@
  */
 package com.amazonaws.services.s3.model.transform;
 
-import static com.amazonaws.stringutil.StringUtils.UTF8;
-
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -31,6 +26,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,6 +39,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.services.s3.internal.CarriageReturnEscapingInputStream;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.ObjectExpirationResult;
@@ -86,6 +84,7 @@ import com.amazonaws.services.s3.model.RoutingRule;
 import com.amazonaws.services.s3.model.RoutingRuleCondition;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3ObjectSummaryHandler;
 import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.amazonaws.services.s3.model.StorageClass;
 import com.amazonaws.services.s3.model.TagSet;
@@ -99,7 +98,18 @@ import com.amazonaws.utility.date.DateUtils;
 public class XmlResponsesSaxParser {
     private static final Log log = LogFactory.getLog(XmlResponsesSaxParser.class);
 
-    private XMLReader xr = null;
+    /** The maximum number of idle XML readers kept for reuse. */
+    private static final int MAX_POOLED_READERS = 16;
+
+    /**
+     * The idle XML readers, reused by the parsers of all the responses rather
+     * than creating a new one, and loading the SAX driver, per response.
+     */
+    private static final BlockingQueue<XMLReader> xmlReaders =
+            new ArrayBlockingQueue<XMLReader>(MAX_POOLED_READERS);
+
+    /** The handler set on the idle XML readers, to not retain the last one. */
+    private static final DefaultHandler NO_HANDLER = new DefaultHandler();
 
     private boolean sanitizeXmlDocument = true;
 
@@ -110,11 +120,31 @@ public class XmlResponsesSaxParser {
      */
     public XmlResponsesSaxParser() throws AmazonClientException {
         // Ensure we can load the XML Reader.
-        try {
-            xr = XMLReaderFactory.createXMLReader();
-        } catch (SAXException e) {
-            throw new AmazonClientException("Couldn't initialize a SAX driver to create an XMLReader", e);
+        releaseXmlReader(acquireXmlReader());
+    }
+
+    /**
+     * Returns an idle XML reader, or a new one if there is none.
+     */
+    private static XMLReader acquireXmlReader() {
+        XMLReader xr = xmlReaders.poll();
+        if (xr == null) {
+            try {
+                xr = XMLReaderFactory.createXMLReader();
+            } catch (SAXException e) {
+                throw new AmazonClientException("Couldn't initialize a SAX driver to create an XMLReader", e);
+            }
         }
+        return xr;
+    }
+
+    /**
+     * Returns the given XML reader, no longer in use, to the idle ones.
+     */
+    private static void releaseXmlReader(XMLReader xr) {
+        xr.setContentHandler(NO_HANDLER);
+        xr.setErrorHandler(NO_HANDLER);
+        xmlReaders.offer(xr);
     }
 
     /**
@@ -132,17 +162,21 @@ public class XmlResponsesSaxParser {
      */
     protected void parseXmlInputStream(DefaultHandler handler, InputStream inputStream)
             throws IOException {
+        XMLReader xr = null;
         try {
 
             if (log.isDebugEnabled()) {
                 log.debug("Parsing XML response document with handler: " + handler.getClass());
             }
 
-            BufferedReader breader = new BufferedReader(new InputStreamReader(inputStream,
-                Constants.DEFAULT_ENCODING));
+            // Decoded by the parser itself, rather than through a reader
+            InputSource inputSource = new InputSource(inputStream);
+            inputSource.setEncoding(Constants.DEFAULT_ENCODING);
+            xr = acquireXmlReader();
             xr.setContentHandler(handler);
             xr.setErrorHandler(handler);
-            xr.parse(new InputSource(breader));
+            xr.parse(inputSource);
+            releaseXmlReader(xr);
 
         } catch (IOException e) {
             throw e;
@@ -171,52 +205,13 @@ public class XmlResponsesSaxParser {
                 log.debug("Sanitizing XML document destined for handler " + handler.getClass());
             }
 
-            InputStream sanitizedInputStream = null;
-
-            try {
-
-                /*
-                 * Read object listing XML document from input stream provided into a
-                 * string buffer, so we can replace troublesome characters before
-                 * sending the document to the XML parser.
-                 */
-                StringBuilder listingDocBuffer = new StringBuilder();
-                BufferedReader br = new BufferedReader(
-                    new InputStreamReader(inputStream, Constants.DEFAULT_ENCODING));
-
-                char[] buf = new char[8192];
-                int read = -1;
-                while ((read = br.read(buf)) != -1) {
-                    listingDocBuffer.append(buf, 0, read);
-                }
-                br.close();
-
-                /*
-                 * Replace any carriage return (\r) characters with explicit XML
-                 * character entities, to prevent the SAX parser from
-                 * misinterpreting 0x0D characters as 0x0A and being unable to
-                 * parse the XML.
-                 */
-                String listingDoc = listingDocBuffer.toString().replaceAll("\r", "&#013;");
-
-                sanitizedInputStream = new ByteArrayInputStream(
-                    listingDoc.getBytes(UTF8));
-
-            } catch (IOException e) {
-                throw e;
-
-            } catch (Throwable t) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    if (log.isErrorEnabled()) {
-                        log.error("Unable to close response InputStream after failure sanitizing XML document", e);
-                    }
-                }
-                throw new AmazonClientException("Failed to sanitize XML document destined for handler "
-                    + handler.getClass(), t);
-            }
-            return sanitizedInputStream;
+            /*
+             * Replace any carriage return (\r) characters with explicit XML
+             * character entities as the document is read, to prevent the SAX
+             * parser from misinterpreting 0x0D characters as 0x0A and being
+             * unable to parse the XML.
+             */
+            return new CarriageReturnEscapingInputStream(inputStream);
         }
     }
 
@@ -289,7 +284,26 @@ public class XmlResponsesSaxParser {
      */
     public ListBucketHandler parseListBucketObjectsResponse(InputStream inputStream)
             throws IOException {
-        ListBucketHandler handler = new ListBucketHandler();
+        return parseListBucketObjectsResponse(inputStream, null);
+    }
+
+    /**
+     * Parses a ListBucket response XML document from an input stream, passing
+     * each object summary to the given handler as soon as it is parsed rather
+     * than adding it to the object listing.
+     *
+     * @param inputStream
+     *            XML data input stream.
+     * @param summaryHandler
+     *            the handler of the object summaries, or null to add them to
+     *            the object listing.
+     * @return the XML handler object populated with data parsed from the XML
+     *         stream.
+     * @throws AmazonClientException
+     */
+    public ListBucketHandler parseListBucketObjectsResponse(InputStream inputStream,
+            S3ObjectSummaryHandler summaryHandler) throws IOException {
+        ListBucketHandler handler = new ListBucketHandler(summaryHandler);
         parseXmlInputStream(handler, sanitizeXmlDocument(handler, inputStream));
         return handler;
     }
@@ -478,11 +492,26 @@ public class XmlResponsesSaxParser {
      */
     public static class ListBucketHandler extends AbstractHandler {
         private final ObjectListing objectListing = new ObjectListing();
+        private final S3ObjectSummaryHandler summaryHandler;
 
         private S3ObjectSummary currentObject = null;
         private Owner currentOwner = null;
         private String lastKey = null;
 
+        public ListBucketHandler() {
+            this(null);
+        }
+
+        /**
+         * @param summaryHandler
+         *            the handler to pass each object summary to as soon as it
+         *            is parsed, instead of adding it to the object listing;
+         *            or null
+         */
+        public ListBucketHandler(S3ObjectSummaryHandler summaryHandler) {
+            this.summaryHandler = summaryHandler;
+        }
+
         public ObjectListing getObjectListing() {
             return objectListing;
         }
@@ -522,10 +551,9 @@ public class XmlResponsesSaxParser {
                         && objectListing.getNextMarker() == null) {
 
                         String nextMarker = null;
-                        if (!objectListing.getObjectSummaries().isEmpty()) {
-                            nextMarker = objectListing.getObjectSummaries()
-                                .get(objectListing.getObjectSummaries().size() - 1)
-                                .getKey();
+                        if (lastKey != null) {
+                            // The last object summary, even if not retained
+                            nextMarker = lastKey;
 
                         } else if (!objectListing.getCommonPrefixes().isEmpty()) {
                             nextMarker = objectListing.getCommonPrefixes()
@@ -582,7 +610,11 @@ public class XmlResponsesSaxParser {
                     }
 
                 } else if (name.equals("Contents")) {
-                    objectListing.getObjectSummaries().add(currentObject);
+                    if (summaryHandler != null) {
+                        summaryHandler.handleObjectSummary(currentObject);
+                    } else {
+                        objectListing.getObjectSummaries().add(currentObject);
+                    }
                     currentObject = null;
                 }
             }
@@ -21,9 +21,10 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -53,28 +54,31 @@ import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3Encryption;
 import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.iterable.ParallelS3Objects;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.MultipartUpload;
 import com.amazonaws.services.s3.model.MultipartUploadListing;
-import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3ObjectSummaryHandler;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.internal.AdaptiveTransferController;
 import com.amazonaws.services.s3.transfer.internal.CopyCallable;
 import com.amazonaws.services.s3.transfer.internal.CopyImpl;
 import com.amazonaws.services.s3.transfer.internal.CopyMonitor;
 import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.DownloadMonitor;
+import com.amazonaws.services.s3.transfer.internal.DownloadPartsCallable;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileDownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileTransferMonitor;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileUploadImpl;
+import com.amazonaws.services.s3.transfer.internal.PartUploadPipeline;
 import com.amazonaws.services.s3.transfer.internal.S3ProgressListener;
 import com.amazonaws.services.s3.transfer.internal.S3ProgressListenerChain;
 import com.amazonaws.services.s3.transfer.internal.TransferManagerUtils;
@@ -292,14 +296,15 @@ public class TransferManager {
      * finished).
      * </p>
      * <p>
-     * When uploading options from a stream, callers <b>must</b> supply the size of
+     * When uploading options from a stream, callers should supply the size of
      * options in the stream through the content length field in the
      * <code>ObjectMetadata</code> parameter.
      * If no content length is specified for the input
-     * stream, then TransferManager will attempt to buffer all the stream
-     * contents in memory and upload the options as a traditional, single part
-     * upload. Because the entire stream contents must be buffered in memory,
-     * this can be very expensive, and should be avoided whenever possible.
+     * stream, then TransferManager reads the stream part by part and uploads
+     * the parts concurrently as they are read, holding at most
+     * {@link TransferManagerConfiguration#getStreamingUploadBufferCount()}
+     * parts in memory; a stream shorter than a part is uploaded as a
+     * traditional, single part upload.
      * </p>
      * <p>
      * Use the returned <code>Upload</code> object to query the progress of the
@@ -452,6 +457,60 @@ public class TransferManager {
         return doUpload(putObjectRequest, null, progressListener, null);
     }
 
+    /**
+     * Returns an output stream uploading the data written to it to Amazon S3,
+     * part by part as it is written, on the thread pool of this transfer
+     * manager. Closing the stream completes the upload.
+     * <p>
+     * At most
+     * {@link TransferManagerConfiguration#getStreamingUploadBufferCount()}
+     * parts of
+     * {@link TransferManagerConfiguration#getStreamingUploadPartSize()}
+     * bytes are held in memory; writes wait for the upload of a part to
+     * complete beyond that. Data shorter than a part is uploaded as a single
+     * part upload when the stream is closed.
+     *
+     * @param bucketName
+     *            The name of the bucket to upload the new object to.
+     * @param key
+     *            The key in the specified bucket by which to store the new
+     *            object.
+     * @param objectMetadata
+     *            Additional information about the object being uploaded,
+     *            such as its content type and custom user metadata; its
+     *            content length is ignored.
+     *
+     * @return A new <code>UploadOutputStream</code> to write the object to.
+     */
+    public UploadOutputStream openUploadStream(final String bucketName,
+            final String key, ObjectMetadata objectMetadata) {
+        return openUploadStream(new PutObjectRequest(bucketName, key,
+                (InputStream) null, objectMetadata));
+    }
+
+    /**
+     * Returns an output stream uploading the data written to it to Amazon S3,
+     * part by part as it is written, with the parameters of the given request.
+     *
+     * @param putObjectRequest
+     *            The request containing all the parameters for the upload,
+     *            except its data, file or input stream.
+     *
+     * @return A new <code>UploadOutputStream</code> to write the object to.
+     *
+     * @see #openUploadStream(String, String, ObjectMetadata)
+     */
+    public UploadOutputStream openUploadStream(final PutObjectRequest putObjectRequest) {
+        appendSingleObjectUserAgent(putObjectRequest);
+        if (putObjectRequest.getMetadata() == null)
+            putObjectRequest.setMetadata(new ObjectMetadata());
+
+        PartUploadPipeline pipeline = new PartUploadPipeline(s3, threadPool,
+                putObjectRequest, putObjectRequest.getGeneralProgressListener(),
+                configuration, null);
+        return new UploadOutputStream(pipeline, putObjectRequest.getGeneralProgressListener());
+    }
+
     /**
      * <p>
      * Schedules a new transfer to upload data to Amazon S3. This method is
@@ -647,6 +706,19 @@ public class TransferManager {
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
             final boolean resumeExistingDownload) {
+        return doDownload(getObjectRequest, file, stateListener,
+                s3progressListener, resumeExistingDownload, null);
+    }
+
+    /**
+     * Same as above, but resumes the download of the given paused download
+     * in parts, if not null.
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload,
+            final PersistableDownload pausedDownload) {
 
         appendSingleObjectUserAgent(getObjectRequest);
 
@@ -688,6 +760,26 @@ public class TransferManager {
                 transferProgress, listenerChain, null, stateListener,
                 getObjectRequest, file);
 
+        if (pausedDownload != null && pausedDownload.getPartSize() > 0) {
+            if (!objectMetadata.getETag().equals(pausedDownload.getETag())) {
+                throw new AmazonClientException("Unable to resume the download of "
+                        + getObjectRequest.getKey()
+                        + ": the object has changed since the download was paused");
+            }
+            return submitDownloadParts(getObjectRequest, file, objectMetadata,
+                    pausedDownload.getPartSize(),
+                    pausedDownload.getCompletedParts(), download,
+                    transferProgress);
+        }
+        if (!resumeExistingDownload && objectMetadata.getETag() != null
+                && TransferManagerUtils.shouldUseMultipartDownload(
+                        getObjectRequest, objectMetadata.getContentLength(),
+                        s3 instanceof AmazonS3Encryption, configuration)) {
+            return submitDownloadParts(getObjectRequest, file, objectMetadata,
+                    configuration.getMultipartDownloadPartSize(), new int[0],
+                    download, transferProgress);
+        }
+
         long startingByte = 0;
         long lastByte = objectMetadata.getContentLength();
 
@@ -724,6 +816,46 @@ public class TransferManager {
         return download;
     }
 
+    /**
+     * Submits the download of the object in parts of the given size, skipping
+     * the given parts already written to the file.
+     */
+    private Download submitDownloadParts(
+            final GetObjectRequest getObjectRequest, final File file,
+            final ObjectMetadata objectMetadata, final long partSize,
+            final int[] completedParts, final DownloadImpl download,
+            final TransferProgress transferProgress) {
+        final long contentLength = objectMetadata.getContentLength();
+        final String eTag = objectMetadata.getETag();
+
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(getObjectRequest.getBucketName());
+        s3Object.setKey(getObjectRequest.getKey());
+        s3Object.setObjectMetadata(objectMetadata);
+        download.setS3Object(s3Object);
+        download.setPartState(partSize, eTag, completedParts);
+
+        long bytesCompleted = 0;
+        for (int partNumber : completedParts) {
+            long start = (partNumber - 1) * partSize;
+            bytesCompleted += Math.max(0, Math.min(partSize, contentLength - start));
+        }
+        transferProgress.setTotalBytesToTransfer(contentLength);
+        transferProgress.updateProgress(bytesCompleted);
+
+        int maxThreads = TransferManagerUtils.getMaximumThreads(threadPool);
+        AdaptiveTransferController controller = configuration.isAutoTuneEnabled()
+                ? new AdaptiveTransferController(maxThreads, partSize, partSize, transferProgress)
+                : null;
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> future = threadPool.submit(new DownloadPartsCallable(s3,
+                threadPool, maxThreads, download, getObjectRequest, file,
+                contentLength, eTag, partSize, completedParts, latch, controller));
+        download.setMonitor(new DownloadMonitor(download, future));
+        latch.countDown();
+        return download;
+    }
+
     private Future<?> submitDownloadTask(
             final GetObjectRequest getObjectRequest, final File file,
             final boolean resumeExistingDownload,
@@ -802,42 +934,45 @@ public class TransferManager {
     public MultipleFileDownload downloadDirectory(String bucketName, String keyPrefix, File destinationDirectory) {
         if ( keyPrefix == null )
             keyPrefix = "";
-        List<S3ObjectSummary> objectSummaries = new LinkedList<S3ObjectSummary>();
-        Stack<String> commonPrefixes = new Stack<String>();
-        commonPrefixes.add(keyPrefix);
-        long totalSize = 0;
-        // Recurse all virtual subdirectories to get a list of object summaries.
-        // This is a depth-first search.
-        do {
-            String prefix = commonPrefixes.pop();
-            ObjectListing listObjectsResponse = null;
-
-            do {
-                if ( listObjectsResponse == null ) {
-                    ListObjectsRequest listObjectsRequest = new ListObjectsRequest().withBucketName(bucketName)
-                            .withDelimiter(DEFAULT_DELIMITER).withPrefix(prefix);
-                    listObjectsResponse = s3.listObjects(listObjectsRequest);
-                } else {
-                    listObjectsResponse = s3.listNextBatchOfObjects(listObjectsResponse);
-                }
-
-                for ( S3ObjectSummary s : listObjectsResponse.getObjectSummaries() ) {
-                    // Skip any files that are also virtual directories, since
-                    // we can't save both a directory and a file of the same
-                    // name.
-                    if ( !s.getKey().equals(prefix)
-                            && !listObjectsResponse.getCommonPrefixes().contains(s.getKey() + DEFAULT_DELIMITER) ) {
-                        objectSummaries.add(s);
-                        totalSize += s.getSize();
-                    } else {
-                        log.debug("Skipping download for object " + s.getKey()
-                                + " since it is also a virtual directory");
+        // List the objects under all the virtual subdirectories concurrently
+        final List<S3ObjectSummary> listedSummaries = new ArrayList<S3ObjectSummary>();
+        ParallelS3Objects.withPrefix(s3, bucketName, keyPrefix)
+                .withExecutorService(threadPool)
+                .withParallelism(TransferManagerUtils.getMaximumThreads(threadPool))
+                .forEachUnordered(new S3ObjectSummaryHandler() {
+                    @Override
+                    public void handleObjectSummary(S3ObjectSummary objectSummary) {
+                        synchronized (listedSummaries) {
+                            listedSummaries.add(objectSummary);
+                        }
                     }
-                }
+                });
+
+        Set<String> virtualDirectories = new HashSet<String>();
+        for ( S3ObjectSummary s : listedSummaries ) {
+            String key = s.getKey();
+            for ( int i = key.indexOf(DEFAULT_DELIMITER, keyPrefix.length()); i >= 0;
+                    i = key.indexOf(DEFAULT_DELIMITER, i + 1) ) {
+                virtualDirectories.add(key.substring(0, i));
+            }
+        }
 
-                commonPrefixes.addAll(listObjectsResponse.getCommonPrefixes());
-            } while ( listObjectsResponse.isTruncated() );
-        } while ( !commonPrefixes.isEmpty() );
+        List<S3ObjectSummary> objectSummaries = new LinkedList<S3ObjectSummary>();
+        long totalSize = 0;
+        for ( S3ObjectSummary s : listedSummaries ) {
+            // Skip any files that are also virtual directories, since
+            // we can't save both a directory and a file of the same
+            // name.
+            String key = s.getKey();
+            if ( !key.equals(keyPrefix) && !key.endsWith(DEFAULT_DELIMITER)
+                    && !virtualDirectories.contains(key) ) {
+                objectSummaries.add(s);
+                totalSize += s.getSize();
+            } else {
+                log.debug("Skipping download for object " + key
+                        + " since it is also a virtual directory");
+            }
+        }
 
         /* This is the hook for adding additional progress listeners */
         ProgressListenerChain additionalListeners = new ProgressListenerChain();
@@ -1451,7 +1586,7 @@ public class TransferManager {
         request.setResponseHeaders(persistableDownload.getResponseHeaders());
 
         return doDownload(request, new File(persistableDownload.getFile()), null, null,
-                APPEND_MODE);
+                APPEND_MODE, persistableDownload);
     }
 
     /**
@@ -39,6 +39,18 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /** Default size threshold for when to use multi-part downloads. */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD = 64 * MB;
+
+    /** Default size of each part of a multi-part download. */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_PART_SIZE = 16 * MB;
+
+    /** Default size of the first parts of a streaming upload. */
+    private static final int DEFAULT_STREAMING_UPLOAD_PART_SIZE = 8 * MB;
+
+    /** Default maximum size of the parts of an auto-tuned streaming upload. */
+    private static final int DEFAULT_MAXIMUM_AUTO_TUNED_PART_SIZE = 64 * MB;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -77,6 +89,48 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The size threshold, in bytes, for when to use multi-part downloads.
+     * Downloads of whole objects over this size are split into byte ranges
+     * fetched concurrently on the transfer manager thread pool, while smaller
+     * objects are downloaded over a single connection.
+     */
+    private long multipartDownloadThreshold = DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD;
+
+    /**
+     * The size in bytes of each byte range of a multi-part download, i.e. the
+     * unit of concurrency and of resumption of a paused download.
+     */
+    private long multipartDownloadPartSize = DEFAULT_MULTIPART_DOWNLOAD_PART_SIZE;
+
+    /**
+     * The size in bytes of the first parts of a streaming upload, i.e. an
+     * upload of a stream of unknown length. Each part is buffered in memory
+     * while it is uploaded, and the part size doubles every thousand parts so
+     * that a stream can reach the maximum size of an object.
+     */
+    private int streamingUploadPartSize = DEFAULT_STREAMING_UPLOAD_PART_SIZE;
+
+    /**
+     * The maximum number of part buffers of a streaming upload, bounding its
+     * memory use to this many parts; or 0 to use as many as the threads of
+     * the transfer manager.
+     */
+    private int streamingUploadBufferCount = 0;
+
+    /**
+     * Whether multipart downloads and streaming uploads tune the number of
+     * their parts in flight, and streaming uploads the size of their parts, to
+     * the throughput measured as their parts complete.
+     */
+    private boolean autoTuneEnabled = false;
+
+    /**
+     * The size in bytes the parts of an auto-tuned streaming upload can grow
+     * to.
+     */
+    private int maximumAutoTunedPartSize = DEFAULT_MAXIMUM_AUTO_TUNED_PART_SIZE;
+
     /**
      * Returns the minimum part size for upload parts.
      * Decreasing the minimum part size causes
@@ -192,4 +246,156 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the size threshold in bytes for when to use multi-part
+     * downloads.
+     *
+     * @return The size threshold of an Amazon S3 object for when to use a
+     *         multi-part download
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Sets the size threshold in bytes for when to use multi-part downloads.
+     * Downloads of whole objects over this size will be split into byte ranges
+     * fetched concurrently and written into the file at their offsets, while
+     * downloads of smaller objects, of a byte range, or through an encryption
+     * client will use a single connection.
+     *
+     * @param multipartDownloadThreshold
+     *            The size threshold in bytes for when to use multi part
+     *            download; or {@link Long#MAX_VALUE} to disable multi part
+     *            downloads.
+     */
+    public void setMultipartDownloadThreshold(long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Returns the size in bytes of each part of a multi-part download.
+     *
+     * @return The size in bytes of each part of a multi-part download.
+     */
+    public long getMultipartDownloadPartSize() {
+        return multipartDownloadPartSize;
+    }
+
+    /**
+     * Sets the size in bytes of each part of a multi-part download. A paused
+     * multi-part download resumes from its completed parts, so smaller parts
+     * lose less data on pause, at the cost of more requests to the server.
+     *
+     * @param multipartDownloadPartSize
+     *            The size in bytes of each part of a multi part download.
+     */
+    public void setMultipartDownloadPartSize(long multipartDownloadPartSize) {
+        this.multipartDownloadPartSize = multipartDownloadPartSize;
+    }
+
+    /**
+     * Returns the size in bytes of the first parts of a streaming upload.
+     *
+     * @return The size in bytes of the first parts of a streaming upload.
+     */
+    public int getStreamingUploadPartSize() {
+        return streamingUploadPartSize;
+    }
+
+    /**
+     * Sets the size in bytes of the first parts of a streaming upload, i.e.
+     * an upload of a stream of unknown length. It must be at least 5 MB, the
+     * minimum size of a part; the part size then doubles every thousand
+     * parts.
+     *
+     * @param streamingUploadPartSize
+     *            The size in bytes of the first parts of a streaming upload.
+     */
+    public void setStreamingUploadPartSize(int streamingUploadPartSize) {
+        this.streamingUploadPartSize = streamingUploadPartSize;
+    }
+
+    /**
+     * Returns the maximum number of part buffers of a streaming upload, or 0
+     * to use as many as the threads of the transfer manager.
+     *
+     * @return The maximum number of part buffers of a streaming upload.
+     */
+    public int getStreamingUploadBufferCount() {
+        return streamingUploadBufferCount;
+    }
+
+    /**
+     * Sets the maximum number of part buffers of a streaming upload, which
+     * bounds both its memory use, to this many times the part size, and the
+     * number of its parts uploaded concurrently; or 0 (the default) to use as
+     * many as the threads of the transfer manager.
+     *
+     * @param streamingUploadBufferCount
+     *            The maximum number of part buffers of a streaming upload.
+     */
+    public void setStreamingUploadBufferCount(int streamingUploadBufferCount) {
+        this.streamingUploadBufferCount = streamingUploadBufferCount;
+    }
+
+    /**
+     * Returns whether transfers in parts are auto-tuned to the throughput
+     * measured as their parts complete.
+     *
+     * @return True if transfers in parts are auto-tuned.
+     */
+    public boolean isAutoTuneEnabled() {
+        return autoTuneEnabled;
+    }
+
+    /**
+     * Sets whether transfers in parts are auto-tuned to the throughput
+     * measured as their parts complete (disabled by default). Multipart
+     * downloads, uploads of files and streaming uploads then start with half
+     * of their maximum number of parts in flight, as many threads or buffers,
+     * and settle on the fewest parts in flight that reach the highest
+     * throughput, using fewer when throughput drops or parts fail; and the
+     * parts of streaming uploads grow from the streaming upload part size up
+     * to the maximum auto-tuned part size while they complete in less than a
+     * couple of seconds, so that the latency of each request weighs less. The
+     * memory used by a streaming upload is then bounded by its number of
+     * buffers times the maximum auto-tuned part size.
+     * <p>
+     * The parts of multipart downloads and of uploads of files keep their
+     * planned size, as a paused transfer is resumed from its completed parts;
+     * and multipart copies are not auto-tuned.
+     *
+     * @param autoTuneEnabled
+     *            True to auto-tune transfers in parts.
+     *
+     * @see TransferProgress#getTransferMetrics()
+     */
+    public void setAutoTuneEnabled(boolean autoTuneEnabled) {
+        this.autoTuneEnabled = autoTuneEnabled;
+    }
+
+    /**
+     * Returns the size in bytes the parts of an auto-tuned streaming upload
+     * can grow to.
+     *
+     * @return The maximum size in bytes of the parts of an auto-tuned
+     *         streaming upload.
+     */
+    public int getMaximumAutoTunedPartSize() {
+        return maximumAutoTunedPartSize;
+    }
+
+    /**
+     * Sets the size in bytes the parts of an auto-tuned streaming upload can
+     * grow to, from the streaming upload part size.
+     *
+     * @param maximumAutoTunedPartSize
+     *            The maximum size in bytes of the parts of an auto-tuned
+     *            streaming upload.
+     */
+    public void setMaximumAutoTunedPartSize(int maximumAutoTunedPartSize) {
+        this.maximumAutoTunedPartSize = maximumAutoTunedPartSize;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+/**
+ * A snapshot of the part size and concurrency an auto-tuned transfer has
+ * settled on, of the throughput and part latency they were chosen from, and
+ * of the number of adjustments made so far.
+ *
+ * @see TransferManagerConfiguration#setAutoTuneEnabled(boolean)
+ * @see TransferProgress#getTransferMetrics()
+ */
+public final class TransferMetrics {
+    private final long partSize;
+    private final int concurrency;
+    private final double throughput;
+    private final long meanPartLatencyMillis;
+    private final long partsCompleted;
+    private final long partsFailed;
+    private final int concurrencyIncreases;
+    private final int concurrencyDecreases;
+    private final int partSizeIncreases;
+    private final int partSizeDecreases;
+
+    public TransferMetrics(long partSize, int concurrency, double throughput,
+            long meanPartLatencyMillis, long partsCompleted, long partsFailed,
+            int concurrencyIncreases, int concurrencyDecreases,
+            int partSizeIncreases, int partSizeDecreases) {
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.throughput = throughput;
+        this.meanPartLatencyMillis = meanPartLatencyMillis;
+        this.partsCompleted = partsCompleted;
+        this.partsFailed = partsFailed;
+        this.concurrencyIncreases = concurrencyIncreases;
+        this.concurrencyDecreases = concurrencyDecreases;
+        this.partSizeIncreases = partSizeIncreases;
+        this.partSizeDecreases = partSizeDecreases;
+    }
+
+    /** Returns the size in bytes of the next parts of the transfer. */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    /** Returns the number of parts of the transfer to transfer at once. */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Returns the throughput in bytes per second measured over the last
+     * round of parts, or 0 until the first round completes.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the mean time in milliseconds taken by each part of the last
+     * round of parts, or 0 until the first round completes.
+     */
+    public long getMeanPartLatencyMillis() {
+        return meanPartLatencyMillis;
+    }
+
+    /** Returns the number of parts transferred. */
+    public long getPartsCompleted() {
+        return partsCompleted;
+    }
+
+    /** Returns the number of attempts to transfer a part that failed. */
+    public long getPartsFailed() {
+        return partsFailed;
+    }
+
+    /** Returns the number of times the concurrency was increased. */
+    public int getConcurrencyIncreases() {
+        return concurrencyIncreases;
+    }
+
+    /** Returns the number of times the concurrency was decreased. */
+    public int getConcurrencyDecreases() {
+        return concurrencyDecreases;
+    }
+
+    /** Returns the number of times the part size was increased. */
+    public int getPartSizeIncreases() {
+        return partSizeIncreases;
+    }
+
+    /** Returns the number of times the part size was decreased. */
+    public int getPartSizeDecreases() {
+        return partSizeDecreases;
+    }
+
+    @Override
+    public String toString() {
+        return "{partSize: " + partSize + ", concurrency: " + concurrency
+                + ", throughput: " + (long) throughput
+                + ", meanPartLatencyMillis: " + meanPartLatencyMillis
+                + ", partsCompleted: " + partsCompleted
+                + ", partsFailed: " + partsFailed
+                + ", concurrencyIncreases: " + concurrencyIncreases
+                + ", concurrencyDecreases: " + concurrencyDecreases
+                + ", partSizeIncreases: " + partSizeIncreases
+                + ", partSizeDecreases: " + partSizeDecreases + "}";
+    }
+}
@@ -25,6 +25,7 @@ public final class TransferProgress {
     private static final Log log = LogFactory.getLog(TransferProgress.class);
     private volatile long bytesTransferred = 0;
     private volatile long totalBytesToTransfer = -1;
+    private volatile TransferMetrics transferMetrics;
 
     /**
      * @deprecated Replaced by {@link #getBytesTransferred()}
@@ -91,4 +92,22 @@ public final class TransferProgress {
     public void setTotalBytesToTransfer(long totalBytesToTransfer) {
         this.totalBytesToTransfer = totalBytesToTransfer;
     }
+
+    /**
+     * Returns the part size and concurrency the associated transfer is
+     * auto-tuned to, along with the measurements they were chosen from; or
+     * null if the transfer is not auto-tuned.
+     *
+     * @return The latest metrics of the associated auto-tuned transfer, or
+     *         null.
+     *
+     * @see TransferManagerConfiguration#setAutoTuneEnabled(boolean)
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    public void setTransferMetrics(TransferMetrics transferMetrics) {
+        this.transferMetrics = transferMetrics;
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import static com.amazonaws.network.event.SDKProgressPublisher.publishProgress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.amazonaws.network.event.ProgressEventType;
+import com.amazonaws.network.event.ProgressListener;
+import com.amazonaws.services.s3.transfer.internal.PartUploadPipeline;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+
+/**
+ * An output stream uploading what is written to it to an object in Amazon S3,
+ * part by part as it is written: the parts are uploaded concurrently on the
+ * {@link TransferManager} thread pool while the next ones are written, and
+ * writes wait for a part upload to complete once the configured number of
+ * part buffers are in use.
+ * <p>
+ * Closing the stream uploads the rest of the data and completes the upload,
+ * or uploads the whole object in a single request if it is smaller than a
+ * part. Failures to upload are thrown by the writes, or by {@link #close()},
+ * as <code>AmazonClientException</code>s; the upload is then aborted, as it is
+ * by {@link #abort()}. An upload that is neither closed nor aborted leaves
+ * the parts already uploaded in the bucket, until the multipart upload is
+ * aborted.
+ * <p>
+ * Instances are created by
+ * {@link TransferManager#openUploadStream(String, String, com.amazonaws.services.s3.model.ObjectMetadata)},
+ * and are not thread safe.
+ */
+public class UploadOutputStream extends OutputStream {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final PartUploadPipeline pipeline;
+    private final ProgressListener listener;
+    private byte[] buffer;
+    private int position;
+    private boolean closed;
+    private UploadResult uploadResult;
+
+    UploadOutputStream(PartUploadPipeline pipeline, ProgressListener listener) {
+        this.pipeline = pipeline;
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer();
+        buffer[position++] = (byte) b;
+        if (position == buffer.length) {
+            addPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+        while (len > 0) {
+            ensureBuffer();
+            int n = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == buffer.length) {
+                addPart();
+            }
+        }
+    }
+
+    /**
+     * Uploads the rest of the data written and completes the upload. Does
+     * nothing if the stream is already closed or aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (buffer == null) {
+                uploadResult = pipeline.complete(EMPTY, 0);
+            } else {
+                uploadResult = pipeline.complete(buffer, position);
+            }
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        } finally {
+            buffer = null;
+        }
+        if (pipeline.isMultipartUpload()) {
+            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        }
+    }
+
+    /**
+     * Aborts the upload, discarding the data written and the parts already
+     * uploaded. Does nothing if the stream is already closed or aborted.
+     */
+    public void abort() {
+        if (closed)
+            return;
+        closed = true;
+        buffer = null;
+        pipeline.abort();
+        publishProgress(listener, ProgressEventType.TRANSFER_CANCELED_EVENT);
+    }
+
+    /**
+     * Returns the result of the upload once the stream is closed, otherwise
+     * null.
+     */
+    public UploadResult getUploadResult() {
+        return uploadResult;
+    }
+
+    /**
+     * Returns the part size and concurrency the upload is auto-tuned to, along
+     * with the measurements they were chosen from; or null if the upload is
+     * not auto-tuned.
+     *
+     * @see TransferManagerConfiguration#setAutoTuneEnabled(boolean)
+     */
+    public TransferMetrics getTransferMetrics() {
+        return pipeline.getTransferMetrics();
+    }
+
+    private void ensureBuffer() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (buffer == null) {
+            try {
+                buffer = pipeline.nextBuffer();
+            } catch (RuntimeException e) {
+                fail();
+                throw e;
+            }
+            position = 0;
+        }
+    }
+
+    private void addPart() {
+        try {
+            pipeline.addPart(buffer);
+        } catch (RuntimeException e) {
+            fail();
+            throw e;
+        } finally {
+            buffer = null;
+            position = 0;
+        }
+    }
+
+    private void fail() {
+        closed = true;
+        pipeline.abort();
+        publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+    }
+}
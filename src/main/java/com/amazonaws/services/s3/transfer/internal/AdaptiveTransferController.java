@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.services.s3.transfer.TransferMetrics;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Tunes the number of parts of a transfer in flight, and the size of its next
+ * parts, to the throughput and latency measured as its parts complete.
+ * <p>
+ * The measurements are made over rounds, each ending once as many parts as
+ * are in flight have both started and completed within it, so that the parts
+ * started before a change don't count after it. The throughput of a round is
+ * the mean number of parts in flight during the round times the bytes of its
+ * parts over the time they took (Little's law), which unlike the bytes over
+ * the duration of the round doesn't depend on how the completions of parts
+ * started together fall into rounds. Each round is compared with the
+ * previous one, within 5%.
+ * <p>
+ * The concurrency doubles after each round, starting from half the maximum,
+ * as long as the throughput improves; and holds once it reaches the maximum.
+ * Once the throughput no longer improves, the parts added are not needed, or
+ * too many for the network: the concurrency shrinks by a quarter after each
+ * round, for as long as the throughput does not drop; then grows back by one
+ * part at a time while the throughput improves, and holds. While holding, the
+ * concurrency grows again if the throughput improves, and shrinks again if it
+ * drops by more than 20%. A failed part halves the concurrency, which then
+ * grows back by one part at a time.
+ * <p>
+ * The part size doubles while the parts take less than two seconds each, for
+ * the latency of each request to weigh less on the throughput, and halves
+ * when they take more than thirty seconds or when a part fails, so that
+ * retries cost less. Both the concurrency and the part size stay within the
+ * bounds given.
+ * <p>
+ * Each change is published as a {@link TransferMetrics} snapshot to the
+ * progress of the transfer, if any. This class is thread safe.
+ */
+public class AdaptiveTransferController {
+    private static final Log log = LogFactory.getLog(AdaptiveTransferController.class);
+
+    /** The throughput ratio to the previous round that is an improvement. */
+    private static final double IMPROVEMENT = 1.05;
+    /** The throughput ratio to the previous round that is a drop. */
+    private static final double DROP = 0.95;
+    /** The throughput ratio to the previous round to shrink when holding. */
+    private static final double HOLDING_DROP = 0.8;
+    /** The factor the concurrency is multiplied by when shrinking. */
+    private static final double DECREASE_FACTOR = 0.75;
+
+    /** The phases of the tuning of the concurrency. */
+    private static final int GROWING = 0, SHRINKING = 1, RECOVERING = 2, HOLDING = 3;
+    /** The part duration below which the part size doubles. */
+    private static final long FAST_PART_NANOS = TimeUnit.SECONDS.toNanos(2);
+    /** The part duration above which the part size halves. */
+    private static final long SLOW_PART_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final int maxConcurrency;
+    private final long minPartSize;
+    private final long maxPartSize;
+    private final TransferProgress progress;
+
+    private int concurrency;
+    private long partSize;
+
+    private long roundStart = System.nanoTime();
+    private int inFlight;
+    private long lastEvent = roundStart;
+    /** The sum over the round of the parts in flight times the time they were. */
+    private double roundInFlightNanos;
+    private int roundParts;
+    private long roundBytes;
+    private long roundPartNanos;
+    private double previousThroughput;
+    private int phase = GROWING;
+
+    private double throughput;
+    private long meanPartNanos;
+    private long partsCompleted;
+    private long partsFailed;
+    private int concurrencyIncreases;
+    private int concurrencyDecreases;
+    private int partSizeIncreases;
+    private int partSizeDecreases;
+
+    /**
+     * @param maxConcurrency
+     *            The maximum number of parts in flight; the transfer starts
+     *            with half as many.
+     * @param minPartSize
+     *            The initial and minimum size of the parts.
+     * @param maxPartSize
+     *            The maximum size of the parts, equal to the minimum for the
+     *            part size to stay fixed.
+     * @param progress
+     *            The progress to publish the metrics of the transfer to, or
+     *            null.
+     */
+    public AdaptiveTransferController(int maxConcurrency, long minPartSize,
+            long maxPartSize, TransferProgress progress) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.minPartSize = minPartSize;
+        this.maxPartSize = Math.max(minPartSize, maxPartSize);
+        this.progress = progress;
+        this.concurrency = Math.max(1, this.maxConcurrency / 2);
+        this.partSize = minPartSize;
+        publish();
+    }
+
+    /** Returns the number of parts to keep in flight. */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /** Returns the size of the next parts. */
+    public synchronized long getPartSize() {
+        return partSize;
+    }
+
+    /** Records the start of an attempt to transfer a part. */
+    public synchronized void partStarted() {
+        countInFlight(System.nanoTime());
+        inFlight++;
+    }
+
+    /**
+     * Records the completion of a part, and adjusts the concurrency and the
+     * part size at the end of each round.
+     *
+     * @param bytes
+     *            The size of the part.
+     * @param nanos
+     *            The time it took to transfer the part.
+     */
+    public synchronized void partCompleted(long bytes, long nanos) {
+        long now = System.nanoTime();
+        countInFlight(now);
+        inFlight = Math.max(0, inFlight - 1);
+        partsCompleted++;
+        if (now - nanos < roundStart)
+            return;
+        roundParts++;
+        roundBytes += bytes;
+        roundPartNanos += nanos;
+        if (roundParts < concurrency)
+            return;
+
+        double meanInFlight = roundInFlightNanos / Math.max(1, now - roundStart);
+        throughput = meanInFlight * roundBytes * 1e9 / Math.max(1, roundPartNanos);
+        meanPartNanos = roundPartNanos / roundParts;
+
+        double ratio = previousThroughput == 0 ? Double.MAX_VALUE
+                : throughput / previousThroughput;
+        int newConcurrency = concurrency;
+        switch (phase) {
+        case GROWING:
+            if (ratio >= IMPROVEMENT) {
+                newConcurrency = concurrency * 2;
+            } else {
+                newConcurrency = shrunk();
+                phase = SHRINKING;
+            }
+            break;
+        case SHRINKING:
+            if (ratio >= DROP) {
+                newConcurrency = shrunk();
+            } else {
+                newConcurrency = concurrency + 1;
+                phase = RECOVERING;
+            }
+            break;
+        case RECOVERING:
+            if (ratio >= IMPROVEMENT) {
+                newConcurrency = concurrency + 1;
+            } else if (ratio < DROP) {
+                // The last part added was one too many
+                newConcurrency = concurrency - 1;
+                phase = HOLDING;
+            } else {
+                phase = HOLDING;
+            }
+            break;
+        default:
+            if (ratio >= IMPROVEMENT) {
+                newConcurrency = concurrency + 1;
+                phase = RECOVERING;
+            } else if (ratio < HOLDING_DROP) {
+                newConcurrency = shrunk();
+                phase = SHRINKING;
+            }
+        }
+        newConcurrency = Math.max(1, Math.min(newConcurrency, maxConcurrency));
+        if (newConcurrency == concurrency) {
+            phase = HOLDING;
+        }
+        long newPartSize = partSize;
+        if (meanPartNanos < FAST_PART_NANOS) {
+            newPartSize = Math.min(partSize * 2, maxPartSize);
+        } else if (meanPartNanos > SLOW_PART_NANOS) {
+            newPartSize = Math.max(partSize / 2, minPartSize);
+        }
+        previousThroughput = throughput;
+        adjust(newConcurrency, newPartSize, "throughput " + (long) throughput
+                + " B/s, " + TimeUnit.NANOSECONDS.toMillis(meanPartNanos) + " ms per part");
+        startRound(now);
+    }
+
+    /**
+     * Records the failure of an attempt to transfer a part, and halves the
+     * concurrency and the part size.
+     */
+    public synchronized void partFailed() {
+        long now = System.nanoTime();
+        countInFlight(now);
+        inFlight = Math.max(0, inFlight - 1);
+        partsFailed++;
+        previousThroughput = 0;
+        phase = RECOVERING;
+        adjust(Math.max(1, concurrency / 2), Math.max(partSize / 2, minPartSize),
+                "part failed");
+        startRound(now);
+    }
+
+    /** Returns a snapshot of the current settings and measurements. */
+    public synchronized TransferMetrics getMetrics() {
+        return new TransferMetrics(partSize, concurrency, throughput,
+                TimeUnit.NANOSECONDS.toMillis(meanPartNanos), partsCompleted,
+                partsFailed, concurrencyIncreases, concurrencyDecreases,
+                partSizeIncreases, partSizeDecreases);
+    }
+
+    private void adjust(int newConcurrency, long newPartSize, String reason) {
+        boolean changed = false;
+        if (newConcurrency != concurrency) {
+            if (newConcurrency > concurrency) {
+                concurrencyIncreases++;
+            } else {
+                concurrencyDecreases++;
+            }
+            concurrency = newConcurrency;
+            changed = true;
+        }
+        if (newPartSize != partSize) {
+            if (newPartSize > partSize) {
+                partSizeIncreases++;
+            } else {
+                partSizeDecreases++;
+            }
+            partSize = newPartSize;
+            changed = true;
+        }
+        if (changed) {
+            if (log.isDebugEnabled()) {
+                log.debug("Transferring " + concurrency + " parts of " + partSize
+                        + " bytes at once: " + reason);
+            }
+        }
+        publish();
+    }
+
+    private int shrunk() {
+        return Math.min(concurrency - 1, (int) (concurrency * DECREASE_FACTOR));
+    }
+
+    private void countInFlight(long now) {
+        roundInFlightNanos += (double) inFlight * (now - lastEvent);
+        lastEvent = now;
+    }
+
+    private void startRound(long now) {
+        roundStart = now;
+        roundInFlightNanos = 0;
+        roundParts = 0;
+        roundBytes = 0;
+        roundPartNanos = 0;
+    }
+
+    private void publish() {
+        if (progress != null) {
+            progress.setTransferMetrics(getMetrics());
+        }
+    }
+}
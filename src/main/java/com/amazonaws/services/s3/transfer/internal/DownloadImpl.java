@@ -16,6 +16,7 @@ package com.amazonaws.services.s3.transfer.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.BitSet;
 
 import com.amazonaws.network.event.ProgressEventType;
 import com.amazonaws.network.event.ProgressListenerChain;
@@ -35,12 +36,25 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     private final PersistableDownload persistableDownload;
 
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+
+    /**
+     * The size of each part if the object is downloaded in parts, or zero;
+     * and the ETag of the object and the parts already written to the file.
+     */
+    private long partSize;
+    private String eTag;
+    private final BitSet completedParts = new BitSet();
+
     public DownloadImpl(String description, TransferProgress transferProgress,
             ProgressListenerChain progressListenerChain, S3Object s3Object,
             TransferStateChangeListener listener,
             GetObjectRequest getObjectRequest, File file) {
         super(description, transferProgress, progressListenerChain, listener);
         this.s3Object = s3Object;
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
         this.persistableDownload = captureDownloadState(getObjectRequest, file);
         S3ProgressPublisher.publishTransferPersistable(progressListenerChain,
                 persistableDownload);
@@ -82,7 +96,7 @@ public class DownloadImpl extends AbstractTransfer implements Download {
 
         this.monitor.getFuture().cancel(true);
 
-        if ( s3Object != null ) {
+        if ( s3Object != null && s3Object.getObjectContent() != null ) {
               s3Object.getObjectContent().abort();
         }
         setState(TransferState.Canceled);
@@ -105,6 +119,41 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         this.s3Object = s3Object;
     }
 
+    /**
+     * Marks this download as downloading the object in parts of the given
+     * size, some of which may already be written to the file.
+     *
+     * @param partSize
+     *            the size of each part
+     * @param eTag
+     *            the ETag of the object
+     * @param completedParts
+     *            the numbers of the parts already written to the file
+     */
+    public synchronized void setPartState(long partSize, String eTag,
+            int[] completedParts) {
+        this.partSize = partSize;
+        this.eTag = eTag;
+        this.completedParts.clear();
+        for (int partNumber : completedParts) {
+            this.completedParts.set(partNumber);
+        }
+    }
+
+    /**
+     * Records the given part as written to the file, and publishes the
+     * updated state of the download to resume it from.
+     */
+    public void partCompleted(int partNumber) {
+        synchronized (this) {
+            completedParts.set(partNumber);
+        }
+        if (persistableDownload != null) {
+            S3ProgressPublisher.publishTransferPersistable(
+                    listenerChain, capturePartState());
+        }
+    }
+
     /**
      * This method is also responsible for firing COMPLETED signal to the
      * listeners.
@@ -135,6 +184,28 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         return null;
     }
 
+    /**
+     * Returns the captured state of the download, including the parts already
+     * written to the file if the object is downloaded in parts.
+     */
+    private synchronized PersistableDownload capturePartState() {
+        if (partSize <= 0) {
+            return persistableDownload;
+        }
+        int[] parts = new int[completedParts.cardinality()];
+        for (int i = 0, partNumber = completedParts.nextSetBit(0);
+                partNumber >= 0;
+                partNumber = completedParts.nextSetBit(partNumber + 1)) {
+            parts[i++] = partNumber;
+        }
+        return new PersistableDownload(
+                getObjectRequest.getBucketName(),
+                getObjectRequest.getKey(), getObjectRequest.getVersionId(),
+                null, getObjectRequest.getResponseHeaders(),
+                getObjectRequest.isRequesterPays(), file.getAbsolutePath(),
+                partSize, parts, eTag);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -150,6 +221,6 @@ public class DownloadImpl extends AbstractTransfer implements Download {
             throw new PauseException(TransferManagerUtils.determinePauseStatus(
                     currentState, forceCancel));
         }
-        return persistableDownload;
+        return capturePartState();
     }
 }
\ No newline at end of file
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.client.util.sdk.IOUtils.closeQuietly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLProtocolException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.client.util.sdk.BufferPool;
+import com.amazonaws.exception.AbortedException;
+import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.json.codec.BinaryUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.utility.Md5Utils;
+
+/**
+ * An implementation of the Callable interface that helps
+ * <code>TransferManager</code> in downloading a large object in parts. The
+ * object is split into byte ranges of the configured part size, which are
+ * fetched concurrently by ranged GET requests on the transfer manager thread
+ * pool, and written into the file at their offsets with positional writes.
+ * <p>
+ * The thread running this callable downloads parts too, along with up to one
+ * less than the maximum number of threads of the pool; all of them take the
+ * next pending part until there is none left. The parts whose download has not
+ * started by then are downloaded by this thread rather than waited for, so
+ * that downloads never wait on each other for threads of the pool.
+ * <p>
+ * If auto-tuning is enabled, the number of threads downloading parts follows
+ * the concurrency of an {@link AdaptiveTransferController} instead, fed with
+ * the time each part takes: helpers are submitted to the pool as it grows,
+ * and retire after their current part as it shrinks. The part size stays
+ * fixed, for a paused download to be resumed from its completed parts.
+ * <p>
+ * Each part is requested only if the object still has the ETag it had when
+ * the download started, and the numbers of the parts written to the file are
+ * recorded by the {@link DownloadImpl} for the download to be resumed from
+ * them if paused.
+ */
+public class DownloadPartsCallable implements Callable<File> {
+    private static final Log log = LogFactory.getLog(DownloadPartsCallable.class);
+
+    /** The size of the buffer used to copy each part into the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AmazonS3 s3;
+    private final ExecutorService threadPool;
+    private final int maxThreads;
+    private final DownloadImpl download;
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+    private final long contentLength;
+    private final String eTag;
+    private final long partSize;
+    private final int[] pendingParts;
+    private final CountDownLatch latch;
+    /** The controller tuning the download, or null if not auto-tuned. */
+    private final AdaptiveTransferController controller;
+
+    /** The downloaders submitted to the pool, guarded by itself. */
+    private final List<PartDownloader> downloaders = new ArrayList<PartDownloader>();
+    /** The futures of the downloaders, guarded by the downloaders. */
+    private final List<Future<?>> futures = new ArrayList<Future<?>>();
+    /** Set once no more downloader may be submitted, guarded by the downloaders. */
+    private boolean closed;
+    /** The number of threads meant to download parts, this one included. */
+    private final AtomicInteger workers = new AtomicInteger(1);
+
+    /** The index in pendingParts of the next part to download. */
+    private final AtomicInteger nextPart = new AtomicInteger();
+    /** Set as soon as any part fails, for the other threads to stop. */
+    private volatile boolean failed;
+    /** The failure of the first part that failed. */
+    private final AtomicReference<RuntimeException> firstFailure =
+            new AtomicReference<RuntimeException>();
+
+    /**
+     * @param s3
+     *            the client to download the parts with
+     * @param threadPool
+     *            the pool to download the parts on
+     * @param maxThreads
+     *            the maximum number of threads downloading the parts
+     * @param download
+     *            the download to report the state and completed parts to
+     * @param getObjectRequest
+     *            the request of the whole object
+     * @param file
+     *            the file to download the object to
+     * @param contentLength
+     *            the length of the object
+     * @param eTag
+     *            the ETag of the object
+     * @param partSize
+     *            the size of each part
+     * @param completedParts
+     *            the numbers of the parts already written to the file, if
+     *            resuming a paused download
+     * @param latch
+     *            the latch to wait for before starting the download
+     * @param controller
+     *            the controller tuning the number of threads downloading
+     *            parts, up to the maximum, or null to use the maximum
+     */
+    public DownloadPartsCallable(AmazonS3 s3, ExecutorService threadPool,
+            int maxThreads, DownloadImpl download,
+            GetObjectRequest getObjectRequest, File file, long contentLength,
+            String eTag, long partSize, int[] completedParts,
+            CountDownLatch latch, AdaptiveTransferController controller) {
+        this.s3 = s3;
+        this.threadPool = threadPool;
+        this.maxThreads = Math.max(1, maxThreads);
+        this.download = download;
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
+        this.contentLength = contentLength;
+        this.eTag = eTag;
+        this.partSize = partSize;
+        this.pendingParts = pendingParts(contentLength, partSize, completedParts);
+        this.latch = latch;
+        this.controller = controller;
+    }
+
+    /**
+     * Returns the number of parts of the given size an object of the given
+     * length is downloaded in.
+     */
+    public static int getPartCount(long contentLength, long partSize) {
+        return (int) ((contentLength + partSize - 1) / partSize);
+    }
+
+    private static int[] pendingParts(long contentLength, long partSize,
+            int[] completedParts) {
+        int partCount = getPartCount(contentLength, partSize);
+        int[] completed = completedParts == null ? new int[0] : completedParts.clone();
+        Arrays.sort(completed);
+        int[] pending = new int[partCount];
+        int n = 0;
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            if (Arrays.binarySearch(completed, partNumber) < 0) {
+                pending[n++] = partNumber;
+            }
+        }
+        return Arrays.copyOf(pending, n);
+    }
+
+    public File call() throws Exception {
+        try {
+            latch.await();
+            download.setState(TransferState.InProgress);
+            downloadInParts();
+            verifyIntegrity();
+            download.setState(TransferState.Completed);
+            return file;
+        } catch (Throwable t) {
+            // Downloads aren't allowed to move from canceled to failed
+            if (download.getState() != TransferState.Canceled) {
+                download.setState(TransferState.Failed);
+            }
+            if (t instanceof Exception)
+                throw (Exception) t;
+            else
+                throw (Error) t;
+        }
+    }
+
+    private void downloadInParts() throws Exception {
+        File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            if (!(parentDirectory.mkdirs())) {
+                throw new AmazonClientException(
+                        "Unable to create directory in the path"
+                                + parentDirectory.getAbsolutePath());
+            }
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        boolean succeeded = false;
+        try {
+            if (randomAccessFile.length() != contentLength) {
+                randomAccessFile.setLength(contentLength);
+            }
+            FileChannel channel = randomAccessFile.getChannel();
+
+            int threads = controller == null ? maxThreads : controller.getConcurrency();
+            addHelpers(channel, Math.min(pendingParts.length, threads));
+            downloadPendingParts(channel, false);
+
+            List<PartDownloader> submitted;
+            List<Future<?>> submittedFutures;
+            synchronized (downloaders) {
+                closed = true;
+                submitted = new ArrayList<PartDownloader>(downloaders);
+                submittedFutures = new ArrayList<Future<?>>(futures);
+            }
+            for (int i = 0; i < submitted.size(); i++) {
+                if (submitted.get(i).claim()) {
+                    // Not started, and there is nothing left to download
+                    submittedFutures.get(i).cancel(false);
+                } else {
+                    waitFor(submittedFutures.get(i));
+                }
+            }
+            channel.force(false);
+            succeeded = true;
+        } catch (Exception e) {
+            // Rather than the aborts of the other parts that it caused
+            RuntimeException failure = firstFailure.get();
+            throw failure != null ? failure : e;
+        } finally {
+            if (!succeeded) {
+                failed = true;
+                synchronized (downloaders) {
+                    closed = true;
+                    for (Future<?> future : futures) {
+                        future.cancel(true);
+                    }
+                }
+            }
+            closeQuietly(randomAccessFile, log);
+        }
+    }
+
+    /**
+     * Submits helpers to the pool until as many threads as given are meant to
+     * download parts, unless there is no part left to start.
+     */
+    private void addHelpers(FileChannel channel, int threads) {
+        synchronized (downloaders) {
+            while (!closed && workers.get() < threads
+                    && nextPart.get() < pendingParts.length) {
+                PartDownloader downloader = new PartDownloader(channel);
+                workers.incrementAndGet();
+                downloaders.add(downloader);
+                futures.add(threadPool.submit(downloader));
+            }
+        }
+    }
+
+    /**
+     * Returns true if a helper should stop downloading parts, as there are
+     * more threads downloading them than the concurrency of the download;
+     * counting it out if so.
+     */
+    private boolean retire() {
+        for (;;) {
+            int n = workers.get();
+            if (n <= controller.getConcurrency())
+                return false;
+            if (workers.compareAndSet(n, n - 1))
+                return true;
+        }
+    }
+
+    private static void waitFor(Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads the pending parts until there is none left or any part has
+     * failed.
+     */
+    private void downloadPendingParts(FileChannel channel, boolean isHelper) {
+        int index;
+        while (!failed && (index = nextPart.getAndIncrement()) < pendingParts.length) {
+            int partNumber = pendingParts[index];
+            long startTime = System.nanoTime();
+            if (controller != null) {
+                controller.partStarted();
+            }
+            try {
+                downloadPart(channel, partNumber);
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+            download.partCompleted(partNumber);
+            if (controller != null) {
+                long start = (partNumber - 1) * partSize;
+                controller.partCompleted(Math.min(partSize, contentLength - start),
+                        System.nanoTime() - startTime);
+                if (isHelper && retire())
+                    return;
+                addHelpers(channel, controller.getConcurrency());
+            }
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        firstFailure.compareAndSet(null, e);
+        failed = true;
+    }
+
+    /**
+     * Downloads the given part into the file, with a single retry unless the
+     * failure is caused by aborting the download.
+     */
+    private void downloadPart(FileChannel channel, int partNumber) {
+        boolean hasRetried = false;
+        while (true) {
+            try {
+                writePart(channel, partNumber);
+                return;
+            } catch (AmazonClientException ace) {
+                Throwable cause = ace.getCause();
+                if (hasRetried || failed || !ace.isRetryable()
+                        || ace instanceof AbortedException
+                        || Thread.currentThread().isInterrupted()
+                        || cause instanceof SocketException
+                        || cause instanceof SSLProtocolException
+                        || cause instanceof ClosedChannelException)
+                    throw ace;
+                if (controller != null) {
+                    controller.partFailed();
+                    controller.partStarted();
+                }
+                log.info("Retry the download of part " + partNumber
+                        + " of object " + getObjectRequest.getKey()
+                        + " (bucket " + getObjectRequest.getBucketName() + ")", ace);
+                hasRetried = true;
+            }
+        }
+    }
+
+    private void writePart(FileChannel channel, int partNumber) {
+        final long start = (partNumber - 1) * partSize;
+        final long end = Math.min(start + partSize, contentLength) - 1;
+
+        GetObjectRequest partRequest = new GetObjectRequest(
+                getObjectRequest.getBucketName(), getObjectRequest.getKey(),
+                getObjectRequest.getVersionId());
+        partRequest.setRange(start, end);
+        partRequest.setMatchingETagConstraints(Collections.singletonList(eTag));
+        partRequest.setResponseHeaders(getObjectRequest.getResponseHeaders());
+        partRequest.setRequesterPays(getObjectRequest.isRequesterPays());
+        partRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
+        partRequest.setGeneralProgressListener(getObjectRequest.getGeneralProgressListener());
+        TransferManager.appendMultipartUserAgent(partRequest);
+
+        S3Object s3Object = s3.getObject(partRequest);
+        if (s3Object == null) {
+            // Not worth retrying, nor downloading any other part
+            AmazonClientException ace = new AmazonClientException("Unable to download part "
+                    + partNumber + " of object " + getObjectRequest.getKey()
+                    + ": the object has changed since the download started");
+            fail(ace);
+            throw ace;
+        }
+
+        InputStream content = s3Object.getObjectContent();
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        boolean completed = false;
+        try {
+            long position = start;
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) > -1) {
+                if (Thread.currentThread().isInterrupted() || failed) {
+                    throw new AbortedException();
+                }
+                if (position + bytesRead > end + 1) {
+                    throw new AmazonClientException("Unexpected content length of part "
+                            + partNumber + " of object " + getObjectRequest.getKey());
+                }
+                ByteBuffer src = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (src.hasRemaining()) {
+                    position += channel.write(src, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new AmazonClientException("Unable to store part " + partNumber
+                        + " of object contents to disk: the connection was closed after "
+                        + (position - start) + " of " + (end + 1 - start) + " bytes");
+            }
+            completed = true;
+        } catch (IOException e) {
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            BufferPool.getDefault().release(buffer);
+            if (!completed) {
+                s3Object.getObjectContent().abort();
+            }
+            closeQuietly(content, log);
+        }
+    }
+
+    /**
+     * Compares the MD5 digest of the file with the ETag of the object, unless
+     * it was uploaded in parts.
+     */
+    private void verifyIntegrity() {
+        if (ServiceUtils.isMultipartUploadETag(eTag))
+            return;
+        byte[] clientSideHash;
+        byte[] serverSideHash;
+        try {
+            clientSideHash = Md5Utils.computeMD5Hash(new FileInputStream(file));
+            serverSideHash = BinaryUtils.fromHex(eTag);
+        } catch (Exception e) {
+            log.warn("Unable to calculate MD5 hash to validate download: " + e.getMessage(), e);
+            return;
+        }
+        if (!Arrays.equals(clientSideHash, serverSideHash)) {
+            throw new AmazonClientException("Unable to verify integrity of data download.  " +
+                    "Client calculated content hash didn't match hash calculated by Amazon S3.  " +
+                    "The data stored in '" + file.getAbsolutePath() + "' may be corrupt.");
+        }
+    }
+
+    /**
+     * Downloads the pending parts on a thread of the pool, unless claimed by
+     * the thread running the download first.
+     */
+    private final class PartDownloader implements Runnable {
+        private final FileChannel channel;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PartDownloader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Returns true if this downloader had not started yet. */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        public void run() {
+            if (claim()) {
+                downloadPendingParts(channel, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.network.event.SDKProgressPublisher.publishProgress;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.exception.AbortedException;
+import com.amazonaws.exception.AmazonClientException;
+import com.amazonaws.network.event.ProgressEventType;
+import com.amazonaws.network.event.ProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Encryption;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
+import com.amazonaws.services.s3.transfer.TransferMetrics;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+
+/**
+ * Uploads a stream of unknown length part by part, as it is read or written:
+ * each part is filled into one of a bounded number of reusable buffers, and
+ * uploaded on the transfer manager thread pool while the next ones are
+ * filled. The memory used is therefore at most the number of buffers times
+ * the part size, however long the stream.
+ * <p>
+ * The last full part is held back until the next part or the end of the
+ * stream, to know whether it is the last part; and a stream that ends within
+ * its first part is uploaded with a single PutObject request instead of a
+ * multipart upload. The parts of an encrypted upload are uploaded one at a
+ * time, in order, as the encryption of each part depends on the previous one.
+ * <p>
+ * The part size doubles every thousand parts, from the given initial size up
+ * to 1 GB, so that the ten thousand parts of an upload can hold more than
+ * three terabytes.
+ * <p>
+ * If auto-tuning is enabled, the number of parts in flight and the size of the
+ * next parts are also tuned by an {@link AdaptiveTransferController} to the
+ * throughput measured as the parts are uploaded, the part size never being
+ * smaller than it would be otherwise.
+ * <p>
+ * This class is meant to be used by a single thread, which is also the one
+ * that uploads the oldest part itself if all the buffers are in use before
+ * the thread pool has started uploading it; except for {@link #abort()},
+ * which any thread may call.
+ */
+public class PartUploadPipeline {
+    private static final Log log = LogFactory.getLog(PartUploadPipeline.class);
+
+    /** The number of parts after which the part size doubles. */
+    private static final int PARTS_PER_SIZE = 1000;
+    /** The maximum size of a part, i.e. of a part buffer. */
+    private static final int MAXIMUM_PART_SIZE = 1 << 30;
+    /** The maximum number of parts of a multipart upload. */
+    private static final int MAXIMUM_UPLOAD_PARTS = 10000;
+    /** The buffers filled, held back and uploaded, at least. */
+    private static final int MINIMUM_BUFFER_COUNT = 3;
+    /** The time to wait for the parts being uploaded to stop on abort. */
+    private static final long ABORT_WAIT_MILLIS = 10 * 1000;
+
+    private final AmazonS3 s3;
+    private final ExecutorService threadPool;
+    private final PutObjectRequest putObjectRequest;
+    private final ProgressListener listener;
+    private final boolean isUsingEncryption;
+    private final int initialPartSize;
+    private final int maximumBuffers;
+    /** The controller tuning the upload, or null if not auto-tuned. */
+    private final AdaptiveTransferController controller;
+
+    /** The parts submitted and not completed yet, guarded by this pipeline. */
+    private final LinkedList<PartUpload> inFlight = new LinkedList<PartUpload>();
+    private final LinkedList<byte[]> freeBuffers = new LinkedList<byte[]>();
+    private final List<PartETag> partETags = new ArrayList<PartETag>();
+    /** The number of buffers filled, held back or being uploaded. */
+    private int buffersInUse;
+    private byte[] heldBack;
+    private int nextPartNumber = 1;
+    /** The id of the multipart upload, set while holding this pipeline. */
+    private volatile String multipartUploadId;
+    private boolean closed;
+    private volatile boolean aborted;
+
+    /**
+     * @param s3
+     *            The client to upload with.
+     * @param threadPool
+     *            The thread pool to upload the parts on.
+     * @param putObjectRequest
+     *            The request holding the bucket, key, metadata and options of
+     *            the object to upload; its input stream, if any, is ignored.
+     * @param listener
+     *            The listener of the transfer events, notified when the
+     *            multipart upload starts.
+     * @param configuration
+     *            The configuration holding the initial part size, of at least
+     *            5 MB, the maximum number of part buffers, at least three of
+     *            them being used anyway, and the auto-tuning settings.
+     * @param progress
+     *            The progress to publish the metrics of an auto-tuned upload
+     *            to, or null.
+     */
+    public PartUploadPipeline(AmazonS3 s3, ExecutorService threadPool,
+            PutObjectRequest putObjectRequest, ProgressListener listener,
+            TransferManagerConfiguration configuration, TransferProgress progress) {
+        this.s3 = s3;
+        this.threadPool = threadPool;
+        this.putObjectRequest = putObjectRequest;
+        this.listener = listener;
+        this.isUsingEncryption = s3 instanceof AmazonS3Encryption;
+        this.initialPartSize = configuration.getStreamingUploadPartSize();
+        this.maximumBuffers = Math.max(MINIMUM_BUFFER_COUNT,
+                TransferManagerUtils.getStreamingUploadBufferCount(threadPool, configuration));
+        // One buffer is being filled and another one held back
+        this.controller = configuration.isAutoTuneEnabled()
+                ? new AdaptiveTransferController(maximumBuffers - 2, initialPartSize,
+                        Math.min(configuration.getMaximumAutoTunedPartSize(), MAXIMUM_PART_SIZE),
+                        progress)
+                : null;
+    }
+
+    /**
+     * Returns the buffer to fill with the next part, of the size of that
+     * part; after waiting for the oldest part to be uploaded if all the
+     * buffers are in use.
+     */
+    public byte[] nextBuffer() {
+        checkOpen();
+        int size = partSize(nextPartNumber + (heldBack == null ? 0 : 1));
+        if (controller != null) {
+            size = (int) Math.max(size, controller.getPartSize());
+        }
+        while (buffersInUse >= maximumBuffers && hasPartsInFlight()) {
+            completeOldestPart();
+        }
+        buffersInUse++;
+        while (!freeBuffers.isEmpty()) {
+            byte[] buffer = freeBuffers.removeFirst();
+            if (buffer.length == size)
+                return buffer;
+        }
+        return new byte[size];
+    }
+
+    /**
+     * Adds the given full buffer, returned by {@link #nextBuffer()}, as the
+     * next part of the object; and uploads the part held back before it, now
+     * known not to be the last one.
+     */
+    public void addPart(byte[] buffer) {
+        checkOpen();
+        if (heldBack != null) {
+            uploadPart(heldBack, heldBack.length, false);
+        }
+        heldBack = buffer;
+    }
+
+    /**
+     * Uploads the given buffer, returned by {@link #nextBuffer()}, as the end
+     * of the object, waits for all the parts to be uploaded and completes the
+     * upload; or aborts it on failure.
+     *
+     * @param buffer
+     *            The buffer holding the end of the object.
+     * @param length
+     *            The number of bytes at the end of the object, possibly zero.
+     * @return The result of the upload.
+     */
+    public UploadResult complete(byte[] buffer, int length) {
+        checkOpen();
+        closed = true;
+        try {
+            if (heldBack == null) {
+                return putObject(buffer, length);
+            }
+            if (length > 0) {
+                uploadPart(heldBack, heldBack.length, false);
+                uploadPart(buffer, length, true);
+            } else {
+                uploadPart(heldBack, heldBack.length, true);
+            }
+            heldBack = null;
+            while (hasPartsInFlight()) {
+                completeOldestPart();
+            }
+            CompleteMultipartUploadResult result = s3.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(putObjectRequest.getBucketName(),
+                            putObjectRequest.getKey(), multipartUploadId, partETags));
+
+            UploadResult uploadResult = new UploadResult();
+            uploadResult.setBucketName(result.getBucketName());
+            uploadResult.setKey(result.getKey());
+            uploadResult.setETag(result.getETag());
+            uploadResult.setVersionId(result.getVersionId());
+            return uploadResult;
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        } catch (Error e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the parts not uploaded yet and aborts the multipart upload, if
+     * any, unless already done. Failures to abort are logged, as there is
+     * nothing more to do.
+     * <p>
+     * The parts being uploaded are interrupted, and waited for up to ten
+     * seconds before aborting, as a part completing after the abort would
+     * be stored and billed until aborted again.
+     * <p>
+     * This may be called by another thread than the one filling the buffers,
+     * which then fails with a {@link CancellationException}; a multipart
+     * upload it is initiating at the time is aborted once initiated.
+     */
+    public void abort() {
+        List<PartUpload> parts;
+        synchronized (this) {
+            if (aborted)
+                return;
+            aborted = true;
+            parts = new ArrayList<PartUpload>(inFlight);
+            inFlight.clear();
+        }
+        for (PartUpload part : parts) {
+            part.cancel();
+        }
+        String multipartUploadId = this.multipartUploadId;
+        if (multipartUploadId != null) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ABORT_WAIT_MILLIS);
+            for (PartUpload part : parts) {
+                if (!part.awaitStopped(deadline)) {
+                    log.warn("Aborting multipart upload " + multipartUploadId
+                            + " while parts are still being uploaded, you may need to manually remove them");
+                    break;
+                }
+            }
+            try {
+                s3.abortMultipartUpload(new AbortMultipartUploadRequest(
+                        putObjectRequest.getBucketName(), putObjectRequest.getKey(),
+                        multipartUploadId));
+            } catch (Exception e) {
+                log.info("Unable to abort multipart upload, you may need to manually remove uploaded parts: "
+                        + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Returns true once the object is uploaded with a multipart upload. */
+    public boolean isMultipartUpload() {
+        return multipartUploadId != null;
+    }
+
+    /** Returns the metrics of the upload if auto-tuned, otherwise null. */
+    public TransferMetrics getTransferMetrics() {
+        return controller == null ? null : controller.getMetrics();
+    }
+
+    /**
+     * Returns the size of the given part: the initial part size, doubled
+     * every thousand parts, up to the maximum.
+     */
+    private int partSize(int partNumber) {
+        int doublings = Math.min((partNumber - 1) / PARTS_PER_SIZE, 30);
+        return (int) Math.min((long) initialPartSize << doublings, MAXIMUM_PART_SIZE);
+    }
+
+    private void checkOpen() {
+        if (aborted)
+            throw new CancellationException("The upload has been aborted");
+        if (closed)
+            throw new IllegalStateException("The upload is already complete");
+    }
+
+    private synchronized boolean hasPartsInFlight() {
+        return !inFlight.isEmpty();
+    }
+
+    private UploadResult putObject(byte[] buffer, int length) {
+        putObjectRequest.getMetadata().setContentLength(length);
+        putObjectRequest.setInputStream(new ByteArrayInputStream(buffer, 0, length));
+        PutObjectResult result = s3.putObject(putObjectRequest);
+
+        UploadResult uploadResult = new UploadResult();
+        uploadResult.setBucketName(putObjectRequest.getBucketName());
+        uploadResult.setKey(putObjectRequest.getKey());
+        uploadResult.setETag(result.getETag());
+        uploadResult.setVersionId(result.getVersionId());
+        return uploadResult;
+    }
+
+    private void uploadPart(byte[] buffer, int length, boolean isLastPart) {
+        if (threadPool.isShutdown())
+            throw new CancellationException("TransferManager has been shutdown");
+        if (nextPartNumber > MAXIMUM_UPLOAD_PARTS)
+            throw new AmazonClientException("Unable to upload the stream in at most "
+                    + MAXIMUM_UPLOAD_PARTS + " parts");
+        if (multipartUploadId == null) {
+            initiateMultipartUpload();
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        }
+        if (isUsingEncryption) {
+            while (hasPartsInFlight()) {
+                completeOldestPart();
+            }
+        } else if (controller != null) {
+            while (countPartsInFlight() >= controller.getConcurrency()) {
+                completeOldestPart();
+            }
+        }
+
+        UploadPartRequest request = new UploadPartRequest()
+            .withBucketName(putObjectRequest.getBucketName())
+            .withKey(putObjectRequest.getKey())
+            .withUploadId(multipartUploadId)
+            .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+            .withPartNumber(nextPartNumber++)
+            .withPartSize(length);
+        TransferManager.appendMultipartUserAgent(request);
+        if (putObjectRequest.getSSECustomerKey() != null)
+            request.setSSECustomerKey(putObjectRequest.getSSECustomerKey());
+        request.setLastPart(isLastPart);
+        request.setGeneralProgressListener(putObjectRequest.getGeneralProgressListener());
+
+        PartUpload part = new PartUpload(request, buffer);
+        synchronized (this) {
+            if (aborted)
+                throw new CancellationException("The upload has been aborted");
+            inFlight.add(part);
+            part.future = threadPool.submit(part);
+        }
+    }
+
+    /**
+     * Initiates the multipart upload while holding this pipeline, so that an
+     * abort either prevents it or sees its id.
+     */
+    private synchronized void initiateMultipartUpload() {
+        if (aborted)
+            throw new CancellationException("The upload has been aborted");
+        multipartUploadId = UploadCallable.initiateMultipartUpload(s3,
+                putObjectRequest, isUsingEncryption);
+    }
+
+    private synchronized int countPartsInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Waits for the oldest part in flight to be uploaded, uploading it in
+     * this thread if it has not started yet, and recycles its buffer.
+     */
+    private void completeOldestPart() {
+        PartUpload part;
+        synchronized (this) {
+            if (inFlight.isEmpty())
+                throw new CancellationException("The upload has been aborted");
+            part = inFlight.removeFirst();
+        }
+        partETags.add(part.await());
+        buffersInUse--;
+        freeBuffers.add(part.buffer);
+    }
+
+    /**
+     * The upload of a part, run by whichever of the thread pool and the
+     * thread filling the buffers claims it first.
+     */
+    private final class PartUpload implements Runnable {
+        private final UploadPartRequest request;
+        private final byte[] buffer;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Future<?> future;
+        private PartETag partETag;
+        private RuntimeException failure;
+
+        PartUpload(UploadPartRequest request, byte[] buffer) {
+            this.request = request;
+            this.buffer = buffer;
+        }
+
+        public void run() {
+            if (!claimed.compareAndSet(false, true))
+                return;
+            long startTime = System.nanoTime();
+            if (controller != null) {
+                controller.partStarted();
+            }
+            try {
+                partETag = s3.uploadPart(request).getPartETag();
+                if (controller != null) {
+                    controller.partCompleted(request.getPartSize(),
+                            System.nanoTime() - startTime);
+                }
+            } catch (RuntimeException e) {
+                if (controller != null) {
+                    controller.partFailed();
+                }
+                failure = e;
+            } catch (Error e) {
+                failure = new AmazonClientException("Unable to upload part", e);
+                throw e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        PartETag await() {
+            run();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException(e);
+            }
+            if (failure != null)
+                throw failure;
+            return partETag;
+        }
+
+        /**
+         * Waits until this part is no longer being uploaded, returning true
+         * if so or false if the given deadline of {@link System#nanoTime()}
+         * passed, or the thread was interrupted, before.
+         */
+        boolean awaitStopped(long deadline) {
+            try {
+                return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Cancels this part, releasing the thread waiting for it; unless it
+         * is being uploaded, in which case the upload is interrupted.
+         */
+        void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                failure = new CancellationException("The upload has been aborted");
+                done.countDown();
+            }
+            if (future != null)
+                future.cancel(true);
+        }
+    }
+}
@@ -17,11 +17,13 @@ package com.amazonaws.services.s3.transfer.internal;
 import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.transfer.PauseStatus;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
@@ -32,6 +34,9 @@ import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
  */
 public class TransferManagerUtils {
 
+    /** The number of threads of the default thread pool. */
+    private static final int DEFAULT_THREAD_COUNT = 10;
+
     /**
      * Returns a new thread pool configured with the default settings.
      *
@@ -47,7 +52,67 @@ public class TransferManagerUtils {
                 return thread;
             }
         };
-        return (ThreadPoolExecutor)Executors.newFixedThreadPool(10, threadFactory);
+        return (ThreadPoolExecutor)Executors.newFixedThreadPool(DEFAULT_THREAD_COUNT, threadFactory);
+    }
+
+    /**
+     * Returns the maximum number of threads of the given pool that a single
+     * transfer should use: the maximum size of a bounded thread pool, or the
+     * size of the default thread pool otherwise.
+     */
+    public static int getMaximumThreads(ExecutorService threadPool) {
+        if (threadPool instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool;
+            if (executor.getMaximumPoolSize() != Integer.MAX_VALUE)
+                return executor.getMaximumPoolSize();
+            return Math.max(executor.getCorePoolSize(), DEFAULT_THREAD_COUNT);
+        }
+        return DEFAULT_THREAD_COUNT;
+    }
+
+    /**
+     * Returns true if the specified download request should be split into
+     * byte ranges downloaded in parallel, given the length of the object.
+     *
+     * @param getObjectRequest
+     *            The request to check.
+     * @param contentLength
+     *            The length of the object to download.
+     * @param isUsingEncryption
+     *            True if the object is decrypted by the client, otherwise
+     *            false.
+     */
+    public static boolean shouldUseMultipartDownload(
+            GetObjectRequest getObjectRequest, long contentLength,
+            boolean isUsingEncryption, TransferManagerConfiguration configuration) {
+        // Encrypted objects can only be decrypted as a single stream
+        if (isUsingEncryption || getObjectRequest.getRange() != null)
+            return false;
+        return configuration.getMultipartDownloadPartSize() > 0
+                && contentLength >= configuration.getMultipartDownloadThreshold();
+    }
+
+    /**
+     * Returns true if the specified upload request should be uploaded part by
+     * part as its input stream is read, i.e. if the length of its input
+     * stream is unknown.
+     */
+    public static boolean shouldUseStreamingUpload(PutObjectRequest putObjectRequest,
+            TransferManagerConfiguration configuration) {
+        return putObjectRequest.getInputStream() != null
+                && getContentLength(putObjectRequest) < 0
+                && configuration.getStreamingUploadPartSize() > 0;
+    }
+
+    /**
+     * Returns the maximum number of part buffers of a streaming upload on the
+     * given thread pool: the configured number, if any, or the number of
+     * threads a single transfer should use.
+     */
+    public static int getStreamingUploadBufferCount(ExecutorService threadPool,
+            TransferManagerConfiguration configuration) {
+        int bufferCount = configuration.getStreamingUploadBufferCount();
+        return bufferCount > 0 ? bufferCount : getMaximumThreads(threadPool);
     }
 
     /**
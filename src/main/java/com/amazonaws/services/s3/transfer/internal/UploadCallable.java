@@ -19,16 +19,21 @@ import static com.amazonaws.network.event.SDKProgressPublisher.publishProgress;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.client.util.sdk.IOUtils;
 import com.amazonaws.network.event.ProgressEventType;
 import com.amazonaws.network.event.ProgressListenerChain;
 import com.amazonaws.services.s3.AmazonS3;
@@ -75,6 +80,11 @@ public class UploadCallable implements Callable<UploadResult> {
 
     private PersistableUpload persistableUpload;
 
+    /** The pipeline of a streaming upload, once started. */
+    private volatile PartUploadPipeline pipeline;
+    /** Whether the upload has been aborted, before its pipeline started. */
+    private volatile boolean aborted;
+
     public UploadCallable(TransferManager transferManager,
             ExecutorService threadPool, UploadImpl upload,
             PutObjectRequest putObjectRequest,
@@ -112,12 +122,17 @@ public class UploadCallable implements Callable<UploadResult> {
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
+        if (pipeline != null) {
+            return pipeline.isMultipartUpload();
+        }
         return TransferManagerUtils.shouldUseMultipartUpload(putObjectRequest, configuration);
     }
 
     public UploadResult call() throws Exception {
         upload.setState(TransferState.InProgress);
-        if ( isMultipartUpload() ) {
+        if ( TransferManagerUtils.shouldUseStreamingUpload(putObjectRequest, configuration) ) {
+            return uploadStreamInParts();
+        } else if ( isMultipartUpload() ) {
             publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
             return uploadInParts();
         } else {
@@ -139,6 +154,38 @@ public class UploadCallable implements Callable<UploadResult> {
         return uploadResult;
     }
 
+    /**
+     * Uploads the request input stream, of unknown length, part by part as it
+     * is read, and returns the result.
+     */
+    private UploadResult uploadStreamInParts() throws Exception {
+        InputStream input = putObjectRequest.getInputStream();
+        pipeline = new PartUploadPipeline(s3, threadPool, putObjectRequest,
+                listener, configuration, transferProgress);
+        if (aborted) {
+            pipeline.abort();
+        }
+        try {
+            for (;;) {
+                byte[] buffer = pipeline.nextBuffer();
+                int length = IOUtils.readFully(input, buffer);
+                if (length < buffer.length) {
+                    return pipeline.complete(buffer, length);
+                }
+                pipeline.addPart(buffer);
+            }
+        } catch (Exception e) {
+            pipeline.abort();
+            throw e;
+        } finally {
+            try {
+                input.close();
+            } catch (Exception e) {
+                log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * Captures the state of the upload.
      */
@@ -175,7 +222,7 @@ public class UploadCallable implements Callable<UploadResult> {
         long optimalPartSize = getOptimalPartSize(isUsingEncryption);
 
         if (multipartUploadId == null) {
-            multipartUploadId = initiateMultipartUpload(putObjectRequest,
+            multipartUploadId = initiateMultipartUpload(s3, putObjectRequest,
                     isUsingEncryption);
         }
 
@@ -184,7 +231,7 @@ public class UploadCallable implements Callable<UploadResult> {
 
             if (TransferManagerUtils.isUploadParallelizable(putObjectRequest, isUsingEncryption)) {
                 captureUploadStateIfPossible();
-                uploadPartsInParallel(requestFactory, multipartUploadId);
+                uploadPartsInParallel(requestFactory, multipartUploadId, optimalPartSize);
                 return null;
             } else {
                 return uploadPartsInSeries(requestFactory);
@@ -205,9 +252,17 @@ public class UploadCallable implements Callable<UploadResult> {
     /**
      * Performs an
      * {@link AmazonS3#abortMultipartUpload(AbortMultipartUploadRequest)}
-     * operation for the given multi-part upload.
+     * operation for the given multi-part upload. A streaming upload, whose
+     * multipart upload is initiated by its pipeline, is aborted by the
+     * pipeline instead, from whichever thread calls this.
      */
     void performAbortMultipartUpload() {
+        aborted = true;
+        PartUploadPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.abort();
+            return;
+        }
         try {
             if (multipartUploadId != null)
                 s3.abortMultipartUpload(new AbortMultipartUploadRequest(
@@ -270,11 +325,18 @@ public class UploadCallable implements Callable<UploadResult> {
 
     /**
      * Submits a callable for each part to upload to our thread pool and records its corresponding Future.
+     * If auto-tuning is enabled, the parts are instead queued to a {@link PartScheduler}, which submits
+     * them as earlier parts complete.
      */
     private void uploadPartsInParallel(UploadPartRequestFactory requestFactory,
-            String uploadId) {
+            String uploadId, long partSize) {
 
         Map<Integer,PartSummary> partNumbers = identifyExistingPartsForResume(uploadId);
+        PartScheduler scheduler = configuration.isAutoTuneEnabled()
+                ? new PartScheduler(new AdaptiveTransferController(
+                        TransferManagerUtils.getMaximumThreads(threadPool),
+                        partSize, partSize, transferProgress))
+                : null;
 
         while (requestFactory.hasMoreRequests()) {
             if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
@@ -286,7 +348,106 @@ public class UploadCallable implements Callable<UploadResult> {
                 transferProgress.updateProgress(summary.getSize());
                 continue;
             }
-            futures.add(threadPool.submit(new UploadPartCallable(s3, request)));
+            if (scheduler != null) {
+                futures.add(scheduler.add(request));
+            } else {
+                futures.add(threadPool.submit(new UploadPartCallable(s3, request)));
+            }
+        }
+        if (scheduler != null) {
+            scheduler.submitParts();
+        }
+    }
+
+    /**
+     * Submits the parts of an auto-tuned upload to the thread pool as earlier
+     * parts complete, so that as many parts are in flight as the concurrency
+     * of its {@link AdaptiveTransferController}, fed with the time each part
+     * takes. The size of the parts stays the one they were planned with, for
+     * a paused upload to be resumed from its completed parts.
+     * <p>
+     * The future of each part is returned as soon as the part is queued, and
+     * a part cancelled before being submitted completes as soon as it is.
+     */
+    private final class PartScheduler {
+        private final AdaptiveTransferController controller;
+        /** The parts not submitted yet, guarded by this. */
+        private final Queue<FutureTask<PartETag>> pendingParts = new LinkedList<FutureTask<PartETag>>();
+        /** The number of parts submitted and not completed, guarded by this. */
+        private int partsInFlight;
+
+        PartScheduler(AdaptiveTransferController controller) {
+            this.controller = controller;
+        }
+
+        /** Queues the given part, returning its future. */
+        synchronized Future<PartETag> add(final UploadPartRequest request) {
+            FutureTask<PartETag> part = new FutureTask<PartETag>(new Callable<PartETag>() {
+                public PartETag call() throws Exception {
+                    controller.partStarted();
+                    long start = System.nanoTime();
+                    boolean completed = false;
+                    try {
+                        PartETag partETag = s3.uploadPart(request).getPartETag();
+                        completed = true;
+                        controller.partCompleted(request.getPartSize(), System.nanoTime() - start);
+                        return partETag;
+                    } finally {
+                        if (!completed) {
+                            controller.partFailed();
+                        }
+                    }
+                }
+            });
+            pendingParts.add(part);
+            return part;
+        }
+
+        /**
+         * Submits the next queued parts until as many are in flight as the
+         * concurrency of the upload; cancelling the parts left if the thread
+         * pool has been shut down.
+         */
+        void submitParts() {
+            for (;;) {
+                final FutureTask<PartETag> part;
+                synchronized (this) {
+                    if (pendingParts.isEmpty() || partsInFlight >= controller.getConcurrency())
+                        return;
+                    part = pendingParts.remove();
+                    partsInFlight++;
+                }
+                try {
+                    threadPool.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                part.run();
+                            } finally {
+                                partDone();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    List<FutureTask<PartETag>> parts;
+                    synchronized (this) {
+                        partsInFlight--;
+                        parts = new ArrayList<FutureTask<PartETag>>(pendingParts);
+                        pendingParts.clear();
+                    }
+                    part.cancel(false);
+                    for (FutureTask<PartETag> left : parts) {
+                        left.cancel(false);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void partDone() {
+            synchronized (this) {
+                partsInFlight--;
+            }
+            submitParts();
         }
     }
 
@@ -317,7 +478,7 @@ public class UploadCallable implements Callable<UploadResult> {
      * Initiates a multipart upload and returns the upload id
      * @param isUsingEncryption
      */
-    private String initiateMultipartUpload(PutObjectRequest putObjectRequest, boolean isUsingEncryption) {
+    static String initiateMultipartUpload(AmazonS3 s3, PutObjectRequest putObjectRequest, boolean isUsingEncryption) {
     	
         InitiateMultipartUploadRequest initiateMultipartUploadRequest = null;
         if (isUsingEncryption && putObjectRequest instanceof EncryptedPutObjectRequest) {
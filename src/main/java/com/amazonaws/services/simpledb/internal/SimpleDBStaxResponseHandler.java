@@ -25,6 +25,11 @@ public class SimpleDBStaxResponseHandler<T> extends StaxResponseHandler<T> {
         super(responseUnmarshaller);
     }
 
+    public SimpleDBStaxResponseHandler(Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller,
+            boolean useXmlStreamReader) {
+        super(responseUnmarshaller, useXmlStreamReader);
+    }
+
     @Override
     protected void registerAdditionalMetadataExpressions(StaxUnmarshallerContext unmarshallerContext) {
         unmarshallerContext.registerMetadataExpression("ResponseMetadata/BoxUsage", 2, SimpleDBResponseMetadata.BOX_USAGE);
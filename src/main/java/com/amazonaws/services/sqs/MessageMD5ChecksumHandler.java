@@ -41,6 +41,7 @@ import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.amazonaws.utility.DigestAlgorithm;
 import com.amazonaws.utility.Md5Utils;
 import com.amazonaws.utility.TimingInfo;
 
@@ -229,7 +230,7 @@ public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
 
         MessageDigest md5Digest = null;
         try {
-            md5Digest = MessageDigest.getInstance("MD5");
+            md5Digest = DigestAlgorithm.MD5.getThreadLocalDigest();
 
             for (String attrName : sortedAttributeNames) {
                 MessageAttributeValue attrValue = messageAttributes.get(attrName);
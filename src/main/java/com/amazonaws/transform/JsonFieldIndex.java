@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.transform;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable index of the member names of a JSON object, for the
+ * unmarshallers to dispatch on the current field with a single hash lookup
+ * and a <code>switch</code>, rather than testing every member name in turn.
+ * <p>
+ * For example:
+ * <pre>
+ * private static final JsonFieldIndex FIELDS = new JsonFieldIndex("S", "N");
+ * ...
+ * switch (FIELDS.indexOf(context, targetDepth)) {
+ * case 0: ...
+ * case 1: ...
+ * }</pre>
+ */
+public final class JsonFieldIndex {
+    private final Map<String, Integer> indexes;
+
+    /**
+     * @param names
+     *            the member names, indexed by their position
+     */
+    public JsonFieldIndex(String... names) {
+        Map<String, Integer> map = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], Integer.valueOf(i));
+        }
+        this.indexes = map;
+    }
+
+    /**
+     * Returns the index of the field the given context is at, if it is at the
+     * given depth; or -1 if it is at another depth or another field.
+     */
+    public int indexOf(JsonUnmarshallerContext context, int targetDepth) {
+        if (context.getCurrentDepth() != targetDepth) {
+            return -1;
+        }
+        Integer index = indexes.get(context.getCurrentParentElement());
+        return index == null ? -1 : index.intValue();
+    }
+}
@@ -21,15 +21,26 @@ import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
 import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Stack;
 
 import com.amazonaws.network.response.HttpResponse;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
+/**
+ * The JSON unmarshaller context of a response, tracking the path of field
+ * names from the root of the document to the current token.
+ * <p>
+ * The field names are the canonical, interned strings of the symbol table of
+ * the Jackson parser, and the field names tested by the unmarshallers are
+ * string literals, so that matching a field is typically a reference
+ * comparison; and the stack of the enclosing fields is a pair of plain arrays.
+ * The context is used by a single thread, and is not thread safe.
+ */
 public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
+    private static final int INITIAL_STACK_CAPACITY = 16;
 
     /** The current JsonToken that the private JsonParser is currently pointing to. **/
     private JsonToken currentToken;
@@ -42,7 +53,7 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
     private String currentHeader;
 
     /**
-     * A stack of JsonFieldTokenPair objects that indicates the current state of the context.
+     * A stack of (field, token) pairs that indicates the current state of the context.
      * For example, if we have a JSON object:
      * {
      *   A :
@@ -58,8 +69,12 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
      * }
      * When the parser points to "D", the state of this stack should be (from top to bottom):
      *  [ (C, START_OBJECT), (B, START_ARRAY), (A, START_OBJECT) ]
+     * The fields and tokens are held in two parallel arrays, from bottom to
+     * top, the top being at index stackSize - 1.
      */
-    private final Stack<JsonFieldTokenPair> stack = new Stack<JsonFieldTokenPair>();
+    private String[] stackFields = new String[INITIAL_STACK_CAPACITY];
+    private JsonToken[] stackTokens = new JsonToken[INITIAL_STACK_CAPACITY];
+    private int stackSize;
 
     /**
      * The name of the field that is currently being parsed. This value is
@@ -109,7 +124,7 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
 
     @Override
     public int getCurrentDepth() {
-        int depth = stack.size();
+        int depth = stackSize;
         if (currentField != null) depth++;
         return depth;
     }
@@ -154,14 +169,14 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
 
     @Override
     public boolean testExpression(String expression) {
-        if (expression.equals(".")) {
+        if (isSelf(expression)) {
             return true;
         } else {
             if (currentField != null) {
-                return currentField.equals(expression);
+                return fieldEquals(currentField, expression);
             } else {
-                return (!stack.isEmpty())
-                        && stack.peek().getField().equals(expression);
+                return stackSize > 0
+                        && fieldEquals(stackFields[stackSize - 1], expression);
             }
         }
     }
@@ -171,8 +186,8 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
         String parentElement;
         if (currentField != null) {
             parentElement = currentField;
-        } else if ( !stack.isEmpty() ) {
-            parentElement = stack.peek().getField();
+        } else if (stackSize > 0) {
+            parentElement = stackFields[stackSize - 1];
         } else {
             parentElement = "";
         }
@@ -181,14 +196,30 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
 
     @Override
     public boolean testExpression(String expression, int stackDepth) {
-        if (expression.equals(".")) {
+        if (isSelf(expression)) {
             return true;
         } else {
-            return testExpression(expression)
-                    && stackDepth == getCurrentDepth();
+            // The depth is the cheaper test, and rules out most fields
+            return stackDepth == getCurrentDepth()
+                    && testExpression(expression);
         }
     }
 
+    private static boolean isSelf(String expression) {
+        return expression.length() == 1 && expression.charAt(0) == '.';
+    }
+
+    /**
+     * Returns true if the given field name equals the given expression.
+     * Both are usually interned, in which case this is decided by the
+     * reference comparison or the cached hash codes.
+     */
+    private static boolean fieldEquals(String field, String expression) {
+        return field == expression
+            || (field.hashCode() == expression.hashCode()
+                && field.equals(expression));
+    }
+
     @Override
     public JsonToken nextToken() throws IOException {
         // Use the value from the nextToken field if
@@ -237,31 +268,43 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
 
         if (currentToken == START_OBJECT || currentToken == START_ARRAY) {
             if (currentField != null) {
-                stack.push(new JsonFieldTokenPair(currentField, currentToken));
+                push(currentField, currentToken);
                 currentField = null;
             }
         } else if (currentToken == END_OBJECT || currentToken == END_ARRAY) {
-            if (!stack.isEmpty()) {
-                boolean squareBracketsMatch = currentToken == END_ARRAY && stack.peek().getToken() == START_ARRAY;
-                boolean curlyBracketsMatch = currentToken == END_OBJECT && stack.peek().getToken() == START_OBJECT;
+            if (stackSize > 0) {
+                JsonToken top = stackTokens[stackSize - 1];
+                boolean squareBracketsMatch = currentToken == END_ARRAY && top == START_ARRAY;
+                boolean curlyBracketsMatch = currentToken == END_OBJECT && top == START_OBJECT;
                 if (squareBracketsMatch || curlyBracketsMatch) {
-                    lastParsedParentElement = stack.pop().getField();
+                    lastParsedParentElement = stackFields[--stackSize];
+                    stackFields[stackSize] = null;
                 }
             }
             currentField = null;
         } else if (currentToken == FIELD_NAME) {
-            String t = jsonParser.getText();
-            currentField = t;
+            // The canonical (interned) name from the parser's symbol table
+            currentField = jsonParser.getCurrentName();
         }
     }
 
+    private void push(String field, JsonToken token) {
+        if (stackSize == stackFields.length) {
+            stackFields = Arrays.copyOf(stackFields, stackSize * 2);
+            stackTokens = Arrays.copyOf(stackTokens, stackSize * 2);
+        }
+        stackFields[stackSize] = field;
+        stackTokens[stackSize] = token;
+        stackSize++;
+    }
+
     @Override
     public String toString() {
         StringBuilder stackString = new StringBuilder();
 
-        for (JsonFieldTokenPair jsonFieldTokenPair : stack) {
+        for (int i = 0; i < stackSize; i++) {
             stackString.append("/")
-                       .append(jsonFieldTokenPair.getField());
+                       .append(stackFields[i]);
         }
 
         if (currentField != null) {
@@ -276,37 +319,4 @@ public class JsonUnmarshallerContextImpl extends JsonUnmarshallerContext {
     public String getLastParsedParentElement() {
         return lastParsedParentElement;
     }
-
-    /**
-     * An immutable class used to indicate a JSON field value followed by a
-     * subsequent JSON token. This inner class should only be used by the
-     * private stack to indicate the current state of the context.
-     */
-    private static class JsonFieldTokenPair {
-        private final String field;
-        private final JsonToken jsonToken;
-
-        /**
-         * @param fieldString
-         *            Not null.
-         * @param token
-         *            Not null.
-         */
-        public JsonFieldTokenPair(String fieldString, JsonToken token) {
-            field = fieldString;
-            jsonToken = token;
-        }
-
-        public String getField() {
-            return field;
-        }
-
-        public JsonToken getToken() {
-            return jsonToken;
-        }
-
-        public String toString() {
-            return field + ": " + jsonToken.asString();
-        }
-    }
 }
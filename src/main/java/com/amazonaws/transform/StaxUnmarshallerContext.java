@@ -14,17 +14,27 @@
  */
 package com.amazonaws.transform;
 
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 /**
@@ -34,14 +44,48 @@ import javax.xml.stream.events.XMLEvent;
  * response. It also tracks the current position and element depth of the
  * document being parsed and provides utilties for accessing the next XML event
  * from the parser, reading element text, handling attribute XML events, etc.
+ * <p>
+ * The document can either be read from an {@link XMLEventReader}, or from the
+ * cursor of an {@link XMLStreamReader}. In the latter case no event objects
+ * are allocated while parsing, other than for attributes:
+ * {@link #nextEvent()} returns events owned by this context, which report
+ * their type directly and only build the details of the event from the
+ * reader when asked for them.
  */
 public class StaxUnmarshallerContext {
 
+    /**
+     * Parsed form of the psuedo-xpath expressions used by the unmarshallers.
+     * The expressions are constants, so the number of distinct entries is
+     * bounded by the size of the generated code.
+     */
+    private static final ConcurrentMap<String, PathExpression> pathExpressions =
+            new ConcurrentHashMap<String, PathExpression>();
+
+    /** Builds the details of the events read from an XMLStreamReader. */
+    private static final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
     private XMLEvent currentEvent;
     private final XMLEventReader eventReader;
+    private final XMLStreamReader streamReader;
 
+    /**
+     * The local names of the currently open elements, the innermost one on
+     * top.
+     *
+     * @deprecated in favor of {@link #getCurrentDepth()} and
+     *             {@link #testExpression(String)}; this stack is only kept up
+     *             to date for compatibility, and modifying it has no effect
+     *             on the unmarshalling.
+     */
+    @Deprecated
     public final Stack<String> stack = new Stack<String>();
-    private String stackString = "";
+
+    /** The local names of the currently open elements. */
+    private String[] elementStack = new String[16];
+    private int depth;
+    /** The local name of the current attribute, or null if not on an attribute. */
+    private String currentAttributeName;
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -49,6 +93,23 @@ public class StaxUnmarshallerContext {
     private Iterator<?> attributeIterator;
     private final Map<String, String> headers;
 
+    /*
+     * Cursor state, only used when reading from an XMLStreamReader.
+     */
+    private boolean startDocumentReturned;
+    /** A token the reader is already positioned on, but that wasn't returned yet. */
+    private int pendingToken = -1;
+    private String currentAttributeValue;
+    private String[] attributeNames = new String[4];
+    private String[] attributeValues = new String[4];
+    private int attributeCount;
+    private int nextAttribute;
+    private boolean checkMetadataExpressions;
+    /** True once the reader was advanced past the current event by readText. */
+    private boolean cursorMoved;
+    /** The events returned by this context, by event type. */
+    private CursorEvent[] cursorEvents;
+
     /**
      * Constructs a new unmarshaller context using the specified source of XML events.
      *
@@ -71,9 +132,42 @@ public class StaxUnmarshallerContext {
      */
     public StaxUnmarshallerContext(XMLEventReader eventReader, Map<String, String> headers) {
         this.eventReader = eventReader;
+        this.streamReader = null;
         this.headers = headers;
     }
 
+    /**
+     * Constructs a new unmarshaller context reading the XML document from the
+     * cursor of the specified stream reader. The reader must not have been
+     * advanced past the start of the document.
+     *
+     * @param streamReader
+     *            The source of the XML document for this unmarshalling
+     *            context.
+     */
+    public StaxUnmarshallerContext(XMLStreamReader streamReader) {
+        this(streamReader, null);
+    }
+
+    /**
+     * Constructs a new unmarshaller context reading the XML document from the
+     * cursor of the specified stream reader, and a set of response headers.
+     * The reader must not have been advanced past the start of the document.
+     *
+     * @param streamReader
+     *            The source of the XML document for this unmarshalling
+     *            context.
+     * @param headers
+     *            The set of response headers associated with this unmarshaller
+     *            context.
+     */
+    public StaxUnmarshallerContext(XMLStreamReader streamReader, Map<String, String> headers) {
+        this.eventReader = null;
+        this.streamReader = streamReader;
+        this.headers = headers;
+        this.cursorEvents = new CursorEvent[16];
+    }
+
     /**
      * Returns the value of the header with the specified name from the
      * response, or null if not present.
@@ -97,6 +191,8 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public String readText() throws XMLStreamException {
+        if (streamReader != null) return readStreamText();
+
         if (currentEvent.isAttribute()) {
             Attribute attribute = (Attribute)currentEvent;
             return attribute.getValue();
@@ -124,7 +220,7 @@ public class StaxUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        return stack.size();
+        return depth;
     }
 
     /**
@@ -138,7 +234,7 @@ public class StaxUnmarshallerContext {
      */
     public boolean testExpression(String expression) {
         if (expression.equals(".")) return true;
-        return stackString.endsWith(expression);
+        return getCurrentPath().endsWith(expression);
     }
 
     /**
@@ -158,17 +254,14 @@ public class StaxUnmarshallerContext {
     public boolean testExpression(String expression, int startingStackDepth) {
         if (expression.equals(".")) return true;
 
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
-            // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
-                startingStackDepth++;
-            }
+        PathExpression path = pathExpressions.get(expression);
+        if (path == null) {
+            path = new PathExpression(expression);
+            pathExpressions.putIfAbsent(expression, path);
         }
 
-
-        return (startingStackDepth == getCurrentDepth()
-                && stackString.endsWith("/" + expression));
+        return (startingStackDepth + path.depthIncrement == depth
+                && matchesCurrentPosition(path));
     }
 
     /**
@@ -180,17 +273,33 @@ public class StaxUnmarshallerContext {
      *         yet).
      */
     public boolean isStartOfDocument() throws XMLStreamException {
+        if (streamReader != null) {
+            return !startDocumentReturned
+                    && streamReader.getEventType() == XMLStreamConstants.START_DOCUMENT;
+        }
         return eventReader.peek().isStartDocument();
     }
 
     /**
      * Returns the next XML event for the document being parsed.
+     * <p>
+     * When reading from an {@link XMLStreamReader}, the returned event is
+     * reused by this context for every event of the same type, and its
+     * details (e.g. {@link XMLEvent#asStartElement()}) are only available
+     * until the next call to this method or to {@link #readText()}.
      *
      * @return The next XML event for the document being parsed.
      *
      * @throws XMLStreamException
      */
     public XMLEvent nextEvent() throws XMLStreamException {
+        currentAttributeName = null;
+        if (streamReader != null) {
+            currentEvent = nextStreamEvent();
+            cursorMoved = false;
+            return currentEvent;
+        }
+
         if (attributeIterator != null && attributeIterator.hasNext()) {
             currentEvent = (XMLEvent)attributeIterator.next();
         } else {
@@ -203,14 +312,10 @@ public class StaxUnmarshallerContext {
 
         updateContext(currentEvent);
 
-        if (eventReader.hasNext()) {
+        if (!metadataExpressions.isEmpty() && eventReader.hasNext()) {
             XMLEvent nextEvent = eventReader.peek();
             if (nextEvent != null && nextEvent.isCharacters()) {
-                for (MetadataExpression metadataExpression : metadataExpressions) {
-                    if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
-                        metadata.put(metadataExpression.key, nextEvent.asCharacters().getData());
-                    }
-                }
+                collectMetadata(nextEvent.asCharacters().getData());
             }
         }
 
@@ -267,26 +372,320 @@ public class StaxUnmarshallerContext {
         }
     }
 
+    /**
+     * A psuedo-xpath expression split into its steps, e.g. "Item/@name" into
+     * the element step "Item" and the attribute step "name".
+     */
+    private static final class PathExpression {
+        private final String[] names;
+        private final boolean[] isAttribute;
+        /** The number of element levels the expression descends. */
+        private final int depthIncrement;
+
+        PathExpression(String expression) {
+            String[] steps = expression.split("/", -1);
+            names = new String[steps.length];
+            isAttribute = new boolean[steps.length];
+            int increment = 0;
+            for (int i = 0; i < steps.length; i++) {
+                isAttribute[i] = steps[i].startsWith("@");
+                names[i] = isAttribute[i] ? steps[i].substring(1) : steps[i];
+                // Don't consider attributes a new depth level
+                if (i > 0 && !isAttribute[i]) increment++;
+            }
+            depthIncrement = increment;
+        }
+    }
+
+    /**
+     * Returns true if the current position, i.e. the open elements plus the
+     * current attribute if any, ends with the steps of the given expression.
+     */
+    private boolean matchesCurrentPosition(PathExpression path) {
+        int step = path.names.length - 1;
+        if (currentAttributeName != null) {
+            if (!path.isAttribute[step] || !path.names[step].equals(currentAttributeName)) {
+                return false;
+            }
+            step--;
+        }
+
+        int level = depth;
+        for (; step >= 0; step--) {
+            level--;
+            if (level < 0 || path.isAttribute[step]
+                    || !path.names[step].equals(elementStack[level])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current position as a path string, e.g. "/a/b/@c".
+     */
+    private String getCurrentPath() {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            path.append("/").append(elementStack[i]);
+        }
+        if (currentAttributeName != null) {
+            path.append("/@").append(currentAttributeName);
+        }
+        return path.toString();
+    }
+
+    private void collectMetadata(String data) {
+        for (MetadataExpression metadataExpression : metadataExpressions) {
+            if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
+                metadata.put(metadataExpression.key, data);
+            }
+        }
+    }
+
+    private void pushElement(String localName) {
+        if (depth == elementStack.length) {
+            String[] grown = new String[depth * 2];
+            System.arraycopy(elementStack, 0, grown, 0, depth);
+            elementStack = grown;
+        }
+        elementStack[depth++] = localName;
+        stack.push(localName);
+    }
+
+    private void popElement() {
+        elementStack[--depth] = null;
+        stack.pop();
+    }
+
     private void updateContext(XMLEvent event) {
         if (event == null) return;
 
         if (event.isEndElement()) {
-            stack.pop();
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
+            popElement();
         } else if (event.isStartElement()) {
-            stack.push(event.asStartElement().getName().getLocalPart());
-            stackString += "/" + event.asStartElement().getName().getLocalPart();
+            pushElement(event.asStartElement().getName().getLocalPart());
         } else if (event.isAttribute()) {
             Attribute attribute = (Attribute)event;
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
+            currentAttributeName = attribute.getName().getLocalPart();
+        }
+    }
+
+    /**
+     * Moves the stream reader's cursor to the next token, returning its event
+     * type, and updates the position tracked by this context.
+     */
+    private XMLEvent nextStreamEvent() throws XMLStreamException {
+        if (!startDocumentReturned) {
+            startDocumentReturned = true;
+            return cursorEvent(streamReader.getEventType());
+        }
+
+        // Attributes are reported as separate events following their element;
+        // they are rare enough in responses to be returned as full events
+        if (nextAttribute < attributeCount) {
+            currentAttributeName = attributeNames[nextAttribute];
+            currentAttributeValue = attributeValues[nextAttribute];
+            nextAttribute++;
+            return eventFactory.createAttribute(currentAttributeName, currentAttributeValue);
+        }
+
+        int token;
+        if (pendingToken != -1) {
+            token = pendingToken;
+            pendingToken = -1;
+        } else {
+            token = advanceStreamReader();
+        }
+
+        if (token == XMLStreamConstants.START_ELEMENT) {
+            pushElement(streamReader.getLocalName());
+            captureAttributes();
+            checkMetadataExpressions = !metadataExpressions.isEmpty();
+        } else if (token == XMLStreamConstants.END_ELEMENT) {
+            popElement();
+        }
+        return cursorEvent(token);
+    }
+
+    /**
+     * Advances the stream reader, collecting the metadata of a matching
+     * element from the text that immediately follows its start tag.
+     */
+    private int advanceStreamReader() throws XMLStreamException {
+        int token = streamReader.next();
+        cursorMoved = true;
+        if (checkMetadataExpressions) {
+            checkMetadataExpressions = false;
+            if (isText(token)) {
+                collectMetadata(streamReader.getText());
             }
-            stackString += "/@" + attribute.getName().getLocalPart();
         }
+        return token;
     }
 
+    /**
+     * Copies the attributes of the current start element, since they are no
+     * longer available from the reader once it has been advanced (e.g. by
+     * {@link #readText()}).
+     */
+    private void captureAttributes() {
+        int count = streamReader.getAttributeCount();
+        if (count > attributeNames.length) {
+            attributeNames = new String[count];
+            attributeValues = new String[count];
+        }
+        for (int i = 0; i < count; i++) {
+            attributeNames[i] = streamReader.getAttributeLocalName(i);
+            attributeValues[i] = streamReader.getAttributeValue(i);
+        }
+        attributeCount = count;
+        nextAttribute = 0;
+    }
+
+    private String readStreamText() throws XMLStreamException {
+        if (currentAttributeName != null) return currentAttributeValue;
+        if (pendingToken == XMLStreamConstants.END_ELEMENT) return "";
+
+        String text = "";
+        StringBuilder sb = null;
+        while (true) {
+            int token = advanceStreamReader();
+            if (isText(token)) {
+                if (sb != null) {
+                    sb.append(streamReader.getText());
+                } else if (text.length() == 0) {
+                    text = streamReader.getText();
+                } else {
+                    sb = new StringBuilder(text).append(streamReader.getText());
+                }
+            } else if (token == XMLStreamConstants.END_ELEMENT) {
+                // Leave the end tag to be returned by the next call to nextEvent
+                pendingToken = token;
+                return sb == null ? text : sb.toString();
+            } else if (token != XMLStreamConstants.COMMENT
+                    && token != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                throw new RuntimeException("Encountered unexpected event: "
+                        + cursorEvent(token));
+            }
+        }
+    }
+
+    private static boolean isText(int token) {
+        return token == XMLStreamConstants.CHARACTERS
+                || token == XMLStreamConstants.CDATA
+                || token == XMLStreamConstants.SPACE;
+    }
+
+    /**
+     * Returns the event of the given type owned by this context.
+     */
+    private XMLEvent cursorEvent(int eventType) {
+        if (eventType < 0 || eventType >= cursorEvents.length) {
+            return new CursorEvent(eventType);
+        }
+        CursorEvent event = cursorEvents[eventType];
+        if (event == null) {
+            event = cursorEvents[eventType] = new CursorEvent(eventType);
+        }
+        return event;
+    }
+
+    /**
+     * Event returned when reading from an {@link XMLStreamReader}. It reports
+     * its type directly, and builds the details of the event, e.g. the name
+     * of a start element, from the reader's current position; so the details
+     * are only available until the context is advanced past the event.
+     */
+    private final class CursorEvent implements XMLEvent {
+        private final int eventType;
+
+        private CursorEvent(int eventType) {
+            this.eventType = eventType;
+        }
+
+        public int getEventType() { return eventType; }
+        public boolean isStartElement() { return eventType == START_ELEMENT; }
+        public boolean isAttribute() { return eventType == ATTRIBUTE; }
+        public boolean isNamespace() { return eventType == NAMESPACE; }
+        public boolean isEndElement() { return eventType == END_ELEMENT; }
+        public boolean isEntityReference() { return eventType == ENTITY_REFERENCE; }
+        public boolean isProcessingInstruction() { return eventType == PROCESSING_INSTRUCTION; }
+        public boolean isCharacters() { return isText(eventType); }
+        public boolean isStartDocument() { return eventType == START_DOCUMENT; }
+        public boolean isEndDocument() { return eventType == END_DOCUMENT; }
+        public StartElement asStartElement() { return toEvent().asStartElement(); }
+        public EndElement asEndElement() { return toEvent().asEndElement(); }
+        public Characters asCharacters() { return toEvent().asCharacters(); }
+        public QName getSchemaType() { return null; }
+
+        public Location getLocation() {
+            return isCurrent() ? streamReader.getLocation() : null;
+        }
+
+        public void writeAsEncodedUnicode(Writer writer) throws XMLStreamException {
+            toEvent().writeAsEncodedUnicode(writer);
+        }
+
+        private boolean isCurrent() {
+            return currentEvent == this && !cursorMoved;
+        }
+
+        /**
+         * Builds the full event for the reader's current position.
+         */
+        private XMLEvent toEvent() {
+            if (!isCurrent()) {
+                throw new IllegalStateException("The details of an event read from an "
+                        + "XMLStreamReader are only available until the next event is read");
+            }
+            switch (eventType) {
+            case START_ELEMENT:
+                List<Attribute> attributes = new ArrayList<Attribute>(attributeCount);
+                for (int i = 0; i < attributeCount; i++) {
+                    attributes.add(eventFactory.createAttribute(
+                            attributeNames[i], attributeValues[i]));
+                }
+                return eventFactory.createStartElement(nullToEmpty(streamReader.getPrefix()),
+                        nullToEmpty(streamReader.getNamespaceURI()), streamReader.getLocalName(),
+                        attributes.iterator(), null);
+            case END_ELEMENT:
+                return eventFactory.createEndElement(nullToEmpty(streamReader.getPrefix()),
+                        nullToEmpty(streamReader.getNamespaceURI()), streamReader.getLocalName());
+            case CHARACTERS:
+                return eventFactory.createCharacters(streamReader.getText());
+            case CDATA:
+                return eventFactory.createCData(streamReader.getText());
+            case SPACE:
+                return eventFactory.createSpace(streamReader.getText());
+            case COMMENT:
+                return eventFactory.createComment(streamReader.getText());
+            case PROCESSING_INSTRUCTION:
+                return eventFactory.createProcessingInstruction(
+                        streamReader.getPITarget(), streamReader.getPIData());
+            case DTD:
+                return eventFactory.createDTD(streamReader.getText());
+            case START_DOCUMENT:
+                String encoding = streamReader.getCharacterEncodingScheme();
+                String version = streamReader.getVersion();
+                return eventFactory.createStartDocument(
+                        encoding == null ? "UTF-8" : encoding,
+                        version == null ? "1.0" : version);
+            case END_DOCUMENT:
+                return eventFactory.createEndDocument();
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported event read from an XMLStreamReader: " + this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "XMLStreamReader event of type " + eventType;
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
 }
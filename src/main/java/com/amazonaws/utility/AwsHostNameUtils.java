@@ -16,6 +16,8 @@ package com.amazonaws.utility;
 
 import java.net.InetAddress;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,6 +34,10 @@ public class AwsHostNameUtils {
     private static final Pattern EXTENDED_CLOUDSEARCH_ENDPOINT_PATTERN =
         Pattern.compile("^(?:.+\\.)?([a-z0-9-]+)\\.cloudsearch\\..+");
 
+    /** The compiled 'service.[region]' patterns, by service hint. */
+    private static final ConcurrentMap<String, Pattern> SERVICE_HINT_PATTERNS =
+        new ConcurrentHashMap<String, Pattern>();
+
     /**
      * @deprecated in favor of {@link #parseRegionName(String, String)}.
      */
@@ -75,11 +81,15 @@ public class AwsHostNameUtils {
 
             // If we have a service hint, look for 'service.[region]' or
             // 'service-[region]' in the endpoint's hostname.
-            Pattern pattern = Pattern.compile(
-                "^(?:.+\\.)?"
-                + Pattern.quote(serviceHint)
-                + "[.-]([a-z0-9-]+)\\."
-            );
+            Pattern pattern = SERVICE_HINT_PATTERNS.get(serviceHint);
+            if (pattern == null) {
+                pattern = Pattern.compile(
+                    "^(?:.+\\.)?"
+                    + Pattern.quote(serviceHint)
+                    + "[.-]([a-z0-9-]+)\\."
+                );
+                SERVICE_HINT_PATTERNS.putIfAbsent(serviceHint, pattern);
+            }
 
             Matcher matcher = pattern.matcher(host);
             if (matcher.find()) {
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.utility;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.amazonaws.client.util.sdk.BufferPool;
+
+/**
+ * Message digest algorithms used by the SDK, with reusable
+ * {@link MessageDigest} instances so that the (slow and lock-taking) JCE
+ * provider lookup of {@link MessageDigest#getInstance(String)} is done at most
+ * once per thread and algorithm.
+ */
+public enum DigestAlgorithm {
+    MD5("MD5"),
+    SHA256("SHA-256");
+
+    /** Size of the pooled buffer files are read into when digested. */
+    private static final int FILE_BUFFER_SIZE = 256 * 1024;
+
+    private final String algorithmName;
+    private final ThreadLocal<MessageDigest> threadLocalDigest;
+
+    private DigestAlgorithm(final String algorithmName) {
+        this.algorithmName = algorithmName;
+        this.threadLocalDigest = new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                return lookupDigest(algorithmName);
+            }
+        };
+    }
+
+    /** Returns the JCE name of this algorithm, e.g. "SHA-256". */
+    public String getAlgorithmName() {
+        return algorithmName;
+    }
+
+    /**
+     * Returns a reset message digest owned by the current thread. The returned
+     * instance is shared by all callers on the same thread, so it must only be
+     * used for a self-contained computation (update and digest with no calls
+     * in between that could hash on the same thread), and never be handed to a
+     * stream or kept beyond the current method.
+     */
+    public MessageDigest getThreadLocalDigest() {
+        MessageDigest digest = threadLocalDigest.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Returns a new message digest exclusively owned by the caller, e.g. to
+     * be wrapped by a digesting input stream. The instance is cloned from
+     * this thread's digest when the provider supports it, which avoids the
+     * provider lookup.
+     */
+    public MessageDigest newDigest() {
+        try {
+            return (MessageDigest) getThreadLocalDigest().clone();
+        } catch (CloneNotSupportedException e) {
+            return lookupDigest(algorithmName);
+        }
+    }
+
+    /**
+     * Computes the digest of the given data using this thread's message
+     * digest.
+     */
+    public byte[] digest(byte[] data) {
+        return getThreadLocalDigest().digest(data);
+    }
+
+    /**
+     * Computes the digest of the remaining content of the given buffer using
+     * this thread's message digest. The position of the given buffer is left
+     * untouched, and a direct or mapped buffer is hashed in place rather than
+     * being copied to the heap first.
+     */
+    public byte[] digest(ByteBuffer data) {
+        MessageDigest digest = getThreadLocalDigest();
+        digest.update(data.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * Computes the digest of the content of the given file, read through a
+     * pooled buffer.
+     */
+    public byte[] digest(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return digest(fis.getChannel(), 0, file.length());
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Computes the digest of the given region of a file channel, read with
+     * positional reads into a pooled buffer. The position of the channel is
+     * left untouched.
+     *
+     * @throws EOFException
+     *             if the file ends before the end of the region, e.g. as it
+     *             was truncated while being read.
+     */
+    public byte[] digest(FileChannel channel, long position, long length)
+            throws IOException {
+        MessageDigest digest = getThreadLocalDigest();
+        byte[] buffer = BufferPool.getDefault().acquire(FILE_BUFFER_SIZE);
+        try {
+            long offset = position;
+            long end = position + length;
+            while (offset < end) {
+                int size = (int) Math.min(buffer.length, end - offset);
+                int bytesRead = channel.read(ByteBuffer.wrap(buffer, 0, size), offset);
+                if (bytesRead < 0) {
+                    throw new EOFException("Unexpected end of file after "
+                            + (offset - position) + " of " + length + " bytes");
+                }
+                digest.update(buffer, 0, bytesRead);
+                offset += bytesRead;
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest lookupDigest(String algorithmName) {
+        try {
+            return MessageDigest.getInstance(algorithmName);
+        } catch (NoSuchAlgorithmException e) {
+            // should never get here
+            throw new IllegalStateException(
+                    "Unable to get " + algorithmName + " message digest", e);
+        }
+    }
+}
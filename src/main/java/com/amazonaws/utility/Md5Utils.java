@@ -19,15 +19,15 @@ package com.amazonaws.utility;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.client.util.sdk.BufferPool;
 import com.amazonaws.json.codec.Base64;
 
 /**
@@ -42,18 +42,16 @@ public class Md5Utils {
      */
     public static byte[] computeMD5Hash(InputStream is) throws IOException {
         BufferedInputStream bis = new BufferedInputStream(is);
+        byte[] buffer = BufferPool.getDefault().acquire(SIXTEEN_K);
         try {
-            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            byte[] buffer = new byte[SIXTEEN_K];
+            MessageDigest messageDigest = DigestAlgorithm.MD5.newDigest();
             int bytesRead;
             while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
                 messageDigest.update(buffer, 0, bytesRead);
             }
             return messageDigest.digest();
-        } catch (NoSuchAlgorithmException e) {
-            // should never get here
-            throw new IllegalStateException(e);
         } finally {
+            BufferPool.getDefault().release(buffer);
             try {
                 bis.close();
             } catch (Exception e) {
@@ -76,13 +74,7 @@ public class Md5Utils {
      * bytes.
      */
     public static byte[] computeMD5Hash(byte[] input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            return md.digest(input);
-        } catch (NoSuchAlgorithmException e) {
-            // should never get here
-            throw new IllegalStateException(e);
-        }
+        return DigestAlgorithm.MD5.digest(input);
     }
 
     /**
@@ -92,11 +84,27 @@ public class Md5Utils {
         return Base64.encodeAsString(computeMD5Hash(input));
     }
 
+    /**
+     * Computes the MD5 hash of the remaining content of the given buffer and
+     * returns it as an array of bytes. The position of the buffer is left
+     * untouched.
+     */
+    public static byte[] computeMD5Hash(ByteBuffer input) {
+        return DigestAlgorithm.MD5.digest(input);
+    }
+
+    /**
+     * Returns the MD5 in base64 for the remaining content of the given buffer.
+     */
+    public static String md5AsBase64(ByteBuffer input) {
+        return Base64.encodeAsString(computeMD5Hash(input));
+    }
+
     /**
      * Computes the MD5 of the given file.
      */
     public static byte[] computeMD5Hash(File file) throws FileNotFoundException, IOException {
-        return computeMD5Hash(new FileInputStream(file));
+        return DigestAlgorithm.MD5.digest(file);
     }
 
     /**
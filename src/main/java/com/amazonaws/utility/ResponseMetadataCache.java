@@ -14,8 +14,9 @@
  */
 package com.amazonaws.utility;
 
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.amazonaws.network.ResponseMetadata;
 
@@ -23,10 +24,16 @@ import com.amazonaws.network.ResponseMetadata;
  * Cache of response metadata for recently executed requests for diagnostic
  * purposes. This cache has a max size and as entries are added, the oldest
  * entry is aged out once the max size has been reached.
+ * <p>
+ * Entries are stored in a fixed size ring buffer, so adding an entry never
+ * blocks or allocates beyond the entry itself. Keys are held through weak
+ * references and matched by identity, so a cached entry never keeps a request
+ * object alive, and metadata is never returned for a different object than
+ * the one it was stored for.
  */
 public class ResponseMetadataCache {
-    private final InternalCache internalCache;
-
+    private final AtomicReferenceArray<CacheEntry> entries;
+    private final AtomicInteger nextIndex = new AtomicInteger();
 
     /**
      * Creates a new cache that will contain, at most the specified number of
@@ -36,7 +43,9 @@ public class ResponseMetadataCache {
      *            The maximum size of this cache.
      */
     public ResponseMetadataCache(int maxEntries) {
-        internalCache = new InternalCache(maxEntries);
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        entries = new AtomicReferenceArray<CacheEntry>(maxEntries);
     }
 
     /**
@@ -48,9 +57,9 @@ public class ResponseMetadataCache {
      * @param metadata
      *            The metadata for this entry.
      */
-    public synchronized void add(Object obj, ResponseMetadata metadata) {
+    public void add(Object obj, ResponseMetadata metadata) {
         if (obj == null) return;
-        internalCache.put(System.identityHashCode(obj), metadata);
+        entries.set(nextSlot(), new CacheEntry(obj, metadata));
     }
 
     /**
@@ -64,30 +73,43 @@ public class ResponseMetadataCache {
      *         otherwise null if no metadata is associated with that object.
      */
     public ResponseMetadata get(Object obj) {
-        // System.identityHashCode isn't guaranteed to be unique
-        // on all platforms, but should be reasonable enough to use
-        // for a few requests at a time.  We can always easily move
-        // to our own unique IDs if needed.
-        return internalCache.get(System.identityHashCode(obj));
+        if (obj == null) return null;
+
+        // Look from the most recently added entry backwards, so that the
+        // latest metadata wins if the same object was used more than once
+        final int length = entries.length();
+        final int newest = nextIndex.get() - 1;
+        for (int i = 0; i < length; i++) {
+            CacheEntry entry = entries.get(((newest - i) % length + length) % length);
+            if (entry != null && entry.key.get() == obj) {
+                return entry.metadata;
+            }
+        }
+        return null;
     }
 
+    private int nextSlot() {
+        final int length = entries.length();
+        while (true) {
+            int current = nextIndex.get();
+            int next = current + 1 == Integer.MAX_VALUE ? 0 : current + 1;
+            if (nextIndex.compareAndSet(current, next)) {
+                return current % length;
+            }
+        }
+    }
 
     /**
-     * Simple implementation of LinkedHashMap that overrides the
-     * <code>removeEldestEntry</code> method to turn LinkedHashMap into a
-     * LRU(ish) cache that automatically evicts old entries.
+     * A cached response metadata together with a weak reference to the object
+     * it is associated with.
      */
-    private static final class InternalCache extends LinkedHashMap<Integer, ResponseMetadata> {
-        private int maxSize;
-
-        public InternalCache(int maxSize) {
-            super(maxSize);
-            this.maxSize = maxSize;
-        }
+    private static final class CacheEntry {
+        private final WeakReference<Object> key;
+        private final ResponseMetadata metadata;
 
-        @Override
-        protected boolean removeEldestEntry(Entry eldest) {
-            return size() > maxSize;
+        CacheEntry(Object key, ResponseMetadata metadata) {
+            this.key = new WeakReference<Object>(key);
+            this.metadata = metadata;
         }
     }
 }